@@ -1,5 +1,8 @@
 package net.countered.settlementroads.chunk;
 
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.minecraft.core.BlockPos;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.world.level.ChunkPos;
@@ -8,159 +11,215 @@ import org.slf4j.LoggerFactory;
 
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
 
 /**
  * 管理区块的道路生成状态
  * 控制区块发送给玩家的时机，确保道路生成完成后再发送
+ *
+ * 语义：
+ * 1. 每个维度一个闸门，区块以 ChunkPos.toLong() 打包后存放在 Long2ObjectOpenHashMap 中
+ * 2. markChunkPendingRoad 为区块增加一个“持有”，markChunkRoadProcessed 释放一个持有；
+ *    持有数归零时区块放行，并执行所有释放回调
+ * 3. 区块从第一次被持有起最多被扣留 TIMEOUT_SECONDS 秒，超时后强制放行
+ * 4. 所有超时由单个时间轮线程处理；同一批放行的回调合并为一次主线程任务执行
  */
 public class ChunkRoadStateManager {
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
-    
+
     // 超时时间（秒）- 避免某些区块永远不发送
     private static final int TIMEOUT_SECONDS = 30;
-    
-    // 按世界维度存储待处理区块
-    // Key: 世界维度 ID, Value: ChunkPos -> ChunkRoadState
-    private static final Map<String, Map<ChunkPos, ChunkRoadState>> worldChunkStates = new ConcurrentHashMap<>();
-    
+    static final long TIMEOUT_MS = TIMEOUT_SECONDS * 1000L;
+
+    // 按世界维度存储区块闸门（Key: 世界维度 ID）
+    private static final Map<String, WorldGate> worldGates = new ConcurrentHashMap<>();
+
+    // 所有维度共用的超时时间轮
+    private static final TimerWheel timerWheel = new TimerWheel(true);
+
+    // 时钟（包内可见，单元测试替换为可控时钟）
+    static LongSupplier clock = System::currentTimeMillis;
+
     /**
      * 区块道路状态
      */
-    public static class ChunkRoadState {
-        private boolean roadProcessed = false;
-        private final List<Runnable> releaseCallbacks = new ArrayList<>();
-        private final long createdTime = System.currentTimeMillis();
-        
-        public synchronized void addReleaseCallback(Runnable callback) {
-            if (roadProcessed) {
-                callback.run(); // 已经完成，直接执行
-            } else {
-                releaseCallbacks.add(callback);
-            }
-        }
-        
-        public synchronized void markProcessed() {
-            if (roadProcessed) return; // 防止重复执行
-            
-            this.roadProcessed = true;
-            for (Runnable callback : releaseCallbacks) {
-                try {
-                    callback.run();
-                } catch (Exception e) {
-                    LOGGER.error("Error executing release callback", e);
+    private static final class ChunkRoadState {
+        private int holds = 0;
+        private final long deadlineMs;
+        private List<Runnable> releaseCallbacks = null;
+
+        private ChunkRoadState(long deadlineMs) {
+            this.deadlineMs = deadlineMs;
+        }
+
+        private void addReleaseCallback(Runnable callback) {
+            if (releaseCallbacks == null) {
+                releaseCallbacks = new ArrayList<>(2);
+            }
+            releaseCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * 单个维度的区块闸门（所有访问都在 synchronized(this) 中进行）
+     */
+    static final class WorldGate {
+        private final ServerLevel level;
+        private final TimerWheel wheel;
+        private final Long2ObjectOpenHashMap<ChunkRoadState> states = new Long2ObjectOpenHashMap<>();
+        // 无锁快速路径：没有被扣留的区块时直接放行
+        private volatile int pendingCount = 0;
+
+        WorldGate(ServerLevel level, TimerWheel wheel) {
+            this.level = level;
+            this.wheel = wheel;
+        }
+
+        /**
+         * 增加一个持有（调用者需持有锁）
+         */
+        void hold(long chunkKey, long now) {
+            ChunkRoadState state = states.get(chunkKey);
+            if (state == null) {
+                state = new ChunkRoadState(now + TIMEOUT_MS);
+                states.put(chunkKey, state);
+                pendingCount = states.size();
+                wheel.schedule(this, chunkKey, state.deadlineMs);
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("🔒 Marking chunk {} as pending road generation", new ChunkPos(chunkKey));
                 }
             }
-            releaseCallbacks.clear();
+            state.holds++;
         }
-        
-        public boolean isProcessed() {
-            return roadProcessed;
+
+        /**
+         * 释放一个持有，持有数归零时移除并收集回调（调用者需持有锁）
+         */
+        void release(long chunkKey, boolean force, List<Runnable> callbacks) {
+            ChunkRoadState state = states.get(chunkKey);
+            if (state == null) {
+                return;
+            }
+            if (!force && --state.holds > 0) {
+                return;
+            }
+            states.remove(chunkKey);
+            pendingCount = states.size();
+            if (state.releaseCallbacks != null) {
+                callbacks.addAll(state.releaseCallbacks);
+            }
         }
-        
-        public boolean isTimedOut() {
-            return System.currentTimeMillis() - createdTime > TIMEOUT_SECONDS * 1000L;
+
+        /**
+         * 区块当前的持有数（未被扣留时为 0，调用者需持有锁）
+         */
+        int holdCount(long chunkKey) {
+            ChunkRoadState state = states.get(chunkKey);
+            return state == null ? 0 : state.holds;
+        }
+
+        int pendingCount() {
+            return pendingCount;
         }
     }
-    
+
+    private static WorldGate gateFor(ServerLevel level) {
+        return worldGates.computeIfAbsent(worldKey(level), k -> new WorldGate(level, timerWheel));
+    }
+
+    private static String worldKey(ServerLevel level) {
+        return level.dimension().location().toString();
+    }
+
     /**
      * 标记区块需要等待道路生成
      * @param level 服务器世界
      * @param pos 区块位置
      */
     public static void markChunkPendingRoad(ServerLevel level, ChunkPos pos) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.computeIfAbsent(worldKey, k -> new ConcurrentHashMap<>());
-        
-        chunkMap.computeIfAbsent(pos, k -> {
-            LOGGER.debug("🔒 Marking chunk {} as pending road generation", pos);
-            ChunkRoadState state = new ChunkRoadState();
-            
-            // 设置超时保护
-            CompletableFuture.delayedExecutor(TIMEOUT_SECONDS, TimeUnit.SECONDS).execute(() -> {
-                if (!state.isProcessed()) {
-                    LOGGER.warn("⏰ Chunk {} timed out waiting for road generation, releasing anyway", pos);
-                    markChunkRoadProcessed(level, pos);
-                }
-            });
-            
-            return state;
-        });
+        WorldGate gate = gateFor(level);
+        long now = clock.getAsLong();
+        synchronized (gate) {
+            gate.hold(pos.toLong(), now);
+        }
     }
-    
+
     /**
      * 批量标记多个区块需要等待道路生成
      * @param level 服务器世界
      * @param positions 区块位置列表
      */
     public static void markChunksPendingRoad(ServerLevel level, Collection<ChunkPos> positions) {
-        for (ChunkPos pos : positions) {
-            markChunkPendingRoad(level, pos);
+        if (positions.isEmpty()) return;
+        WorldGate gate = gateFor(level);
+        long now = clock.getAsLong();
+        synchronized (gate) {
+            for (ChunkPos pos : positions) {
+                gate.hold(pos.toLong(), now);
+            }
         }
     }
-    
+
     /**
      * 检查区块是否需要等待道路生成
      * @param level 服务器世界
      * @param pos 区块位置
-     * @return true 如果区块正在等待道路生成
+     * @return true 如果区块仍被持有且未超时
      */
     public static boolean isChunkPendingRoad(ServerLevel level, ChunkPos pos) {
-        if (level.getDayTime() < 1000)
-            return true;
-        else
-            return false;
-//        String worldKey = level.dimension().location().toString();
-//        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.get(worldKey);
-//        if (chunkMap == null) return false;
-//
-//        ChunkRoadState state = chunkMap.get(pos);
-//        if (state == null) return false;
-//
-//        // 检查是否超时
-//        if (state.isTimedOut() && !state.isProcessed()) {
-//            LOGGER.warn("⏰ Chunk {} timed out in check, marking as processed", pos);
-//            markChunkRoadProcessed(level, pos);
-//            return false;
-//        }
-//
-//        return !state.isProcessed();
-    }
-    
+        WorldGate gate = worldGates.get(worldKey(level));
+        if (gate == null || gate.pendingCount == 0) return false;
+        // 先发送后补丁模式：区块从不扣留，道路方块之后由 RoadPatchBroadcaster 推送
+        if (RoadPatchBroadcaster.isEnabled()) return false;
+
+        synchronized (gate) {
+            ChunkRoadState state = gate.states.get(pos.toLong());
+            // 已超时但时间轮尚未处理的区块直接放行
+            return state != null && clock.getAsLong() < state.deadlineMs;
+        }
+    }
+
     /**
-     * 标记区块的道路已处理完成，触发释放回调
+     * 释放区块的一个持有，持有数归零时触发释放回调
      * @param level 服务器世界
      * @param pos 区块位置
      */
     public static void markChunkRoadProcessed(ServerLevel level, ChunkPos pos) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.get(worldKey);
-        if (chunkMap == null) return;
-        
-        ChunkRoadState state = chunkMap.get(pos);
-        if (state != null) {
-            LOGGER.debug("✅ Marking chunk {} road as processed", pos);
-            state.markProcessed();
-            
-            // 延迟移除，避免并发问题
-            CompletableFuture.delayedExecutor(5, TimeUnit.SECONDS)
-                .execute(() -> chunkMap.remove(pos));
-        }
-    }
-    
+        WorldGate gate = worldGates.get(worldKey(level));
+        if (gate == null) return;
+
+        List<Runnable> callbacks = new ArrayList<>();
+        synchronized (gate) {
+            gate.release(pos.toLong(), false, callbacks);
+        }
+        runCallbacks(level, callbacks);
+    }
+
     /**
-     * 批量标记多个区块的道路已处理完成
+     * 批量释放多个区块的持有（一次加锁，回调合并为一次主线程任务）
      * @param level 服务器世界
      * @param positions 区块位置列表
      */
     public static void markChunksRoadProcessed(ServerLevel level, Collection<ChunkPos> positions) {
-        LOGGER.info("✅ Releasing {} chunks after road generation", positions.size());
-        for (ChunkPos pos : positions) {
-            markChunkRoadProcessed(level, pos);
+        WorldGate gate = worldGates.get(worldKey(level));
+        if (gate == null || positions.isEmpty()) return;
+
+        List<Runnable> callbacks = new ArrayList<>();
+        int before;
+        int after;
+        synchronized (gate) {
+            before = gate.states.size();
+            for (ChunkPos pos : positions) {
+                gate.release(pos.toLong(), false, callbacks);
+            }
+            after = gate.states.size();
         }
+        if (before != after) {
+            LOGGER.info("✅ Releasing {} chunks after road generation ({} waiting sends)", before - after, callbacks.size());
+        }
+        runCallbacks(level, callbacks);
     }
-    
+
     /**
      * 注册区块释放回调（当道路生成完成时调用）
      * @param level 服务器世界
@@ -168,21 +227,25 @@ public class ChunkRoadStateManager {
      * @param callback 回调函数
      */
     public static void registerReleaseCallback(ServerLevel level, ChunkPos pos, Runnable callback) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.get(worldKey);
-        if (chunkMap == null) {
-            callback.run(); // 没有待处理状态，直接执行
-            return;
-        }
-        
-        ChunkRoadState state = chunkMap.get(pos);
-        if (state == null) {
-            callback.run(); // 没有待处理状态，直接执行
-        } else {
-            state.addReleaseCallback(callback);
+        WorldGate gate = worldGates.get(worldKey(level));
+        if (gate != null) {
+            boolean held;
+            synchronized (gate) {
+                ChunkRoadState state = gate.states.get(pos.toLong());
+                held = state != null;
+                if (held) {
+                    state.addReleaseCallback(callback);
+                }
+            }
+            if (held) {
+                // 玩家正在等待该区块：提升经过该区块的道路的优先级
+                CorridorGate.onChunkDemanded(level, pos.toLong());
+                return;
+            }
         }
+        callback.run(); // 没有待处理状态，直接执行
     }
-    
+
     /**
      * 从道路段数据中提取所有受影响的区块
      * @param roadSegments 道路段列表
@@ -190,11 +253,27 @@ public class ChunkRoadStateManager {
      */
     public static Set<ChunkPos> extractAffectedChunks(List<net.countered.settlementroads.helpers.Records.RoadSegmentPlacement> roadSegments) {
         Set<ChunkPos> affectedChunks = new HashSet<>();
+        if (roadSegments instanceof net.countered.settlementroads.helpers.CompactRoadSegments compact) {
+            // 紧凑表示：按区块坐标去重后再创建 ChunkPos
+            LongOpenHashSet chunkKeys = new LongOpenHashSet();
+            net.countered.settlementroads.helpers.CompactRoadSegments.WidthCursor cursor = compact.widthCursor();
+            for (int i = 0; i < compact.size(); i++) {
+                chunkKeys.add(ChunkPos.asLong(compact.centerX(i) >> 4, compact.centerZ(i) >> 4));
+                cursor.reset(i);
+                while (cursor.next()) {
+                    chunkKeys.add(ChunkPos.asLong(cursor.x() >> 4, cursor.z() >> 4));
+                }
+            }
+            for (LongIterator it = chunkKeys.iterator(); it.hasNext(); ) {
+                affectedChunks.add(new ChunkPos(it.nextLong()));
+            }
+            return affectedChunks;
+        }
         for (net.countered.settlementroads.helpers.Records.RoadSegmentPlacement segment : roadSegments) {
             // 中心点
             ChunkPos centerChunk = new ChunkPos(segment.middlePos());
             affectedChunks.add(centerChunk);
-            
+
             // 宽度点
             for (BlockPos widthPos : segment.positions()) {
                 ChunkPos widthChunk = new ChunkPos(widthPos);
@@ -203,51 +282,174 @@ public class ChunkRoadStateManager {
         }
         return affectedChunks;
     }
-    
+
     /**
      * 清理世界的所有状态（世界卸载时调用）
      * @param level 服务器世界
      */
     public static void clearWorld(ServerLevel level) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> removed = worldChunkStates.remove(worldKey);
-        if (removed != null && !removed.isEmpty()) {
-            // 强制释放所有待处理的区块
-            for (Map.Entry<ChunkPos, ChunkRoadState> entry : removed.entrySet()) {
-                entry.getValue().markProcessed();
+        WorldGate gate = worldGates.remove(worldKey(level));
+        if (gate == null) return;
+
+        List<Runnable> callbacks = new ArrayList<>();
+        int cleared;
+        synchronized (gate) {
+            cleared = gate.states.size();
+            for (ChunkRoadState state : gate.states.values()) {
+                if (state.releaseCallbacks != null) {
+                    callbacks.addAll(state.releaseCallbacks);
+                }
             }
-            LOGGER.info("🧹 Cleared {} pending chunks for world {}", removed.size(), worldKey);
+            gate.states.clear();
+            gate.pendingCount = 0;
+        }
+        // 强制释放所有待处理的区块
+        runCallbacks(level, callbacks);
+        if (cleared > 0) {
+            LOGGER.info("🧹 Cleared {} pending chunks for world {}", cleared, worldKey(level));
         }
     }
-    
+
     /**
      * 获取待处理区块数量（调试用）
      * @param level 服务器世界
      * @return 待处理区块数量
      */
     public static int getPendingCount(ServerLevel level) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.get(worldKey);
-        return chunkMap != null ? (int) chunkMap.values().stream().filter(s -> !s.isProcessed()).count() : 0;
+        WorldGate gate = worldGates.get(worldKey(level));
+        return gate != null ? gate.pendingCount : 0;
     }
-    
+
     /**
      * 获取所有待处理区块（调试用）
      * @param level 服务器世界
      * @return 待处理区块位置列表
      */
     public static List<ChunkPos> getPendingChunks(ServerLevel level) {
-        String worldKey = level.dimension().location().toString();
-        Map<ChunkPos, ChunkRoadState> chunkMap = worldChunkStates.get(worldKey);
-        if (chunkMap == null) return Collections.emptyList();
-        
+        WorldGate gate = worldGates.get(worldKey(level));
+        if (gate == null) return Collections.emptyList();
+
         List<ChunkPos> pending = new ArrayList<>();
-        for (Map.Entry<ChunkPos, ChunkRoadState> entry : chunkMap.entrySet()) {
-            if (!entry.getValue().isProcessed()) {
-                pending.add(entry.getKey());
+        synchronized (gate) {
+            for (long key : gate.states.keySet()) {
+                pending.add(new ChunkPos(key));
             }
         }
         return pending;
     }
-}
 
+    /**
+     * 将一批释放回调合并为一次主线程任务执行
+     */
+    private static void runCallbacks(ServerLevel level, List<Runnable> callbacks) {
+        if (callbacks.isEmpty()) return;
+        level.getServer().execute(() -> {
+            for (Runnable callback : callbacks) {
+                try {
+                    callback.run();
+                } catch (Exception e) {
+                    LOGGER.error("Error executing release callback", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * 超时时间轮：单个守护线程每 TICK_MS 推进一格，处理该格内到期的区块
+     * 轮长（WHEEL_SIZE × TICK_MS）大于超时时间，因此无需多圈计数
+     */
+    static final class TimerWheel {
+        static final long TICK_MS = 250L;
+        private static final int WHEEL_SIZE = 256; // 64 秒
+
+        private final List<List<TimerEntry>> slots = new ArrayList<>(WHEEL_SIZE);
+        // false 时不启动线程，由调用者通过 advance() 推进（单元测试）
+        private final boolean background;
+        private int cursor = 0;
+        private Thread thread = null;
+
+        private record TimerEntry(WorldGate gate, long chunkKey, long deadlineMs) {}
+
+        TimerWheel(boolean background) {
+            this.background = background;
+            for (int i = 0; i < WHEEL_SIZE; i++) {
+                slots.add(new ArrayList<>());
+            }
+        }
+
+        private synchronized void schedule(WorldGate gate, long chunkKey, long deadlineMs) {
+            if (background && thread == null) {
+                thread = new Thread(this::runLoop, "RoadWeaver-ChunkGate");
+                thread.setDaemon(true);
+                thread.start();
+            }
+            long delay = Math.max(0L, deadlineMs - clock.getAsLong());
+            int ticks = (int) Math.min(WHEEL_SIZE - 1, Math.max(1L, (delay + TICK_MS - 1) / TICK_MS));
+            slots.get((cursor + ticks) % WHEEL_SIZE).add(new TimerEntry(gate, chunkKey, deadlineMs));
+        }
+
+        private void runLoop() {
+            while (true) {
+                try {
+                    Thread.sleep(TICK_MS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+                try {
+                    advance();
+                } catch (Exception e) {
+                    LOGGER.error("Error processing chunk gate timeouts", e);
+                }
+            }
+        }
+
+        /**
+         * 推进一格并处理该格内的定时项
+         */
+        void advance() {
+            List<TimerEntry> due;
+            synchronized (this) {
+                cursor = (cursor + 1) % WHEEL_SIZE;
+                due = slots.get(cursor);
+                if (due.isEmpty()) return;
+                slots.set(cursor, new ArrayList<>());
+            }
+            expire(due);
+        }
+
+        /**
+         * 按维度分组，强制放行到期的区块（同一区块重新被持有时，其新状态的截止时间更晚，不受影响）
+         */
+        private void expire(List<TimerEntry> due) {
+            Map<WorldGate, List<TimerEntry>> byGate = new IdentityHashMap<>();
+            for (TimerEntry entry : due) {
+                byGate.computeIfAbsent(entry.gate(), k -> new ArrayList<>()).add(entry);
+            }
+            long now = clock.getAsLong();
+            for (Map.Entry<WorldGate, List<TimerEntry>> entry : byGate.entrySet()) {
+                WorldGate gate = entry.getKey();
+                List<Runnable> callbacks = new ArrayList<>();
+                int expired = 0;
+                synchronized (gate) {
+                    for (TimerEntry timer : entry.getValue()) {
+                        ChunkRoadState state = gate.states.get(timer.chunkKey());
+                        if (state == null || state.deadlineMs != timer.deadlineMs()) {
+                            continue; // 已放行，或已重新持有（由新的定时项负责）
+                        }
+                        if (state.deadlineMs <= now) {
+                            gate.release(timer.chunkKey(), true, callbacks);
+                            expired++;
+                        } else {
+                            // 时钟抖动导致提前到达，重新放入时间轮
+                            schedule(gate, timer.chunkKey(), timer.deadlineMs());
+                        }
+                    }
+                }
+                if (expired > 0) {
+                    LOGGER.warn("⏰ {} chunks timed out waiting for road generation, releasing anyway", expired);
+                    runCallbacks(gate.level, callbacks);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,222 @@
+package net.countered.settlementroads.chunk;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.helpers.StructureConnector;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 预测性走廊闸门
+ *
+ * 连接入队时立即沿起点到终点的直线计算一条粗略走廊（两侧各留 CORRIDOR_MARGIN_CHUNKS 个区块），
+ * 并在 {@link ChunkRoadStateManager} 中持有这些区块，避免 A* 完成前区块就被发送给玩家。
+ * - 玩家请求了走廊内被扣留的区块时，对应连接被移到队列最前面（优先寻路）
+ * - 精确路径算出后，走廊收缩为路径实际覆盖的区块（多余的持有立即释放）
+ * - 寻路失败时释放整条走廊
+ */
+public final class CorridorGate {
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 直线两侧额外持有的区块数（A* 路径通常不会偏离直线太远）
+    private static final int CORRIDOR_MARGIN_CHUNKS = 1;
+    // 单条走廊的最大区块数，超出时不做预测性扣留
+    private static final int MAX_CORRIDOR_CHUNKS = 4096;
+
+    private record CorridorKey(long a, long b) {
+        static CorridorKey of(Records.StructureConnection connection) {
+            long from = connection.from().asLong();
+            long to = connection.to().asLong();
+            return from <= to ? new CorridorKey(from, to) : new CorridorKey(to, from);
+        }
+    }
+
+    private static final class Corridor {
+        private final Records.StructureConnection connection;
+        private final LongOpenHashSet chunks;
+
+        private Corridor(Records.StructureConnection connection, LongOpenHashSet chunks) {
+            this.connection = connection;
+            this.chunks = chunks;
+        }
+    }
+
+    /**
+     * 单个维度的走廊表（所有访问都在 synchronized(this) 中进行）
+     */
+    private static final class WorldCorridors {
+        private final Map<CorridorKey, Corridor> corridors = new HashMap<>();
+        // 区块 → 经过该区块的走廊
+        private final Long2ObjectOpenHashMap<List<CorridorKey>> byChunk = new Long2ObjectOpenHashMap<>();
+
+        private void index(CorridorKey key, LongOpenHashSet chunks) {
+            for (long chunk : chunks) {
+                byChunk.computeIfAbsent(chunk, k -> new ArrayList<>(1)).add(key);
+            }
+        }
+
+        private void unindex(CorridorKey key, LongOpenHashSet chunks) {
+            for (long chunk : chunks) {
+                List<CorridorKey> keys = byChunk.get(chunk);
+                if (keys != null) {
+                    keys.remove(key);
+                    if (keys.isEmpty()) {
+                        byChunk.remove(chunk);
+                    }
+                }
+            }
+        }
+    }
+
+    private static final Map<String, WorldCorridors> worldCorridors = new ConcurrentHashMap<>();
+
+    private CorridorGate() {}
+
+    private static String worldKey(ServerLevel level) {
+        return level.dimension().location().toString();
+    }
+
+    /**
+     * 连接入队时调用：计算直线走廊并持有其中的区块
+     */
+    public static void reserve(ServerLevel level, Records.StructureConnection connection) {
+        if (RoadPatchBroadcaster.isEnabled()) {
+            return; // 先发送后补丁模式不扣留区块
+        }
+        LongOpenHashSet chunks = computeCorridor(connection.from(), connection.to());
+        if (chunks.isEmpty() || chunks.size() > MAX_CORRIDOR_CHUNKS) {
+            return;
+        }
+        CorridorKey key = CorridorKey.of(connection);
+        WorldCorridors world = worldCorridors.computeIfAbsent(worldKey(level), k -> new WorldCorridors());
+        synchronized (world) {
+            if (world.corridors.containsKey(key)) {
+                return; // 已预留（例如重复入队）
+            }
+            world.corridors.put(key, new Corridor(connection, chunks));
+            world.index(key, chunks);
+        }
+        ChunkRoadStateManager.markChunksPendingRoad(level, toChunkPositions(chunks));
+        LOGGER.debug("🛣️ Reserved corridor of {} chunks for {} -> {}", chunks.size(), connection.from(), connection.to());
+    }
+
+    /**
+     * 精确路径已知时调用：走廊收缩为路径覆盖的区块
+     * 走廊外的路径区块补充持有，走廊内路径未经过的区块释放；
+     * 之后路径区块各保留一个持有，由流水线的释放阶段统一释放
+     */
+    public static void refine(ServerLevel level, Records.StructureConnection connection, Set<ChunkPos> pathChunks) {
+        Corridor corridor = remove(level, connection);
+        LongOpenHashSet reserved = corridor != null ? corridor.chunks : new LongOpenHashSet();
+
+        List<ChunkPos> toHold = new ArrayList<>();
+        LongOpenHashSet accurate = new LongOpenHashSet(pathChunks.size());
+        for (ChunkPos pos : pathChunks) {
+            long chunk = pos.toLong();
+            accurate.add(chunk);
+            if (!reserved.contains(chunk)) {
+                toHold.add(pos);
+            }
+        }
+        List<ChunkPos> toRelease = new ArrayList<>();
+        for (long chunk : reserved) {
+            if (!accurate.contains(chunk)) {
+                toRelease.add(new ChunkPos(chunk));
+            }
+        }
+        ChunkRoadStateManager.markChunksPendingRoad(level, toHold);
+        ChunkRoadStateManager.markChunksRoadProcessed(level, toRelease);
+    }
+
+    /**
+     * 寻路失败或放弃时调用：释放整条走廊
+     */
+    public static void cancel(ServerLevel level, Records.StructureConnection connection) {
+        Corridor corridor = remove(level, connection);
+        if (corridor != null) {
+            ChunkRoadStateManager.markChunksRoadProcessed(level, toChunkPositions(corridor.chunks));
+        }
+    }
+
+    /**
+     * 玩家请求了被扣留的区块：经过该区块、仍在排队的连接提前寻路
+     */
+    public static void onChunkDemanded(ServerLevel level, long chunkKey) {
+        WorldCorridors world = worldCorridors.get(worldKey(level));
+        if (world == null) return;
+
+        List<Records.StructureConnection> boosted = new ArrayList<>(1);
+        synchronized (world) {
+            List<CorridorKey> keys = world.byChunk.get(chunkKey);
+            if (keys == null) return;
+            for (CorridorKey key : keys) {
+                Corridor corridor = world.corridors.get(key);
+                if (corridor != null) {
+                    boosted.add(corridor.connection);
+                }
+            }
+        }
+        for (Records.StructureConnection connection : boosted) {
+            StructureConnector.prioritize(level, connection);
+        }
+    }
+
+    /**
+     * 清理世界的所有走廊（世界卸载时调用，区块持有由 ChunkRoadStateManager.clearWorld 一并放行）
+     */
+    public static void clearWorld(ServerLevel level) {
+        worldCorridors.remove(worldKey(level));
+    }
+
+    private static Corridor remove(ServerLevel level, Records.StructureConnection connection) {
+        WorldCorridors world = worldCorridors.get(worldKey(level));
+        if (world == null) return null;
+        CorridorKey key = CorridorKey.of(connection);
+        synchronized (world) {
+            Corridor corridor = world.corridors.remove(key);
+            if (corridor != null) {
+                world.unindex(key, corridor.chunks);
+            }
+            return corridor;
+        }
+    }
+
+    /**
+     * 沿直线每半个区块采样一次，收集采样点周围 CORRIDOR_MARGIN_CHUNKS 范围内的区块
+     */
+    private static LongOpenHashSet computeCorridor(BlockPos from, BlockPos to) {
+        LongOpenHashSet chunks = new LongOpenHashSet();
+        double dx = to.getX() - from.getX();
+        double dz = to.getZ() - from.getZ();
+        int samples = Math.max(1, (int) Math.ceil(Math.sqrt(dx * dx + dz * dz) / 8.0));
+        for (int i = 0; i <= samples; i++) {
+            double t = (double) i / samples;
+            int chunkX = ((int) Math.floor(from.getX() + dx * t)) >> 4;
+            int chunkZ = ((int) Math.floor(from.getZ() + dz * t)) >> 4;
+            for (int ox = -CORRIDOR_MARGIN_CHUNKS; ox <= CORRIDOR_MARGIN_CHUNKS; ox++) {
+                for (int oz = -CORRIDOR_MARGIN_CHUNKS; oz <= CORRIDOR_MARGIN_CHUNKS; oz++) {
+                    chunks.add(ChunkPos.asLong(chunkX + ox, chunkZ + oz));
+                }
+            }
+            if (chunks.size() > MAX_CORRIDOR_CHUNKS) {
+                break;
+            }
+        }
+        return chunks;
+    }
+
+    private static List<ChunkPos> toChunkPositions(LongOpenHashSet chunks) {
+        List<ChunkPos> positions = new ArrayList<>(chunks.size());
+        for (long chunk : chunks) {
+            positions.add(new ChunkPos(chunk));
+        }
+        return positions;
+    }
+}
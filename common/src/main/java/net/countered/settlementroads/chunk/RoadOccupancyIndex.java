@@ -0,0 +1,103 @@
+package net.countered.settlementroads.chunk;
+
+import net.countered.settlementroads.helpers.CompactRoadSegments;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 道路区块占用索引
+ *
+ * RoadFeature 被注入到所有生物群系，每个生成的区块都会调用 place()，但只有极少数区块有道路。
+ * 本索引按区域（32x32 区块）保存一个 1024 位的位图，标记含有道路段中点的区块，
+ * place() 据此对无道路的区块立即返回。
+ * - 区域按需创建，适用于无边界的世界；位图只增不减（道路不会被删除）
+ * - 首次查询时从已持久化的道路列表构建，之后每条新道路持久化时追加
+ * - 读取无锁，可在世界生成线程中调用
+ */
+public final class RoadOccupancyIndex {
+
+    private static final int REGION_SHIFT = 5;
+    private static final int REGION_MASK = (1 << REGION_SHIFT) - 1;
+    private static final int WORDS_PER_REGION = (1 << (REGION_SHIFT * 2)) / 64;
+
+    // 包内可见，供单元测试直接验证位运算
+    static final class WorldIndex {
+        private final Map<Long, AtomicLongArray> regions = new ConcurrentHashMap<>();
+
+        void mark(int chunkX, int chunkZ) {
+            long regionKey = ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT);
+            AtomicLongArray bits = regions.computeIfAbsent(regionKey, k -> new AtomicLongArray(WORDS_PER_REGION));
+            int bit = bitIndex(chunkX, chunkZ);
+            long mask = 1L << (bit & 63);
+            int word = bit >>> 6;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) return;
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+
+        boolean contains(int chunkX, int chunkZ) {
+            AtomicLongArray bits = regions.get(ChunkPos.asLong(chunkX >> REGION_SHIFT, chunkZ >> REGION_SHIFT));
+            if (bits == null) return false;
+            int bit = bitIndex(chunkX, chunkZ);
+            return (bits.get(bit >>> 6) & (1L << (bit & 63))) != 0;
+        }
+
+        static int bitIndex(int chunkX, int chunkZ) {
+            return ((chunkZ & REGION_MASK) << REGION_SHIFT) | (chunkX & REGION_MASK);
+        }
+    }
+
+    private static final Map<String, WorldIndex> worldIndexes = new ConcurrentHashMap<>();
+
+    private RoadOccupancyIndex() {}
+
+    private static WorldIndex index(ServerLevel level) {
+        return worldIndexes.computeIfAbsent(level.dimension().location().toString(), k -> {
+            WorldIndex index = new WorldIndex();
+            List<Records.RoadData> roads = WorldDataProvider.getInstance().getRoadDataList(level);
+            if (roads != null) {
+                for (Records.RoadData road : List.copyOf(roads)) {
+                    markRoad(index, road);
+                }
+            }
+            return index;
+        });
+    }
+
+    /**
+     * 区块内是否可能有道路（false 表示一定没有）
+     */
+    public static boolean mayContainRoad(ServerLevel level, ChunkPos pos) {
+        return index(level).contains(pos.x, pos.z);
+    }
+
+    /**
+     * 道路持久化后调用：标记道路经过的区块
+     */
+    public static void addRoad(ServerLevel level, Records.RoadData road) {
+        markRoad(index(level), road);
+    }
+
+    private static void markRoad(WorldIndex index, Records.RoadData road) {
+        CompactRoadSegments segments = road.segments();
+        for (int i = 0; i < segments.size(); i++) {
+            index.mark(segments.centerX(i) >> 4, segments.centerZ(i) >> 4);
+        }
+    }
+
+    /**
+     * 世界卸载时清理
+     */
+    public static void clearWorld(ServerLevel level) {
+        worldIndexes.remove(level.dimension().location().toString());
+    }
+}
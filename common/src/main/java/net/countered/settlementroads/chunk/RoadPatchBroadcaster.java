@@ -0,0 +1,211 @@
+package net.countered.settlementroads.chunk;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.shorts.ShortIterator;
+import it.unimi.dsi.fastutil.shorts.ShortOpenHashSet;
+import it.unimi.dsi.fastutil.shorts.ShortSet;
+import net.countered.settlementroads.config.ConfigProvider;
+import net.countered.settlementroads.config.IModConfig;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.SectionPos;
+import net.minecraft.network.protocol.Packet;
+import net.minecraft.network.protocol.game.ClientboundSectionBlocksUpdatePacket;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.level.ServerPlayer;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 先发送后补丁模式（sendThenPatch）的道路方块推送器
+ *
+ * 区块不再被扣留，而是立即发送；之后写入已加载区块的道路方块通过本类推送：
+ * 1. 变更按区块分段（SectionPos）合并，一个分段只发送一个 ClientboundSectionBlocksUpdatePacket
+ * 2. 每个玩家有独立的待发送队列，每 tick 最多发送 patchSectionsPerPlayerPerTick 个分段
+ * 3. 数据包在发送时根据分段当前状态构建，因此排队期间的多次修改只发送最终结果
+ */
+public final class RoadPatchBroadcaster {
+
+    /**
+     * 单个维度的待推送变更（所有访问都在 synchronized(this) 中进行）
+     */
+    private static final class WorldPatches {
+        private final ServerLevel level;
+        // 本 tick 新产生的变更：分段 → 分段内相对坐标
+        private Long2ObjectOpenHashMap<ShortSet> dirtySections = new Long2ObjectOpenHashMap<>();
+
+        private WorldPatches(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    /**
+     * 单个玩家的待发送分段（按加入顺序发送）
+     */
+    private static final class PlayerPatches {
+        private final ServerLevel level;
+        private final Long2ObjectLinkedOpenHashMap<ShortSet> sections = new Long2ObjectLinkedOpenHashMap<>();
+
+        private PlayerPatches(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    private static final Map<String, WorldPatches> worldPatches = new ConcurrentHashMap<>();
+    private static final Map<UUID, PlayerPatches> playerPatches = new HashMap<>();
+
+    private RoadPatchBroadcaster() {}
+
+    /**
+     * 当前是否处于先发送后补丁模式
+     * 区块放行后才完成的道路只能由补铺器写入并推送，补铺关闭（retroPavingBudgetMs 为 0）时退回扣留区块的模式
+     */
+    public static boolean isEnabled() {
+        IModConfig cfg = ConfigProvider.get();
+        return cfg.sendThenPatch() && cfg.retroPavingBudgetMs() > 0;
+    }
+
+    /**
+     * 记录一个已变更的方块（任意线程可调用）
+     */
+    public static void markChanged(ServerLevel level, BlockPos pos) {
+        WorldPatches world = worldPatches.computeIfAbsent(level.dimension().location().toString(), k -> new WorldPatches(level));
+        synchronized (world) {
+            world.dirtySections.computeIfAbsent(SectionPos.asLong(pos), k -> new ShortOpenHashSet())
+                .add(SectionPos.sectionRelativePos(pos));
+        }
+    }
+
+    /**
+     * 批量记录已变更的方块
+     */
+    public static void markChanged(ServerLevel level, Collection<BlockPos> positions) {
+        if (positions.isEmpty()) return;
+        WorldPatches world = worldPatches.computeIfAbsent(level.dimension().location().toString(), k -> new WorldPatches(level));
+        synchronized (world) {
+            for (BlockPos pos : positions) {
+                world.dirtySections.computeIfAbsent(SectionPos.asLong(pos), k -> new ShortOpenHashSet())
+                    .add(SectionPos.sectionRelativePos(pos));
+            }
+        }
+    }
+
+    /**
+     * 每个服务器 tick 调用（主线程）：分发新变更并按玩家限速发送
+     */
+    public static void tick(MinecraftServer server) {
+        if (!worldPatches.isEmpty()) {
+            for (WorldPatches world : worldPatches.values()) {
+                distribute(world);
+            }
+        }
+        if (playerPatches.isEmpty()) {
+            return;
+        }
+
+        int budget = Math.max(1, ConfigProvider.get().patchSectionsPerPlayerPerTick());
+        Iterator<Map.Entry<UUID, PlayerPatches>> it = playerPatches.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, PlayerPatches> entry = it.next();
+            ServerPlayer player = server.getPlayerList().getPlayer(entry.getKey());
+            PlayerPatches patches = entry.getValue();
+            if (player == null || player.serverLevel() != patches.level) {
+                it.remove(); // 玩家离线或切换维度，重新加载区块时会收到完整数据
+                continue;
+            }
+            sendBudgeted(player, patches, budget);
+            if (patches.sections.isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * 将维度内的新变更分发到正在追踪对应区块的玩家队列中（同一分段合并）
+     */
+    private static void distribute(WorldPatches world) {
+        Long2ObjectOpenHashMap<ShortSet> dirty;
+        synchronized (world) {
+            if (world.dirtySections.isEmpty()) return;
+            dirty = world.dirtySections;
+            world.dirtySections = new Long2ObjectOpenHashMap<>();
+        }
+
+        for (ObjectIterator<Long2ObjectMap.Entry<ShortSet>> it = dirty.long2ObjectEntrySet().fastIterator(); it.hasNext(); ) {
+            Long2ObjectMap.Entry<ShortSet> entry = it.next();
+            long sectionKey = entry.getLongKey();
+            ChunkPos chunkPos = new ChunkPos(SectionPos.x(sectionKey), SectionPos.z(sectionKey));
+            for (ServerPlayer player : world.level.getChunkSource().chunkMap.getPlayers(chunkPos, false)) {
+                PlayerPatches patches = playerPatches.computeIfAbsent(player.getUUID(), k -> new PlayerPatches(world.level));
+                ShortSet queued = patches.sections.get(sectionKey);
+                if (queued == null) {
+                    patches.sections.put(sectionKey, new ShortOpenHashSet(entry.getValue()));
+                } else {
+                    queued.addAll(entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static void sendBudgeted(ServerPlayer player, PlayerPatches patches, int budget) {
+        ServerLevel level = patches.level;
+        int sent = 0;
+        while (sent < budget && !patches.sections.isEmpty()) {
+            long sectionKey = patches.sections.firstLongKey();
+            ShortSet positions = patches.sections.removeFirst();
+            SectionPos sectionPos = SectionPos.of(sectionKey);
+            LevelChunk chunk = level.getChunkSource().getChunkNow(sectionPos.x(), sectionPos.z());
+            if (chunk == null) {
+                continue; // 区块已卸载，重新加载时会发送完整数据
+            }
+            int sectionIndex = chunk.getSectionIndexFromSectionY(sectionPos.y());
+            if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) {
+                continue;
+            }
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            player.connection.send(new ClientboundSectionBlocksUpdatePacket(sectionPos, positions, section));
+            sendBlockEntities(player, chunk, sectionPos, positions);
+            sent++;
+        }
+    }
+
+    /**
+     * 方块实体（例如告示牌文字）需要单独同步
+     */
+    private static void sendBlockEntities(ServerPlayer player, LevelChunk chunk, SectionPos sectionPos, ShortSet positions) {
+        for (ShortIterator it = positions.iterator(); it.hasNext(); ) {
+            BlockPos pos = sectionPos.relativeToBlockPos(it.nextShort());
+            BlockEntity blockEntity = chunk.getBlockEntity(pos);
+            if (blockEntity != null) {
+                Packet<?> packet = blockEntity.getUpdatePacket();
+                if (packet != null) {
+                    player.connection.send(packet);
+                }
+            }
+        }
+    }
+
+    /**
+     * 清理世界的待推送变更（世界卸载时调用）
+     */
+    public static void clearWorld(ServerLevel level) {
+        worldPatches.remove(level.dimension().location().toString());
+        playerPatches.values().removeIf(patches -> patches.level == level);
+    }
+
+    /**
+     * 服务器停止时清理
+     */
+    public static void clear() {
+        worldPatches.clear();
+        playerPatches.clear();
+    }
+}
@@ -6,10 +6,18 @@ public interface IModConfig {
     // Structures
     List<String> structuresToLocate();
     int structureSearchRadius();
+    boolean batchNetworkPlanning();
+    boolean plannerAddLoops();
+    int multiTargetCandidates();
 
     // Pre-generation
     int initialLocatingCount();
     int maxConcurrentRoadGeneration();
+    int minConcurrentRoadGeneration();
+    int roadWorkerThreads();
+    boolean sendThenPatch();
+    int patchSectionsPerPlayerPerTick();
+    int retroPavingBudgetMs();
     int structureSearchTriggerDistance();
 
     // Roads
@@ -24,9 +32,14 @@ public interface IModConfig {
     int structureDistanceFromRoad();
     int maxHeightDifference();
     int maxTerrainStability();
+    boolean routeOntoNetwork();
+    int thresholdRelaxationSteps();
+    int pathSearchEpsilon();
+    boolean anytimePathSearch();
 
     // 手动连接时更激进的阈值
     int manualMaxHeightDifference();
     int manualMaxTerrainStability();
     boolean manualIgnoreWater();
+    int coarseRoutingDistance();
 }
@@ -6,10 +6,20 @@ import net.countered.settlementroads.config.ConfigProvider;
 import net.countered.settlementroads.config.IModConfig;
 import net.countered.settlementroads.features.RoadFeature;
 import net.countered.settlementroads.features.config.RoadFeatureConfig;
+import net.countered.settlementroads.features.decoration.BlockEntityPostProcessor;
+import net.countered.settlementroads.features.decoration.RoadPlacementRules;
+import net.countered.settlementroads.features.decoration.util.StructureTemplateCache;
+import net.countered.settlementroads.features.decoration.util.WoodSelector;
 import net.countered.settlementroads.features.roadlogic.Road;
 import net.countered.settlementroads.features.roadlogic.RoadPathCalculator;
+import net.countered.settlementroads.features.roadlogic.RoadPaver;
+import net.countered.settlementroads.features.roadlogic.RoadPipeline;
 import net.countered.settlementroads.helpers.Records;
 import net.countered.settlementroads.helpers.StructureConnector;
+import net.countered.settlementroads.helpers.async.RoadConcurrencyController;
+import net.countered.settlementroads.helpers.async.RoadScheduler;
+import net.countered.settlementroads.helpers.async.RoadThroughputTracker;
+import net.countered.settlementroads.helpers.async.RoadWorkerPool;
 import net.countered.settlementroads.helpers.async.ThrottledStructureLocator;
 import net.countered.settlementroads.persistence.WorldDataProvider;
 import net.minecraft.core.registries.Registries;
@@ -25,7 +35,6 @@ import org.slf4j.LoggerFactory;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
-import java.util.concurrent.*;
 
 
 /**
@@ -34,47 +43,77 @@ import java.util.concurrent.*;
  */
 public class ModEventHandler {
 
-    private static final int THREAD_COUNT = 128;
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
-    private static ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
-    private static final ConcurrentHashMap<String, Future<?>> runningTasks = new ConcurrentHashMap<>();
-    
-    // 添加初始化延迟机制
-    private static final ConcurrentHashMap<String, Integer> worldInitDelay = new ConcurrentHashMap<>();
-    private static final int INIT_DELAY_TICKS = 100; // 5秒延迟，确保注册表完全加载
+    private static final int MAX_PATH_STEPS = 5000;
+
+    // 已解析的道路特性配置，注册表重新加载前复用，避免每个 tick 查询注册表
+    private static volatile RoadFeatureConfig cachedRoadConfig = null;
+
+    /**
+     * 标签绑定完成后由平台调用（Forge TagsUpdatedEvent / Fabric CommonLifecycleEvents.TAGS_LOADED）：
+     * 失效依赖标签的缓存，下次查询时按新标签重建
+     */
+    public static void onTagsUpdated() {
+        RoadPlacementRules.invalidate();
+        WoodSelector.invalidate();
+    }
 
     public static void register() {
         WorldDataProvider dataProvider = WorldDataProvider.getInstance();
 
+        // 数据包重新加载时清空装饰结构模板缓存
+        StructureTemplateCache.registerReloadListener();
+
+        // 事件驱动调度：仅在连接入队、任务完成或注册表就绪时派发道路
+        RoadScheduler.setDispatcher(level -> tryGenerateNewRoads(level, true, MAX_PATH_STEPS));
+
         // 世界加载
         LifecycleEvent.SERVER_LEVEL_LOAD.register(ModEventHandler::onWorldLoad);
 
+        // 服务器启动完成：注册表已就绪，开始道路调度
+        LifecycleEvent.SERVER_STARTED.register(RoadScheduler::markReady);
+
         // 世界卸载
         LifecycleEvent.SERVER_LEVEL_UNLOAD.register(level -> {
             if (!level.dimension().equals(Level.OVERWORLD)) return;
-            String worldKey = level.dimension().location().toString();
-            Future<?> task = runningTasks.remove(worldKey);
-            if (task != null && !task.isDone()) {
-                task.cancel(true);
-                LOGGER.debug("Aborted running road task for world: {}", level.dimension().location());
-            }
-            // 清理延迟计数器和队列
-            worldInitDelay.remove(worldKey);
+            RoadPipeline.cancelWorld(level);
+            // 清理推迟的调度和队列
+            RoadScheduler.clearWorld(level);
+            invalidateRoadFeatureConfig();
             StructureConnector.clearQueueForWorld(level);
             
-            // 🧹 清理区块道路状态
+            // 🧹 清理预测走廊与区块道路状态
+            net.countered.settlementroads.chunk.CorridorGate.clearWorld(level);
             net.countered.settlementroads.chunk.ChunkRoadStateManager.clearWorld(level);
+            net.countered.settlementroads.chunk.RoadPatchBroadcaster.clearWorld(level);
+            net.countered.settlementroads.chunk.RoadOccupancyIndex.clearWorld(level);
+            net.countered.settlementroads.features.roadlogic.RoadNetwork.clearWorld(level);
         });
 
-        // 服务器 Tick（遍历所有世界）
+        // 服务器 Tick：道路派发由 RoadScheduler 事件驱动，这里只处理限流搜寻与健康评估
         TickEvent.SERVER_PRE.register(server -> {
-            for (ServerLevel level : server.getAllLevels()) {
-                if (level.dimension().equals(Level.OVERWORLD)) {
-                    // 处理限流结构搜寻队列
-                    ThrottledStructureLocator.tickProcess(level);
-                    // 尝试生成新道路
-                    tryGenerateNewRoads(level, true, 5000);
-                }
+            ServerLevel overworld = server.overworld();
+            // 处理限流结构搜寻队列（队列为空时立即返回）
+            ThrottledStructureLocator.tickProcess(overworld);
+            // 重试被推迟的调度（没有推迟请求时无开销）
+            RoadScheduler.tick();
+            // 推送先发送后补丁模式下的道路方块变更（无待推送变更时无开销）
+            net.countered.settlementroads.chunk.RoadPatchBroadcaster.tick(server);
+            // 向道路完成前已生成的区块补铺（无任务时无开销）
+            RoadPaver.tick(server);
+            // 按区块批量写入装饰的方块实体数据（无待处理数据时无开销）
+            BlockEntityPostProcessor.tick(server);
+
+            // 空闲时（无积压、无运行中的道路）跳过健康评估
+            Queue<Records.StructureConnection> queue = StructureConnector.getQueueForWorld(overworld);
+            if (queue.isEmpty() && RoadPipeline.getInFlightCount() == 0) {
+                return;
+            }
+            int previousLimit = RoadConcurrencyController.getLimit();
+            RoadConcurrencyController.tick(server, queue::size);
+            if (RoadConcurrencyController.getLimit() > previousLimit) {
+                // 并发上限提高，立即填充新增的槽位
+                RoadScheduler.wake(overworld);
             }
         });
 
@@ -86,27 +125,43 @@ public class ModEventHandler {
             ThrottledStructureLocator.shutdown();
             
             // 清理道路生成相关资源
-            RoadPathCalculator.heightCache.clear();
-            runningTasks.values().forEach(future -> future.cancel(true));
-            runningTasks.clear();
-            executor.shutdownNow();
+            RoadPathCalculator.clearHeightCache();
+            invalidateRoadFeatureConfig();
+            RoadThroughputTracker.reset();
+            RoadConcurrencyController.reset();
+            RoadScheduler.reset();
+            net.countered.settlementroads.chunk.RoadPatchBroadcaster.clear();
+            // 取消寻路并等待其退出，处理完已寻路完成的道路，确保在保存前写入世界数据
+            RoadPipeline.shutdown();
+            RoadWorkerPool.shutdown();
+            // 未写入的方块实体数据转为装饰片段，再写入补铺进度（在世界保存之前）
+            BlockEntityPostProcessor.shutdown();
+            RoadPaver.shutdown();
             
             LOGGER.info("RoadWeaver: Shutdown completed");
         });
     }
 
     private static void onWorldLoad(ServerLevel level) {
-        restartExecutorIfNeeded();
+        RoadWorkerPool.ensureStarted();
+        RoadPipeline.start();
         if (!level.dimension().equals(Level.OVERWORLD)) return;
 
-        // 初始化世界延迟计数器，确保注册表完全加载后再开始生成
+        // 道路生成在服务器启动完成（注册表就绪）后由 RoadScheduler 触发
         String worldKey = level.dimension().location().toString();
-        worldInitDelay.put(worldKey, INIT_DELAY_TICKS);
-        LOGGER.info("RoadWeaver: 世界 {} 已加载，将在 {} ticks 后开始道路生成", worldKey, INIT_DELAY_TICKS);
+        invalidateRoadFeatureConfig();
+        if (RoadScheduler.isReady()) {
+            LOGGER.info("RoadWeaver: 世界 {} 已加载，开始道路生成", worldKey);
+        } else {
+            LOGGER.info("RoadWeaver: 世界 {} 已加载，将在服务器启动完成后开始道路生成", worldKey);
+        }
 
         WorldDataProvider dataProvider = WorldDataProvider.getInstance();
         Records.StructureLocationData structureLocationData = dataProvider.getStructureLocations(level);
 
+        // 恢复未完成的补铺任务
+        RoadPaver.restore(level);
+
         // 恢复未完成的道路生成任务
         restoreUnfinishedRoads(level);
 
@@ -118,7 +173,8 @@ public class ModEventHandler {
             int toLocate = targetCount - currentCount;
             LOGGER.info("🌍 Initializing world with {} structures (current: {}, target: {})", 
                 toLocate, currentCount, targetCount);
-            LOGGER.info("Using throttled search (max 1 per tick) to avoid server lag");
+            LOGGER.info("Using throttled search (adaptive, max {} per tick) to avoid server lag",
+                RoadConcurrencyController.getStructureScansPerTick());
             
             // 使用异步方式搜寻结构，避免阻塞主线程
             for (int i = 0; i < toLocate; i++) {
@@ -129,100 +185,85 @@ public class ModEventHandler {
         }
     }
 
+    /**
+     * 填满空闲的道路生成槽位（由 RoadScheduler 在主线程中调用）
+     */
     private static void tryGenerateNewRoads(ServerLevel level, Boolean async, int steps) {
-        String worldKey = level.dimension().location().toString();
-        
-        // 检查初始化延迟
-        Integer delayTicks = worldInitDelay.get(worldKey);
-        if (delayTicks != null) {
-            if (delayTicks > 0) {
-                worldInitDelay.put(worldKey, delayTicks - 1);
-                return; // 还在延迟期内，跳过本次生成
-            } else {
-                // 延迟结束，移除计数器
-                worldInitDelay.remove(worldKey);
-                LOGGER.info("RoadWeaver: 世界 {} 初始化延迟结束，开始道路生成", worldKey);
-            }
+        // 并发上限检查（由自适应控制器根据服务器健康状况决定）
+        int concurrencyLimit = RoadConcurrencyController.getLimit();
+        int currentRunning = RoadPipeline.getInFlightCount();
+        if (currentRunning >= concurrencyLimit) {
+            return;
         }
-        
-        IModConfig config = ConfigProvider.get();
-        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
 
-        // 清理已完成的任务（包括异常终止的）
-        runningTasks.entrySet().removeIf(entry -> {
-            Future<?> future = entry.getValue();
-            if (future.isDone()) {
-                try {
-                    future.get(); // 检查是否有异常
-                } catch (Exception e) {
-                    LOGGER.warn("Task {} completed with error: {}", entry.getKey(), e.getMessage());
-                }
-                return true;
-            }
-            return false;
-        });
-
-        // 并发上限检查
-        int currentRunning = runningTasks.size();
-        if (currentRunning >= config.maxConcurrentRoadGeneration()) {
+        // 背压：烘焙/持久化/释放阶段拥塞时暂停派发
+        if (RoadPipeline.isBackpressured()) {
             return;
         }
 
         Queue<Records.StructureConnection> queue = StructureConnector.getQueueForWorld(level);
-        if (!queue.isEmpty()) {
-            // 仅窥视队列，确保在资源未就绪时不丢弃任务
-            Records.StructureConnection structureConnection = queue.peek();
+        if (queue.isEmpty()) {
+            return;
+        }
+
+        // 增强的注册表检查（结果缓存到注册表重新加载为止）
+        final RoadFeatureConfig roadConfig = getRoadFeatureConfig(level);
+        if (roadConfig == null) {
+            // 注册表未就绪，推迟到下一个 tick
+            LOGGER.debug("RoadWeaver: 注册表未就绪，等待下一个 tick（队列大小: {}）",
+                queue.size());
+            RoadScheduler.deferToNextTick(level);
+            return;
+        }
+
+        // 一次性填满所有空闲槽位，而不是每个 tick 只派发一个任务
+        int freeSlots = concurrencyLimit - currentRunning;
+        List<Records.StructureConnection> batch = new ArrayList<>(freeSlots);
+        while (batch.size() < freeSlots) {
+            Records.StructureConnection structureConnection = queue.poll();
             if (structureConnection == null) {
-                return; // 并发情况下可能为 null
+                break; // 队列已空（并发情况下也可能为 null）
             }
-            
-            // 增强的注册表检查
-            final RoadFeatureConfig roadConfig = getRoadFeatureConfig(level);
-            if (roadConfig == null) {
-                // 注册表未就绪，等待下一个 tick
-                LOGGER.debug("RoadWeaver: 注册表未就绪，等待下一个 tick（队列大小: {}）", 
-                    queue.size());
-                return;
+            batch.add(structureConnection);
+            LOGGER.info("🚧 Starting road generation: {} -> {} (running: {}/{}, queue: {})",
+                structureConnection.from(), structureConnection.to(),
+                currentRunning + batch.size(), concurrencyLimit,
+                queue.size());
+        }
+
+        if (async) {
+            // 交给流水线：规划（批量）→ 寻路 → 烘焙 → 持久化 → 释放区块
+            RoadPipeline.dispatch(level, batch, roadConfig, steps);
+        } else {
+            for (Records.StructureConnection structureConnection : batch) {
+                RoadThroughputTracker.recordDispatched();
+                runRoad(level, structureConnection, roadConfig, steps);
             }
+        }
+    }
 
-            // 现在确认资源可用，再真正弹出队列并开始任务
-            queue.poll();
-            LOGGER.info("🚧 Starting road generation: {} -> {} (running: {}/{}, queue: {})", 
-                structureConnection.from(), structureConnection.to(), 
-                currentRunning + 1, config.maxConcurrentRoadGeneration(),
-                queue.size());
-            if (async) {
-                String taskId = level.dimension().location().toString() + "_" + System.nanoTime();
-                Future<?> future = executor.submit(() -> {
-                    try {
-                        LOGGER.debug("🔨 Generating road: {} -> {}", 
-                            structureConnection.from(), structureConnection.to());
-                        new Road(level, structureConnection, roadConfig).generateRoad(steps);
-                        LOGGER.info("✅ Road generation completed: {} -> {}", 
-                            structureConnection.from(), structureConnection.to());
-                    } catch (Exception e) {
-                        LOGGER.error("❌ Error generating road {} -> {}: {}", 
-                            structureConnection.from(), structureConnection.to(), 
-                            e.getMessage(), e);
-                        
-                        // 异常时标记为 FAILED，避免重试
-                        try {
-                            markConnectionAsFailed(level, structureConnection);
-                        } catch (Exception ex) {
-                            LOGGER.error("Failed to mark connection as failed", ex);
-                        }
-                    } finally {
-                        runningTasks.remove(taskId);
-                    }
-                });
-                runningTasks.put(taskId, future);
+    private static void runRoad(ServerLevel level, Records.StructureConnection structureConnection,
+                                RoadFeatureConfig roadConfig, int steps) {
+        try {
+            if (new Road(level, structureConnection, roadConfig).generateRoad(steps)) {
+                RoadThroughputTracker.recordCompleted();
+                LOGGER.info("✅ Road generation completed: {} -> {} (throughput: {} roads/min)",
+                    structureConnection.from(), structureConnection.to(),
+                    String.format("%.1f", RoadThroughputTracker.getRoadsPerMinute()));
             } else {
-                try {
-                    new Road(level, structureConnection, roadConfig).generateRoad(steps);
-                } catch (Exception e) {
-                    LOGGER.error("❌ Error generating road: {}", e.getMessage(), e);
-                    markConnectionAsFailed(level, structureConnection);
-                }
+                RoadThroughputTracker.recordFailed();
+            }
+        } catch (Exception e) {
+            RoadThroughputTracker.recordFailed();
+            LOGGER.error("❌ Error generating road {} -> {}: {}",
+                structureConnection.from(), structureConnection.to(),
+                e.getMessage(), e);
+
+            // 异常时标记为 FAILED，避免重试
+            try {
+                markConnectionAsFailed(level, structureConnection);
+            } catch (Exception ex) {
+                LOGGER.error("Failed to mark connection as failed", ex);
             }
         }
     }
@@ -233,6 +274,25 @@ public class ModEventHandler {
      * @return 配置对象，如果注册表未就绪则返回 null
      */
     private static RoadFeatureConfig getRoadFeatureConfig(ServerLevel level) {
+        RoadFeatureConfig cached = cachedRoadConfig;
+        if (cached != null) {
+            return cached;
+        }
+        RoadFeatureConfig resolved = resolveRoadFeatureConfig(level);
+        if (resolved != null) {
+            cachedRoadConfig = resolved;
+        }
+        return resolved;
+    }
+
+    /**
+     * 使缓存的道路特性配置失效（世界加载/卸载、服务器停止时调用）
+     */
+    public static void invalidateRoadFeatureConfig() {
+        cachedRoadConfig = null;
+    }
+
+    private static RoadFeatureConfig resolveRoadFeatureConfig(ServerLevel level) {
         try {
             // 检查注册表是否可用
             if (level.registryAccess() == null) {
@@ -302,13 +362,6 @@ public class ModEventHandler {
         }
     }
 
-    private static void restartExecutorIfNeeded() {
-        if (executor.isShutdown() || executor.isTerminated()) {
-            executor = Executors.newFixedThreadPool(THREAD_COUNT);
-            LOGGER.debug("RoadWeaver: ExecutorService restarted.");
-        }
-    }
-
     /**
      * 恢复未完成的道路生成任务
      * 在世界加载时调用，将所有 PLANNED 和 GENERATING 状态的连接重新加入队列
@@ -338,11 +391,11 @@ public class ModEventHandler {
                             connection.manual()
                     );
                     updatedConnections.set(i, resetConnection);
-                    StructureConnector.getQueueForWorld(level).add(resetConnection);
+                    StructureConnector.enqueue(level, resetConnection);
                     needsUpdate = true;
                 } else {
                     // PLANNED 状态直接加入队列
-                    StructureConnector.getQueueForWorld(level).add(connection);
+                    StructureConnector.enqueue(level, connection);
                 }
                 restoredCount++;
             }
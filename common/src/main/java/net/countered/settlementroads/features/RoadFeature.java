@@ -1,11 +1,15 @@
 package net.countered.settlementroads.features;
 
 import com.mojang.serialization.Codec;
+import net.countered.settlementroads.chunk.RoadOccupancyIndex;
 import net.countered.settlementroads.config.ConfigProvider;
 import net.countered.settlementroads.config.IModConfig;
 import net.countered.settlementroads.features.config.RoadFeatureConfig;
 import net.countered.settlementroads.features.decoration.*;
+import net.countered.settlementroads.features.roadlogic.RoadNetwork;
 import net.countered.settlementroads.features.roadlogic.RoadPathCalculator;
+import net.countered.settlementroads.features.roadlogic.RoadSurfaceWriter;
+import net.countered.settlementroads.helpers.CompactRoadSegments;
 import net.countered.settlementroads.helpers.Records;
 import net.countered.settlementroads.helpers.StructureConnector;
 import net.countered.settlementroads.persistence.WorldDataProvider;
@@ -15,7 +19,6 @@ import net.minecraft.core.registries.Registries;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.resources.ResourceLocation;
 import net.minecraft.server.level.ServerLevel;
-import net.minecraft.tags.BlockTags;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.WorldGenLevel;
@@ -23,7 +26,6 @@ import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
-import net.minecraft.world.level.levelgen.Heightmap;
 import net.minecraft.world.level.levelgen.feature.ConfiguredFeature;
 import net.minecraft.world.level.levelgen.feature.Feature;
 import net.minecraft.world.level.levelgen.feature.FeaturePlaceContext;
@@ -31,6 +33,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 通用道路特性（Common）。
@@ -40,15 +43,6 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
 
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
 
-    public static final Set<Block> dontPlaceHere = new HashSet<>();
-    static {
-        dontPlaceHere.add(Blocks.PACKED_ICE);
-        dontPlaceHere.add(Blocks.ICE);
-        dontPlaceHere.add(Blocks.BLUE_ICE);
-        dontPlaceHere.add(Blocks.TALL_SEAGRASS);
-        dontPlaceHere.add(Blocks.MANGROVE_ROOTS);
-    }
-
     public static int chunksForLocatingCounter = 1;
 
     // 供 Fabric 端注册/引用，Forge 端不强制使用
@@ -66,10 +60,24 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
     @Override
     public boolean place(FeaturePlaceContext<RoadFeatureConfig> context) {
         if (RoadPathCalculator.heightCache.size() > 100_000) {
-            RoadPathCalculator.heightCache.clear();
+            RoadPathCalculator.clearHeightCache();
         }
         WorldGenLevel level = context.level();
         ServerLevel serverLevel = (ServerLevel) level.getLevel();
+        ChunkPos currentChunk = new ChunkPos(context.origin());
+
+        // 结构搜寻计数器对每个生成的区块都要推进
+        tryFindNewStructureConnection(serverLevel);
+
+        // 🧩 相邻区块的装饰留给本区块的片段，在本区块的地物阶段写入
+        if (DecorationFragmentQueue.hasFragments(serverLevel, currentChunk)) {
+            DecorationFragmentQueue.apply(level, currentChunk, Block.UPDATE_ALL, null);
+        }
+
+        // ⚡ 快速路径：占用索引中没有道路的区块（绝大多数）立即返回
+        if (!RoadOccupancyIndex.mayContainRoad(serverLevel, currentChunk)) {
+            return false;
+        }
         WorldDataProvider dataProvider = WorldDataProvider.getInstance();
 
         Records.StructureLocationData structureLocationData = dataProvider.getStructureLocations(serverLevel);
@@ -85,16 +93,15 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
         }
         
         // 🔒 标记当前区块需要等待道路生成（如果有结构）
-        ChunkPos currentChunk = new ChunkPos(context.origin());
         if (!villageLocations.isEmpty()) {
             net.countered.settlementroads.chunk.ChunkRoadStateManager.markChunkPendingRoad(serverLevel, currentChunk);
         }
         
         try {
-            tryFindNewStructureConnection(villageLocations, serverLevel);
-            Set<Decoration> roadDecorationCache = new HashSet<>();
-            runRoadLogic(level, context, roadDecorationCache);
-            RoadStructures.tryPlaceDecorations(roadDecorationCache);
+            List<Records.RoadData> roadDataList = dataProvider.getRoadDataList(serverLevel);
+            if (roadDataList != null) {
+                paveChunk(level, currentChunk, roadDataList, context.random(), Block.UPDATE_ALL, null);
+            }
         } finally {
             // ✅ 完成后释放区块（即使出错也要释放）
             if (!villageLocations.isEmpty()) {
@@ -105,81 +112,98 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
         return true;
     }
 
-    private void tryFindNewStructureConnection(List<BlockPos> villageLocations, ServerLevel serverLevel) {
+    private void tryFindNewStructureConnection(ServerLevel serverLevel) {
         // 移除数量限制，改为基于距离的智能搜寻
         chunksForLocatingCounter++;
         int triggerDistance = ConfigProvider.get().structureSearchTriggerDistance();
         if (chunksForLocatingCounter > triggerDistance) {
             LOGGER.info("🔍 Triggering new structure search (counter reached {}), current structures: {}", 
-                triggerDistance, villageLocations.size());
+                triggerDistance, WorldDataProvider.getInstance().getStructureLocations(serverLevel).structureLocations().size());
             serverLevel.getServer().execute(() -> StructureConnector.cacheNewConnection(serverLevel, true));
             chunksForLocatingCounter = 1;
         }
     }
 
-    private void runRoadLogic(WorldGenLevel level, FeaturePlaceContext<RoadFeatureConfig> context, Set<Decoration> roadDecorationPlacementPositions) {
+    /**
+     * 在单个区块内铺设给定道路的路面与装饰
+     * 世界生成时由 {@link #place} 调用；道路晚于区块完成时由 RoadPaver 对已生成的区块调用
+     * @param flags 方块写入标志
+     * @param writeListener 方块写入监听，可为 null
+     */
+    public static void paveChunk(WorldGenLevel level, ChunkPos chunkPos, List<Records.RoadData> roadDataList,
+                                 RandomSource random, int flags, Consumer<BlockPos> writeListener) {
+        Set<Decoration> roadDecorationCache = new HashSet<>();
+        RoadSurfaceWriter writer = new RoadSurfaceWriter(level, flags, writeListener, chunkPos);
+        runRoadLogic(writer, level, chunkPos, roadDataList, random, roadDecorationCache);
+        // 路面一次性写入区块，装饰在路面写入之后放置
+        writer.flush();
+        for (Decoration decoration : roadDecorationCache) {
+            // 写入相邻区块的方块按所属区块拆分为片段
+            decoration.setOwnerChunk(chunkPos);
+            if (flags != Block.UPDATE_ALL || writeListener != null) {
+                decoration.setPlacementFlags(flags, writeListener);
+            }
+        }
+        RoadStructures.tryPlaceDecorations(roadDecorationCache);
+    }
+
+    private static void runRoadLogic(RoadSurfaceWriter writer, WorldGenLevel level, ChunkPos currentChunkPos,
+                                     List<Records.RoadData> roadDataList, RandomSource random,
+                                     Set<Decoration> roadDecorationPlacementPositions) {
         IModConfig config = ConfigProvider.get();
-        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
-        ServerLevel serverLevel = (ServerLevel) level.getLevel();
 
         int averagingRadius = config.averagingRadius();
-        List<Records.RoadData> roadDataList = dataProvider.getRoadDataList(serverLevel);
-        if (roadDataList == null) return;
-        ChunkPos currentChunkPos = new ChunkPos(context.origin());
 
-        Set<BlockPos> posAlreadyContainsSegment = new HashSet<>();
+        long currentChunkKey = currentChunkPos.toLong();
+        ServerLevel serverLevel = level.getLevel();
         for (Records.RoadData data : roadDataList) {
+            // 与之前的道路共享的路段已由之前的道路铺设（道路网络按提交顺序确定），支路铺到路口为止
+            RoadNetwork.Paving paving = RoadNetwork.paving(serverLevel, data);
             int roadType = data.roadType();
             List<BlockState> materials = data.materials();
-            List<Records.RoadSegmentPlacement> segmentList = data.roadSegmentList();
+            // 中心线与宽度位置直接从紧凑表示读取，不构建段对象
+            CompactRoadSegments segments = data.segments();
+            CompactRoadSegments.WidthCursor widthCursor = segments.widthCursor();
+            int segmentCount = segments.size();
 
-            List<BlockPos> middlePositions = segmentList.stream().map(Records.RoadSegmentPlacement::middlePos).toList();
             int segmentIndex = 0;
-            for (int i = 2; i < segmentList.size() - 2; i++) {
-                if (posAlreadyContainsSegment.contains(middlePositions.get(i))) continue;
+            for (int i = 2; i < segmentCount - 2; i++) {
+                if (paving != null && paving.covered().get(i)) continue;
                 segmentIndex++;
-                Records.RoadSegmentPlacement segment = segmentList.get(i);
-                BlockPos segmentMiddlePos = segment.middlePos();
                 // 靠近结构处不铺路
-                if (segmentIndex < 60 || segmentIndex > segmentList.size() - 60) continue;
-                ChunkPos middleChunkPos = new ChunkPos(segmentMiddlePos);
-                if (!middleChunkPos.equals(currentChunkPos)) continue;
+                if (paving != null ? !paving.paved().get(i) : !RoadNetwork.clearOfStructures(segmentIndex, segmentCount)) continue;
+                int middleX = segments.centerX(i);
+                int middleZ = segments.centerZ(i);
+                if (ChunkPos.asLong(middleX >> 4, middleZ >> 4) != currentChunkKey) continue;
 
-                BlockPos prevPos = middlePositions.get(i - 2);
-                BlockPos nextPos = middlePositions.get(i + 2);
-                List<Double> heights = new ArrayList<>();
+                int heightSum = 0;
+                int heightCount = 0;
                 for (int j = i - averagingRadius; j <= i + averagingRadius; j++) {
-                    if (j >= 0 && j < middlePositions.size()) {
-                        BlockPos samplePos = middlePositions.get(j);
-                        double y = level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, samplePos.getX(), samplePos.getZ());
-                        heights.add(y);
+                    if (j >= 0 && j < segmentCount) {
+                        heightSum += writer.getHeight(segments.centerX(j), segments.centerZ(j));
+                        heightCount++;
                     }
                 }
 
-                int averageY = (int) Math.round(heights.stream().mapToDouble(Double::doubleValue).average().orElse(segmentMiddlePos.getY()));
-                BlockPos averagedPos = new BlockPos(segmentMiddlePos.getX(), averageY, segmentMiddlePos.getZ());
+                int averageY = heightCount > 0 ? (int) Math.round(heightSum / (double) heightCount) : segments.centerY(i);
+                BlockPos averagedPos = new BlockPos(middleX, averageY, middleZ);
 
-                RandomSource random = context.random();
                 if (!config.placeWaypoints()) {
-                    for (BlockPos widthBlock : segment.positions()) {
-                        BlockPos correctedYPos = new BlockPos(widthBlock.getX(), averageY, widthBlock.getZ());
-                        placeOnSurface(level, correctedYPos, materials, roadType, random);
+                    widthCursor.reset(i);
+                    while (widthCursor.next()) {
+                        BlockPos correctedYPos = new BlockPos(widthCursor.x(), averageY, widthCursor.z());
+                        placeOnSurface(writer, correctedYPos, materials, roadType, random);
                     }
                 }
-                addDecoration(level, roadDecorationPlacementPositions, averagedPos, segmentIndex, nextPos, prevPos, middlePositions, roadType, random, config);
-                posAlreadyContainsSegment.add(segmentMiddlePos);
+                addDecoration(writer, level, roadDecorationPlacementPositions, averagedPos, segmentIndex,
+                        segments.middlePos(i + 2), segments.middlePos(i - 2), segmentCount, roadType, random, config);
             }
         }
     }
 
-    private static void tryPlaceDecorations(Set<Decoration> decorations) {
-        RoadStructures.tryPlaceDecorations(decorations);
-    }
-
-    private void addDecoration(WorldGenLevel level, Set<Decoration> roadDecorationPlacementPositions,
-                               BlockPos placePos, int segmentIndex, BlockPos nextPos, BlockPos prevPos, List<BlockPos> middleBlockPositions, int roadType, RandomSource random, IModConfig config) {
-        BlockPos surfacePos = placePos.atY(level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, placePos.getX(), placePos.getZ()));
-        BlockState blockStateAtPos = level.getBlockState(surfacePos.below());
+    private static void addDecoration(RoadSurfaceWriter writer, WorldGenLevel level, Set<Decoration> roadDecorationPlacementPositions,
+                                      BlockPos placePos, int segmentIndex, BlockPos nextPos, BlockPos prevPos, int segmentCount, int roadType, RandomSource random, IModConfig config) {
+        BlockPos surfacePos = placePos.atY(writer.getHeight(placePos.getX(), placePos.getZ()));
         // 水面在 placeOnSurface 中处理
         if (config.placeWaypoints()) {
             if (segmentIndex % 25 == 0) {
@@ -195,16 +219,16 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
         Vec3i directionVector = new Vec3i(normDx, 0, normDz);
 
         Vec3i orthogonalVector = new Vec3i(-directionVector.getZ(), 0, directionVector.getX());
-        boolean isEnd = segmentIndex != middleBlockPositions.size() - 65;
+        boolean isEnd = segmentIndex != segmentCount - 65;
         BlockPos shiftedPos;
-        if (segmentIndex == 65 || segmentIndex == middleBlockPositions.size() - 65) {
+        if (segmentIndex == 65 || segmentIndex == segmentCount - 65) {
             shiftedPos = isEnd ? placePos.offset(orthogonalVector.multiply(2)) : placePos.offset(orthogonalVector.multiply(-2));
-            roadDecorationPlacementPositions.add(new DistanceSignDecoration(shiftedPos, orthogonalVector, level, isEnd, String.valueOf(middleBlockPositions.size())));
+            roadDecorationPlacementPositions.add(new DistanceSignDecoration(shiftedPos, orthogonalVector, level, isEnd, String.valueOf(segmentCount)));
         }
         else if (segmentIndex % 59 == 0) {
             boolean leftRoadSide = random.nextBoolean();
             shiftedPos = leftRoadSide ? placePos.offset(orthogonalVector.multiply(2)) : placePos.offset(orthogonalVector.multiply(-2));
-            shiftedPos = shiftedPos.atY(level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, shiftedPos.getX(), shiftedPos.getZ()));
+            shiftedPos = shiftedPos.atY(writer.getHeight(shiftedPos.getX(), shiftedPos.getZ()));
             if (Math.abs(shiftedPos.getY() - placePos.getY()) > 1) {
                 return;
             }
@@ -219,7 +243,7 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
         else if (config.placeRoadFences() && segmentIndex % 15 == 0) {
             boolean leftRoadSide = random.nextBoolean();
             shiftedPos = leftRoadSide ? placePos.offset(orthogonalVector.multiply(2)) : placePos.offset(orthogonalVector.multiply(-2));
-            shiftedPos = shiftedPos.atY(level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, shiftedPos.getX(), shiftedPos.getZ()));
+            shiftedPos = shiftedPos.atY(writer.getHeight(shiftedPos.getX(), shiftedPos.getZ()));
             if (Math.abs(shiftedPos.getY() - placePos.getY()) > 1) {
                 return;
             }
@@ -243,7 +267,7 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
             shiftedPos = leftRoadSide 
                 ? placePos.offset(orthogonalVector.multiply(distanceFromRoad)) 
                 : placePos.offset(orthogonalVector.multiply(-distanceFromRoad));
-            shiftedPos = shiftedPos.atY(level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, shiftedPos.getX(), shiftedPos.getZ()));
+            shiftedPos = shiftedPos.atY(writer.getHeight(shiftedPos.getX(), shiftedPos.getZ()));
             
             // 检查高度差是否合适
             if (Math.abs(shiftedPos.getY() - placePos.getY()) > 2) {
@@ -265,59 +289,52 @@ public class RoadFeature extends Feature<RoadFeatureConfig> {
         }
     }
 
-    private void placeOnSurface(WorldGenLevel level, BlockPos placePos, List<BlockState> material, int natural, RandomSource random) {
+    private static void placeOnSurface(RoadSurfaceWriter writer, BlockPos placePos, List<BlockState> material, int natural, RandomSource random) {
         IModConfig config = ConfigProvider.get();
         double naturalBlockChance = 0.5;
         BlockPos surfacePos = placePos;
         if (natural == 1 || config.averagingRadius() == 0) {
-            surfacePos = new BlockPos(placePos.getX(), level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, placePos.getX(), placePos.getZ()), placePos.getZ());
+            surfacePos = new BlockPos(placePos.getX(), writer.getHeight(placePos.getX(), placePos.getZ()), placePos.getZ());
         }
-        BlockPos topPos = new BlockPos(surfacePos.getX(), level.getHeight(Heightmap.Types.WORLD_SURFACE_WG, surfacePos.getX(), surfacePos.getZ()), surfacePos.getZ());
-        BlockState blockStateAtPos = level.getBlockState(topPos.below());
+        // 同一列的地表高度由写入器缓存，不再重复查询高度图
+        BlockPos topPos = new BlockPos(surfacePos.getX(), writer.getHeight(surfacePos.getX(), surfacePos.getZ()), surfacePos.getZ());
+        BlockState blockStateAtPos = writer.getBlockState(topPos.below());
 
         // 水面则放置未点燃营火
         if (blockStateAtPos.equals(Blocks.WATER.defaultBlockState())) {
-            level.setBlock(topPos, Blocks.CAMPFIRE.defaultBlockState().setValue(BlockStateProperties.LIT, false), 3);
+            writer.setBlock(topPos, Blocks.CAMPFIRE.defaultBlockState().setValue(BlockStateProperties.LIT, false));
             return;
         }
 
         // 放置道路
         if (natural == 0 || random.nextDouble() < naturalBlockChance) {
-            placeRoadBlock(level, blockStateAtPos, surfacePos, material, random);
+            placeRoadBlock(writer, blockStateAtPos, surfacePos, material, random);
         }
     }
 
-    private void placeRoadBlock(WorldGenLevel level, BlockState blockStateAtPos, BlockPos surfacePos, List<BlockState> materials, RandomSource deterministicRandom) {
-        if (!placeAllowedCheck(blockStateAtPos.getBlock())
-                || (!level.getBlockState(surfacePos.below()).canOcclude())
-                && !level.getBlockState(surfacePos.below(2)).canOcclude()) {
+    private static void placeRoadBlock(RoadSurfaceWriter writer, BlockState blockStateAtPos, BlockPos surfacePos, List<BlockState> materials, RandomSource deterministicRandom) {
+        // 规则来自按方块状态预先编译的查找表
+        if (!RoadPlacementRules.canPaveOver(blockStateAtPos)
+                || !RoadPlacementRules.occludes(writer.getBlockState(surfacePos.below()))
+                && !RoadPlacementRules.occludes(writer.getBlockState(surfacePos.below(2)))) {
             return;
         }
         BlockState material = materials.get(deterministicRandom.nextInt(materials.size()));
-        level.setBlock(surfacePos.below(), material, 3);
+        writer.setBlock(surfacePos.below(), material);
 
         for (int i = 0; i < 3; i++) {
-            BlockState blockStateUp = level.getBlockState(surfacePos.above(i));
-            if (!blockStateUp.getBlock().equals(Blocks.AIR) && !blockStateUp.is(BlockTags.LOGS) && !blockStateUp.is(BlockTags.FENCES)) {
-                level.setBlock(surfacePos.above(i), Blocks.AIR.defaultBlockState(), 3);
+            BlockState blockStateUp = writer.getBlockState(surfacePos.above(i));
+            if (RoadPlacementRules.mustClearAbove(blockStateUp)) {
+                writer.setBlock(surfacePos.above(i), Blocks.AIR.defaultBlockState());
             } else {
                 break;
             }
         }
 
         BlockPos belowPos1 = surfacePos.below(2);
-        BlockState belowState1 = level.getBlockState(belowPos1);
+        BlockState belowState1 = writer.getBlockState(belowPos1);
         if (belowState1.getBlock().equals(Blocks.GRASS_BLOCK)) {
-            level.setBlock(belowPos1, Blocks.DIRT.defaultBlockState(), 3);
+            writer.setBlock(belowPos1, Blocks.DIRT.defaultBlockState());
         }
     }
-
-    private boolean placeAllowedCheck(Block blockToCheck) {
-        return !(dontPlaceHere.contains(blockToCheck)
-                || blockToCheck.defaultBlockState().is(BlockTags.LEAVES)
-                || blockToCheck.defaultBlockState().is(BlockTags.LOGS)
-                || blockToCheck.defaultBlockState().is(BlockTags.UNDERWATER_BONEMEALS)
-                || blockToCheck.defaultBlockState().is(BlockTags.WOODEN_FENCES)
-                || blockToCheck.defaultBlockState().is(BlockTags.PLANKS));
-    }
 }
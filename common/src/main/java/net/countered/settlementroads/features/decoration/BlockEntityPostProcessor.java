@@ -0,0 +1,243 @@
+package net.countered.settlementroads.features.decoration;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.entity.BlockEntity;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkStatus;
+import net.minecraft.world.level.chunk.LevelChunk;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 方块实体后处理队列
+ *
+ * 世界生成线程写入带方块实体的装饰方块时只登记（位置, 数据），
+ * 主线程每 tick 在时间预算内按区块批量写入方块实体数据（例如告示牌文字），
+ * 不再为每个方块向主线程任务队列提交一个 lambda：
+ * - 区块完整加载后才写入，生成中的区块稍后重新检查
+ * - 区块已经卸载时转为装饰片段（DecorationFragmentQueue）持久化，区块再次加载时由补铺器写入
+ */
+public final class BlockEntityPostProcessor {
+
+    /**
+     * 方块实体数据
+     */
+    public interface Payload {
+        /**
+         * 写入已完整加载的方块实体
+         */
+        void apply(BlockEntity blockEntity);
+
+        /**
+         * 序列化为方块实体 NBT（不含坐标），用于转为持久化的装饰片段
+         */
+        CompoundTag toTag();
+    }
+
+    /**
+     * 原始 NBT 数据（结构模板、装饰片段）
+     */
+    public record TagPayload(CompoundTag tag) implements Payload {
+        @Override
+        public void apply(BlockEntity blockEntity) {
+            CompoundTag copy = tag.copy();
+            BlockPos pos = blockEntity.getBlockPos();
+            copy.putInt("x", pos.getX());
+            copy.putInt("y", pos.getY());
+            copy.putInt("z", pos.getZ());
+            blockEntity.load(copy);
+        }
+
+        @Override
+        public CompoundTag toTag() {
+            return tag;
+        }
+    }
+
+    /**
+     * @return NBT 对应的数据，tag 为 null 时返回 null
+     */
+    public static Payload tag(CompoundTag tag) {
+        return tag == null ? null : new TagPayload(tag);
+    }
+
+    // 每 tick 的时间预算
+    private static final long BUDGET_NANOS = 1_000_000L;
+    // 生成中的区块的重新检查间隔
+    private static final int RECHECK_INTERVAL_TICKS = 20;
+
+    private record Entry(BlockPos pos, BlockState state, Payload payload) {}
+
+    private static final class ChunkEntries {
+        private final List<Entry> entries = new ArrayList<>();
+        private int recheckTick = 0;
+    }
+
+    /**
+     * 单个维度的待处理数据（byChunk 的访问都在 synchronized(this) 中进行）
+     */
+    private static final class WorldEntries {
+        private final ServerLevel level;
+        private final Long2ObjectLinkedOpenHashMap<ChunkEntries> byChunk = new Long2ObjectLinkedOpenHashMap<>();
+
+        private WorldEntries(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    private static final Map<String, WorldEntries> worldEntries = new ConcurrentHashMap<>();
+
+    private BlockEntityPostProcessor() {}
+
+    /**
+     * 登记方块实体数据（任意线程可调用，方块本身应已写入）
+     */
+    public static void enqueue(ServerLevel level, BlockPos pos, BlockState state, Payload payload) {
+        WorldEntries world = worldEntries.computeIfAbsent(level.dimension().location().toString(), k -> new WorldEntries(level));
+        synchronized (world) {
+            ChunkEntries chunk = world.byChunk.get(ChunkPos.asLong(pos));
+            if (chunk == null) {
+                chunk = new ChunkEntries();
+                world.byChunk.put(ChunkPos.asLong(pos), chunk);
+            }
+            chunk.entries.add(new Entry(pos.immutable(), state, payload));
+        }
+    }
+
+    /**
+     * 每个服务器 tick 调用（主线程）：在时间预算内按区块写入
+     */
+    public static void tick(MinecraftServer server) {
+        if (worldEntries.isEmpty()) {
+            return;
+        }
+        int tick = server.getTickCount();
+        long deadline = System.nanoTime() + BUDGET_NANOS;
+        for (WorldEntries world : worldEntries.values()) {
+            processWorld(world, tick, deadline);
+        }
+    }
+
+    private static void processWorld(WorldEntries world, int tick, long deadline) {
+        ServerChunkCache chunkSource = world.level.getChunkSource();
+        LongList waiting = new LongArrayList();
+        List<ChunkEntries> waitingEntries = new ArrayList<>();
+        int checked = 0;
+        int size;
+        synchronized (world) {
+            size = world.byChunk.size();
+        }
+        while (checked < size && System.nanoTime() < deadline) {
+            long key;
+            ChunkEntries chunk;
+            synchronized (world) {
+                if (world.byChunk.isEmpty()) break;
+                key = world.byChunk.firstLongKey();
+                chunk = world.byChunk.removeFirst();
+            }
+            checked++;
+            if (tick < chunk.recheckTick) {
+                waiting.add(key);
+                waitingEntries.add(chunk);
+                continue;
+            }
+            int chunkX = ChunkPos.getX(key);
+            int chunkZ = ChunkPos.getZ(key);
+            LevelChunk levelChunk = chunkSource.getChunkNow(chunkX, chunkZ);
+            if (levelChunk != null) {
+                applyAll(world.level, levelChunk, chunk.entries);
+            } else if (chunkSource.getChunk(chunkX, chunkZ, ChunkStatus.EMPTY, false) != null) {
+                // 仍在生成中，稍后重新检查
+                chunk.recheckTick = tick + RECHECK_INTERVAL_TICKS;
+                waiting.add(key);
+                waitingEntries.add(chunk);
+            } else {
+                toFragments(world.level, chunk.entries);
+            }
+        }
+        if (waiting.isEmpty()) {
+            return;
+        }
+        // 放回队尾（期间新登记的同一区块数据合并在一起）
+        synchronized (world) {
+            for (int i = 0; i < waiting.size(); i++) {
+                long key = waiting.getLong(i);
+                ChunkEntries existing = world.byChunk.get(key);
+                if (existing == null) {
+                    world.byChunk.put(key, waitingEntries.get(i));
+                } else {
+                    existing.entries.addAll(0, waitingEntries.get(i).entries);
+                }
+            }
+        }
+    }
+
+    private static void applyAll(ServerLevel level, LevelChunk levelChunk, List<Entry> entries) {
+        for (Entry entry : entries) {
+            BlockEntity blockEntity = levelChunk.getBlockEntity(entry.pos());
+            if (blockEntity == null || blockEntity.getBlockState().getBlock() != entry.state().getBlock()) {
+                continue; // 方块已被替换
+            }
+            entry.payload().apply(blockEntity);
+            blockEntity.setChanged();
+            BlockState state = blockEntity.getBlockState();
+            level.sendBlockUpdated(entry.pos(), state, state, Block.UPDATE_CLIENTS);
+        }
+    }
+
+    private static void toFragments(ServerLevel level, List<Entry> entries) {
+        for (Entry entry : entries) {
+            DecorationFragmentQueue.add(level, entry.pos(), entry.state(), entry.payload().toTag());
+        }
+    }
+
+    /**
+     * 当前等待处理的方块实体数
+     */
+    public static int getPendingCount() {
+        int count = 0;
+        for (WorldEntries world : worldEntries.values()) {
+            synchronized (world) {
+                for (ChunkEntries chunk : world.byChunk.values()) {
+                    count += chunk.entries.size();
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 服务器停止时调用（在 RoadPaver.shutdown 之前）：已加载的区块立即写入，其余转为持久化的装饰片段
+     */
+    public static void shutdown() {
+        for (WorldEntries world : worldEntries.values()) {
+            synchronized (world) {
+                ServerChunkCache chunkSource = world.level.getChunkSource();
+                for (Long2ObjectMap.Entry<ChunkEntries> chunk : world.byChunk.long2ObjectEntrySet()) {
+                    long key = chunk.getLongKey();
+                    LevelChunk levelChunk = chunkSource.getChunkNow(ChunkPos.getX(key), ChunkPos.getZ(key));
+                    if (levelChunk != null) {
+                        applyAll(world.level, levelChunk, chunk.getValue().entries);
+                    } else {
+                        toFragments(world.level, chunk.getValue().entries);
+                    }
+                }
+                world.byChunk.clear();
+            }
+        }
+        worldEntries.clear();
+    }
+}
@@ -1,15 +1,24 @@
 package net.countered.settlementroads.features.decoration;
 
 import net.minecraft.core.BlockPos;
-import net.minecraft.tags.BlockTags;
+import net.minecraft.world.level.ChunkPos;
 import net.minecraft.world.level.WorldGenLevel;
-import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.levelgen.structure.BoundingBox;
+
+import java.util.function.Consumer;
 
 public abstract class Decoration {
     private BlockPos placePos;
     private final WorldGenLevel world;
+    // 方块写入标志：世界生成时为 UPDATE_ALL，补铺已生成区块时由 RoadPaver 改为跳过邻居更新
+    private int placementFlags = Block.UPDATE_ALL;
+    // 方块写入监听（先发送后补丁模式下用于收集需要推送的位置）
+    private Consumer<BlockPos> writeListener = null;
+    // 触发放置的区块：写入其他区块的方块交给 DecorationFragmentQueue，未设置时全部直接写入
+    private long ownerChunk = ChunkPos.INVALID_CHUNK_POS;
 
     public Decoration(BlockPos placePos, WorldGenLevel world) {
         this.placePos = placePos;
@@ -18,23 +27,70 @@ public abstract class Decoration {
 
     public abstract void place();
 
+    /**
+     * 使用区块共享的上下文放置（RoadStructures 调用）
+     * 默认直接放置；需要按位置选择材料的装饰（例如按生物群系选择木材）覆写此方法
+     */
+    public void place(DecorationContext context) {
+        place();
+    }
+
     protected final boolean placeAllowed() {
         BlockPos placePos = getPos();
         BlockPos surfacePos = placePos.atY(world.getHeight(Heightmap.Types.WORLD_SURFACE_WG, placePos.getX(), placePos.getZ()));
         this.placePos = surfacePos;
         BlockState blockStateBelow = world.getBlockState(surfacePos.below());
 
-        boolean belowInvalid = blockStateBelow.is(Blocks.WATER)
-                || blockStateBelow.is(Blocks.LAVA)
-                || blockStateBelow.is(BlockTags.LOGS)
-                || RoadPlacementRules.dontPlaceHere.contains(blockStateBelow.getBlock());
-
-        if (belowInvalid) {
+        if (RoadPlacementRules.blocksDecoration(blockStateBelow)) {
             return false;
         }
         return true;
     }
 
+    /**
+     * 以当前写入标志放置方块，并通知写入监听
+     */
+    protected final void setBlock(BlockPos pos, BlockState state) {
+        setBlock(pos, state, (BlockEntityPostProcessor.Payload) null);
+    }
+
+    /**
+     * 放置方块并登记方块实体数据；方块不属于触发区块时作为片段排队，等所属区块生成时写入
+     * @param payload 方块实体数据（由主线程批量写入），可为 null
+     */
+    protected final void setBlock(BlockPos pos, BlockState state, BlockEntityPostProcessor.Payload payload) {
+        if (ownerChunk != ChunkPos.INVALID_CHUNK_POS && ChunkPos.asLong(pos) != ownerChunk) {
+            DecorationFragmentQueue.add(world.getLevel(), pos, state, payload == null ? null : payload.toTag());
+            return;
+        }
+        DecorationFragmentQueue.write(world, pos, state, payload, placementFlags);
+        if (writeListener != null) {
+            writeListener.accept(pos);
+        }
+    }
+
+    /**
+     * 通知写入监听一整个区域已被修改（结构模板整体放置）
+     */
+    protected final void notifyWritten(BoundingBox box) {
+        if (writeListener != null) {
+            BlockPos.betweenClosedStream(box).forEach(pos -> writeListener.accept(pos.immutable()));
+        }
+    }
+
+    public void setPlacementFlags(int flags, Consumer<BlockPos> listener) {
+        this.placementFlags = flags;
+        this.writeListener = listener;
+    }
+
+    public void setOwnerChunk(ChunkPos chunkPos) {
+        this.ownerChunk = chunkPos.toLong();
+    }
+
+    public int getPlacementFlags() {
+        return placementFlags;
+    }
+
     public BlockPos getPos() {
         return placePos;
     }
@@ -0,0 +1,46 @@
+package net.countered.settlementroads.features.decoration;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.countered.settlementroads.features.decoration.util.WoodSelector;
+import net.countered.settlementroads.helpers.Records;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.biome.Biome;
+
+/**
+ * 一次区块装饰放置的共享上下文（单线程使用）
+ *
+ * 生物群系经 level.getBiome(pos) 查询（包含原版的坐标扰动），按区块记忆：
+ * 同一区块内的装饰使用该区块第一次查询到的生物群系，木材选择再经 WoodSelector 的按生物群系缓存。
+ */
+public final class DecorationContext {
+    private final WorldGenLevel level;
+    private final Long2ObjectOpenHashMap<Holder<Biome>> biomes = new Long2ObjectOpenHashMap<>();
+
+    public DecorationContext(WorldGenLevel level) {
+        this.level = level;
+    }
+
+    public WorldGenLevel getLevel() {
+        return level;
+    }
+
+    /**
+     * 方块所在区块的生物群系（区块内第一次查询的位置决定结果）
+     */
+    public Holder<Biome> getBiome(BlockPos pos) {
+        long key = ChunkPos.asLong(pos);
+        Holder<Biome> biome = biomes.get(key);
+        if (biome == null) {
+            biome = level.getBiome(pos);
+            biomes.put(key, biome);
+        }
+        return biome;
+    }
+
+    public Records.WoodAssets woodAt(BlockPos pos) {
+        return WoodSelector.forBiome(getBiome(pos));
+    }
+}
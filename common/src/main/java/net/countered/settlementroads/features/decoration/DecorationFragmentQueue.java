@@ -0,0 +1,219 @@
+package net.countered.settlementroads.features.decoration;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongList;
+import net.countered.settlementroads.features.roadlogic.RoadPaver;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.block.state.BlockState;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 跨区块装饰片段队列
+ *
+ * 凉亭、距离标志等装饰会写入触发 RoadFeature.place() 的区块以外的方块，
+ * 直接写入会依赖相邻区块的生成进度（之后的地物可能覆盖，或需要额外加载区块）。
+ * 装饰因此按方块所属区块拆分成片段：本区块的方块立即写入，其余方块按所属区块排队：
+ * - 所属区块到达地物阶段时，由 RoadFeature.place() 先写入该区块的片段
+ * - 所属区块已经生成过地物阶段时，由 RoadPaver 等区块完整加载后写入
+ * - 未写入的片段持久化到世界数据中，重启后继续
+ */
+public final class DecorationFragmentQueue {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 片段变化后的最小持久化间隔
+    private static final int SAVE_INTERVAL_TICKS = 200;
+
+    /**
+     * 单个维度的待写入片段（byChunk 的访问都在 synchronized(this) 中进行）
+     */
+    private static final class WorldFragments {
+        private final ServerLevel level;
+        private final Long2ObjectOpenHashMap<List<Records.DecorationFragment>> byChunk = new Long2ObjectOpenHashMap<>();
+        // 无锁读取的区块数，让绝大多数没有片段的区块跳过加锁
+        private volatile int chunkCount = 0;
+        private boolean dirty = false;
+        private int lastSaveTick = 0;
+
+        private WorldFragments(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    private static final Map<String, WorldFragments> worldFragments = new ConcurrentHashMap<>();
+
+    private DecorationFragmentQueue() {}
+
+    private static WorldFragments world(ServerLevel level) {
+        return worldFragments.computeIfAbsent(level.dimension().location().toString(), k -> new WorldFragments(level));
+    }
+
+    /**
+     * 登记一个属于其他区块的方块（任意线程可调用）
+     * @param blockEntityTag 方块实体数据，可为 null
+     */
+    public static void add(ServerLevel level, BlockPos pos, BlockState state, CompoundTag blockEntityTag) {
+        WorldFragments world = world(level);
+        long chunk = ChunkPos.asLong(pos);
+        boolean newChunk = false;
+        synchronized (world) {
+            List<Records.DecorationFragment> fragments = world.byChunk.get(chunk);
+            if (fragments == null) {
+                fragments = new ArrayList<>();
+                world.byChunk.put(chunk, fragments);
+                world.chunkCount = world.byChunk.size();
+                newChunk = true;
+            }
+            fragments.add(new Records.DecorationFragment(pos.immutable(), state,
+                    Optional.ofNullable(blockEntityTag).map(CompoundTag::copy)));
+            world.dirty = true;
+        }
+        if (newChunk) {
+            // 区块可能已经生成过地物阶段，交给补铺器判断
+            RoadPaver.enqueueFragments(level, chunk);
+        }
+    }
+
+    /**
+     * 区块是否有待写入的片段
+     */
+    public static boolean hasFragments(ServerLevel level, ChunkPos chunkPos) {
+        WorldFragments world = worldFragments.get(level.dimension().location().toString());
+        if (world == null || world.chunkCount == 0) {
+            return false;
+        }
+        synchronized (world) {
+            return world.byChunk.containsKey(chunkPos.toLong());
+        }
+    }
+
+    /**
+     * 写入区块的全部片段并从队列中移除
+     * @param writeListener 方块写入监听，可为 null
+     */
+    public static void apply(WorldGenLevel level, ChunkPos chunkPos, int flags, Consumer<BlockPos> writeListener) {
+        WorldFragments world = worldFragments.get(level.getLevel().dimension().location().toString());
+        if (world == null || world.chunkCount == 0) {
+            return;
+        }
+        List<Records.DecorationFragment> fragments;
+        synchronized (world) {
+            fragments = world.byChunk.remove(chunkPos.toLong());
+            if (fragments == null) {
+                return;
+            }
+            world.chunkCount = world.byChunk.size();
+            world.dirty = true;
+        }
+        for (Records.DecorationFragment fragment : fragments) {
+            write(level, fragment.pos(), fragment.state(), BlockEntityPostProcessor.tag(fragment.blockEntityTag().orElse(null)), flags);
+            if (writeListener != null) {
+                writeListener.accept(fragment.pos());
+            }
+        }
+    }
+
+    /**
+     * 写入单个方块；方块实体数据交给 BlockEntityPostProcessor 在主线程写入
+     */
+    static void write(WorldGenLevel level, BlockPos pos, BlockState state, BlockEntityPostProcessor.Payload payload, int flags) {
+        level.setBlock(pos, state, flags);
+        if (payload != null) {
+            BlockEntityPostProcessor.enqueue(level.getLevel(), pos, state, payload);
+        }
+    }
+
+    /**
+     * 世界加载时调用：恢复上次未写入的片段
+     * @return 有片段的区块
+     */
+    public static LongList restore(ServerLevel level) {
+        LongList chunks = new LongArrayList();
+        List<Records.DecorationFragment> saved = WorldDataProvider.getInstance().getDecorationFragments(level);
+        if (saved == null || saved.isEmpty()) {
+            return chunks;
+        }
+        WorldFragments world = world(level);
+        synchronized (world) {
+            for (Records.DecorationFragment fragment : saved) {
+                long chunk = ChunkPos.asLong(fragment.pos());
+                List<Records.DecorationFragment> fragments = world.byChunk.get(chunk);
+                if (fragments == null) {
+                    fragments = new ArrayList<>();
+                    world.byChunk.put(chunk, fragments);
+                    chunks.add(chunk);
+                }
+                fragments.add(fragment);
+            }
+            world.chunkCount = world.byChunk.size();
+        }
+        LOGGER.info("🧩 Restored {} decoration fragments ({} chunks)", saved.size(), chunks.size());
+        return chunks;
+    }
+
+    /**
+     * 每个服务器 tick 调用（主线程）：按间隔持久化有变化的维度
+     */
+    public static void tick(MinecraftServer server) {
+        if (worldFragments.isEmpty()) {
+            return;
+        }
+        int tick = server.getTickCount();
+        for (WorldFragments world : worldFragments.values()) {
+            if (world.dirty && tick - world.lastSaveTick >= SAVE_INTERVAL_TICKS) {
+                save(world, tick);
+            }
+        }
+    }
+
+    private static void save(WorldFragments world, int tick) {
+        List<Records.DecorationFragment> saved = new ArrayList<>();
+        synchronized (world) {
+            for (List<Records.DecorationFragment> fragments : world.byChunk.values()) {
+                saved.addAll(fragments);
+            }
+            world.dirty = false;
+        }
+        WorldDataProvider.getInstance().setDecorationFragments(world.level, saved);
+        world.lastSaveTick = tick;
+    }
+
+    /**
+     * 当前等待写入片段的区块数
+     */
+    public static int getPendingChunkCount() {
+        int count = 0;
+        for (WorldFragments world : worldFragments.values()) {
+            count += world.chunkCount;
+        }
+        return count;
+    }
+
+    /**
+     * 服务器停止时调用（在世界保存之前）：写入剩余片段并清理
+     */
+    public static void shutdown() {
+        for (WorldFragments world : worldFragments.values()) {
+            if (world.dirty) {
+                save(world, world.level.getServer().getTickCount());
+            }
+        }
+        worldFragments.clear();
+    }
+}
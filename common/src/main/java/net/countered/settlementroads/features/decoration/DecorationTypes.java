@@ -0,0 +1,56 @@
+package net.countered.settlementroads.features.decoration;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 自定义装饰放置器注册表
+ *
+ * 装饰默认通过 {@link Decoration#place(DecorationContext)} 放置（木材等按位置的选择由装饰自身覆写），
+ * 只有需要在装饰类之外改变放置方式的类型（例如其他模组扩展的类型）才通过 {@link #register} 注册。
+ * 放置时按装饰的类查表，未注册的类型沿父类查找，最终使用默认放置器。
+ */
+public final class DecorationTypes {
+
+    /**
+     * 装饰放置器
+     */
+    @FunctionalInterface
+    public interface Placer<T extends Decoration> {
+        void place(T decoration, DecorationContext context);
+    }
+
+    /**
+     * 默认放置器：交给装饰自身
+     */
+    public static final Placer<Decoration> DEFAULT = Decoration::place;
+
+    private static final Map<Class<?>, Placer<?>> registered = new ConcurrentHashMap<>();
+    // 类 → 解析后的放置器（包括沿父类找到的结果），注册新类型时清空
+    private static final Map<Class<?>, Placer<Decoration>> resolved = new ConcurrentHashMap<>();
+
+    private DecorationTypes() {}
+
+    public static <T extends Decoration> void register(Class<T> type, Placer<? super T> placer) {
+        registered.put(type, placer);
+        resolved.clear();
+    }
+
+    /**
+     * 放置单个装饰
+     */
+    public static void place(Decoration decoration, DecorationContext context) {
+        resolved.computeIfAbsent(decoration.getClass(), DecorationTypes::resolve).place(decoration, context);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Placer<Decoration> resolve(Class<?> type) {
+        for (Class<?> current = type; current != null && Decoration.class.isAssignableFrom(current); current = current.getSuperclass()) {
+            Placer<?> placer = registered.get(current);
+            if (placer != null) {
+                return (Placer<Decoration>) placer;
+            }
+        }
+        return DEFAULT;
+    }
+}
@@ -4,14 +4,17 @@ import net.countered.settlementroads.features.decoration.util.BiomeWoodAware;
 import net.countered.settlementroads.helpers.Records;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Vec3i;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.NbtOps;
 import net.minecraft.network.chat.Component;
 import net.minecraft.world.level.WorldGenLevel;
 import net.minecraft.world.level.block.entity.BlockEntity;
-import net.minecraft.world.level.block.entity.HangingSignBlockEntity;
+import net.minecraft.world.level.block.entity.SignBlockEntity;
 import net.minecraft.world.level.block.entity.SignText;
 import net.minecraft.world.level.block.state.properties.BlockStateProperties;
 
-import java.util.Objects;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class DistanceSignDecoration extends OrientedDecoration implements BiomeWoodAware {
     private final boolean isStart;
@@ -24,6 +27,15 @@ public class DistanceSignDecoration extends OrientedDecoration implements BiomeW
         this.signText = distanceText;
     }
 
+    /**
+     * 先按所在生物群系选择木材再放置
+     */
+    @Override
+    public void place(DecorationContext context) {
+        setWoodType(context.woodAt(getPos()));
+        place();
+    }
+
     @Override
     public void place() {
         if (!placeAllowed()) return;
@@ -32,49 +44,68 @@ public class DistanceSignDecoration extends OrientedDecoration implements BiomeW
         DirectionProperties props = getDirectionProperties(rotation);
 
         BlockPos basePos = this.getPos();
-        WorldGenLevel world = this.getWorld();
 
+        // 文字由 BlockEntityPostProcessor 在主线程按区块批量写入
         BlockPos signPos = basePos.above(2).relative(props.offsetDirection.getOpposite());
-        world.setBlock(signPos, wood.hangingSign().defaultBlockState()
+        setBlock(signPos, wood.hangingSign().defaultBlockState()
                 .setValue(BlockStateProperties.ROTATION_16, rotation)
-                .setValue(BlockStateProperties.ATTACHED, true), 3);
-        updateSigns(world, signPos, signText);
+                .setValue(BlockStateProperties.ATTACHED, true), SignTextPayload.forDistance(signText));
 
         placeFenceStructure(basePos, props);
     }
 
     private void placeFenceStructure(BlockPos pos, DirectionProperties props) {
-        WorldGenLevel world = this.getWorld();
-
-        world.setBlock(pos.above(3).relative(props.offsetDirection.getOpposite()), wood.fence().defaultBlockState().setValue(props.directionProperty, true), 3);
-        world.setBlock(pos.above(0), wood.fence().defaultBlockState(), 3);
-        world.setBlock(pos.above(1), wood.fence().defaultBlockState(), 3);
-        world.setBlock(pos.above(2), wood.fence().defaultBlockState(), 3);
-        world.setBlock(pos.above(3), wood.fence().defaultBlockState().setValue(props.reverseDirectionProperty, true), 3);
+        setBlock(pos.above(3).relative(props.offsetDirection.getOpposite()), wood.fence().defaultBlockState().setValue(props.directionProperty, true));
+        setBlock(pos.above(0), wood.fence().defaultBlockState());
+        setBlock(pos.above(1), wood.fence().defaultBlockState());
+        setBlock(pos.above(2), wood.fence().defaultBlockState());
+        setBlock(pos.above(3), wood.fence().defaultBlockState().setValue(props.reverseDirectionProperty, true));
     }
 
-    private void updateSigns(WorldGenLevel worldGenLevel, BlockPos surfacePos, String text) {
-        Objects.requireNonNull(worldGenLevel.getLevel().getServer()).execute(() -> {
-            BlockEntity signEntity = worldGenLevel.getBlockEntity(surfacePos);
-            if (signEntity instanceof HangingSignBlockEntity signBlockEntity) {
-                signBlockEntity.setLevel(worldGenLevel.getLevel());
-                SignText signText = signBlockEntity.getFrontText();
-                signText = (signText.setMessage(0, Component.translatable("sign.roadweaver.distance.separator")));
-                signText = (signText.setMessage(1, Component.translatable("sign.roadweaver.distance.next_location")));
-                signText = (signText.setMessage(2, Component.literal(text + "m")));
-                signText = (signText.setMessage(3, Component.translatable("sign.roadweaver.distance.separator")));
-                signBlockEntity.setText(signText, true);
-
-                SignText signTextBack = signBlockEntity.getBackText();
-                signTextBack = signTextBack.setMessage(0, Component.translatable("sign.roadweaver.distance.separator"));
-                signTextBack = signTextBack.setMessage(1, Component.translatable("sign.roadweaver.distance.welcome"));
-                signTextBack = signTextBack.setMessage(2, Component.translatable("sign.roadweaver.distance.traveller"));
-                signTextBack = signTextBack.setMessage(3, Component.translatable("sign.roadweaver.distance.separator"));
-                signBlockEntity.setText(signTextBack, false);
-
-                signBlockEntity.setChanged();
+    /**
+     * 告示牌文字：SignText 不可变，背面文字与相同距离的正面文字在所有告示牌之间共享
+     */
+    private record SignTextPayload(SignText front, SignText back) implements BlockEntityPostProcessor.Payload {
+        private static final SignText BACK_TEXT = new SignText()
+                .setMessage(0, Component.translatable("sign.roadweaver.distance.separator"))
+                .setMessage(1, Component.translatable("sign.roadweaver.distance.welcome"))
+                .setMessage(2, Component.translatable("sign.roadweaver.distance.traveller"))
+                .setMessage(3, Component.translatable("sign.roadweaver.distance.separator"));
+        private static final int MAX_CACHED_TEXTS = 1024;
+        private static final Map<String, SignTextPayload> cache = new ConcurrentHashMap<>();
+
+        private static SignTextPayload forDistance(String text) {
+            SignTextPayload payload = cache.get(text);
+            if (payload == null) {
+                if (cache.size() >= MAX_CACHED_TEXTS) {
+                    cache.clear();
+                }
+                payload = new SignTextPayload(new SignText()
+                        .setMessage(0, Component.translatable("sign.roadweaver.distance.separator"))
+                        .setMessage(1, Component.translatable("sign.roadweaver.distance.next_location"))
+                        .setMessage(2, Component.literal(text + "m"))
+                        .setMessage(3, Component.translatable("sign.roadweaver.distance.separator")), BACK_TEXT);
+                cache.put(text, payload);
+            }
+            return payload;
+        }
+
+        @Override
+        public void apply(BlockEntity blockEntity) {
+            if (blockEntity instanceof SignBlockEntity sign) {
+                sign.setText(front, true);
+                sign.setText(back, false);
             }
-        });
+        }
+
+        @Override
+        public CompoundTag toTag() {
+            CompoundTag tag = new CompoundTag();
+            SignText.DIRECT_CODEC.encodeStart(NbtOps.INSTANCE, front).result().ifPresent(nbt -> tag.put("front_text", nbt));
+            SignText.DIRECT_CODEC.encodeStart(NbtOps.INSTANCE, back).result().ifPresent(nbt -> tag.put("back_text", nbt));
+            tag.putBoolean("is_waxed", false);
+            return tag;
+        }
     }
 
     @Override
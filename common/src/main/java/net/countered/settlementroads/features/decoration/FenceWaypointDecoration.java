@@ -13,15 +13,23 @@ public class FenceWaypointDecoration extends Decoration implements BiomeWoodAwar
         super(placePos, world);
     }
 
+    /**
+     * 先按所在生物群系选择木材再放置
+     */
+    @Override
+    public void place(DecorationContext context) {
+        setWoodType(context.woodAt(getPos()));
+        place();
+    }
+
     @Override
     public void place() {
         if (!placeAllowed()) return;
 
         BlockPos surfacePos = this.getPos();
-        WorldGenLevel world = this.getWorld();
 
-        world.setBlock(surfacePos, wood.fence().defaultBlockState(), 3);
-        world.setBlock(surfacePos.above(), Blocks.TORCH.defaultBlockState(), 3);
+        setBlock(surfacePos, wood.fence().defaultBlockState());
+        setBlock(surfacePos.above(), Blocks.TORCH.defaultBlockState());
     }
 
     @Override
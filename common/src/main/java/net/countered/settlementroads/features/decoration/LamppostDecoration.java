@@ -18,51 +18,59 @@ public class LamppostDecoration extends OrientedDecoration implements BiomeWoodA
         this.leftRoadSide = leftRoadSide;
     }
 
+    /**
+     * 先按所在生物群系选择木材再放置
+     */
+    @Override
+    public void place(DecorationContext context) {
+        setWoodType(context.woodAt(getPos()));
+        place();
+    }
+
     @Override
     public void place() {
         if (!placeAllowed()) return;
 
         BlockPos basePos = this.getPos();
-        WorldGenLevel world = this.getWorld();
 
-        buildNewLamppost(basePos, world);
+        buildNewLamppost(basePos);
     }
 
-    private void buildNewLamppost(BlockPos basePos, WorldGenLevel world) {
-        world.setBlock(basePos, Blocks.COBBLED_DEEPSLATE_WALL.defaultBlockState(), 3);
-        world.setBlock(basePos.above(1), Blocks.SPRUCE_FENCE.defaultBlockState(), 3);
-        world.setBlock(basePos.above(2), Blocks.SPRUCE_FENCE.defaultBlockState(), 3);
-        world.setBlock(basePos.above(3), Blocks.COBBLED_DEEPSLATE_WALL.defaultBlockState(), 3);
+    private void buildNewLamppost(BlockPos basePos) {
+        setBlock(basePos, Blocks.COBBLED_DEEPSLATE_WALL.defaultBlockState());
+        setBlock(basePos.above(1), Blocks.SPRUCE_FENCE.defaultBlockState());
+        setBlock(basePos.above(2), Blocks.SPRUCE_FENCE.defaultBlockState());
+        setBlock(basePos.above(3), Blocks.COBBLED_DEEPSLATE_WALL.defaultBlockState());
 
         BlockPos lampPos = basePos.above(4);
-        world.setBlock(lampPos, Blocks.REDSTONE_LAMP.defaultBlockState(), 3);
-        world.setBlock(basePos.above(5), Blocks.DAYLIGHT_DETECTOR.defaultBlockState()
-                .setValue(BlockStateProperties.INVERTED, true), 3);
+        setBlock(lampPos, Blocks.REDSTONE_LAMP.defaultBlockState());
+        setBlock(basePos.above(5), Blocks.DAYLIGHT_DETECTOR.defaultBlockState()
+                .setValue(BlockStateProperties.INVERTED, true));
 
-        placeTrapdoorsAroundLamp(lampPos, world);
+        placeTrapdoorsAroundLamp(lampPos);
     }
 
-    private void placeTrapdoorsAroundLamp(BlockPos lampPos, WorldGenLevel world) {
-        world.setBlock(lampPos.east(),
+    private void placeTrapdoorsAroundLamp(BlockPos lampPos) {
+        setBlock(lampPos.east(),
                 Blocks.SPRUCE_TRAPDOOR.defaultBlockState()
                         .setValue(BlockStateProperties.HORIZONTAL_FACING, net.minecraft.core.Direction.EAST)
                         .setValue(BlockStateProperties.OPEN, false)
-                        .setValue(BlockStateProperties.HALF, Half.TOP), 3);
-        world.setBlock(lampPos.west(),
+                        .setValue(BlockStateProperties.HALF, Half.TOP));
+        setBlock(lampPos.west(),
                 Blocks.SPRUCE_TRAPDOOR.defaultBlockState()
                         .setValue(BlockStateProperties.HORIZONTAL_FACING, net.minecraft.core.Direction.WEST)
                         .setValue(BlockStateProperties.OPEN, false)
-                        .setValue(BlockStateProperties.HALF, Half.TOP), 3);
-        world.setBlock(lampPos.south(),
+                        .setValue(BlockStateProperties.HALF, Half.TOP));
+        setBlock(lampPos.south(),
                 Blocks.SPRUCE_TRAPDOOR.defaultBlockState()
                         .setValue(BlockStateProperties.HORIZONTAL_FACING, net.minecraft.core.Direction.SOUTH)
                         .setValue(BlockStateProperties.OPEN, false)
-                        .setValue(BlockStateProperties.HALF, Half.TOP), 3);
-        world.setBlock(lampPos.north(),
+                        .setValue(BlockStateProperties.HALF, Half.TOP));
+        setBlock(lampPos.north(),
                 Blocks.SPRUCE_TRAPDOOR.defaultBlockState()
                         .setValue(BlockStateProperties.HORIZONTAL_FACING, net.minecraft.core.Direction.NORTH)
                         .setValue(BlockStateProperties.OPEN, false)
-                        .setValue(BlockStateProperties.HALF, Half.TOP), 3);
+                        .setValue(BlockStateProperties.HALF, Half.TOP));
     }
 
     @Override
@@ -18,6 +18,15 @@ public class RoadFenceDecoration extends OrientedDecoration implements BiomeWood
         this.fenceLength = Math.min(3, Math.max(1, fenceLength));
     }
 
+    /**
+     * 先按所在生物群系选择木材再放置
+     */
+    @Override
+    public void place(DecorationContext context) {
+        setWoodType(context.woodAt(getPos()));
+        place();
+    }
+
     @Override
     public void place() {
         if (!placeAllowed()) return;
@@ -35,7 +44,7 @@ public class RoadFenceDecoration extends OrientedDecoration implements BiomeWood
             if (Math.abs(surfacePos.getY() - basePos.getY()) > 1) {
                 continue;
             }
-            world.setBlock(surfacePos, wood.fence().defaultBlockState(), 3);
+            setBlock(surfacePos, wood.fence().defaultBlockState());
         }
     }
 
@@ -1,11 +1,20 @@
 package net.countered.settlementroads.features.decoration;
 
+import net.minecraft.tags.BlockTags;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.HashSet;
 import java.util.Set;
 
+/**
+ * 道路与装饰的方块放置规则
+ *
+ * 规则按方块状态 ID 预先编译为一张扁平查找表（每个状态一个字节的标志位），
+ * 铺路内循环只需一次数组读取，不再逐块检查标签和集合。
+ * 标签会随数据包变化，查找表在标签重新绑定后失效（平台的标签更新事件），下次查询时重建。
+ */
 public final class RoadPlacementRules {
     private RoadPlacementRules() {}
 
@@ -17,4 +26,97 @@ public final class RoadPlacementRules {
         dontPlaceHere.add(Blocks.TALL_SEAGRASS);
         dontPlaceHere.add(Blocks.MANGROVE_ROOTS);
     }
+
+    // 不能在其上铺路
+    private static final byte PAVE_BLOCKED = 1;
+    // 路面上方需要清除
+    private static final byte CLEAR_ABOVE = 1 << 1;
+    // 不能在其上放置装饰
+    private static final byte BLOCKS_DECORATION = 1 << 2;
+    // 完整遮挡方块（路面下方需要支撑）
+    private static final byte OCCLUDES = 1 << 3;
+
+    private static volatile byte[] table = null;
+
+    /**
+     * 标签重新绑定后调用（数据包重新加载监听运行时新标签尚未绑定，不能在那里失效）
+     */
+    public static void invalidate() {
+        table = null;
+    }
+
+    /**
+     * 能否在该方块上铺路（替换为道路材料）
+     */
+    public static boolean canPaveOver(BlockState state) {
+        return (flags(state) & PAVE_BLOCKED) == 0;
+    }
+
+    /**
+     * 路面上方的该方块是否需要清除为空气
+     */
+    public static boolean mustClearAbove(BlockState state) {
+        return (flags(state) & CLEAR_ABOVE) != 0;
+    }
+
+    /**
+     * 装饰下方为该方块时是否禁止放置
+     */
+    public static boolean blocksDecoration(BlockState state) {
+        return (flags(state) & BLOCKS_DECORATION) != 0;
+    }
+
+    public static boolean occludes(BlockState state) {
+        return (flags(state) & OCCLUDES) != 0;
+    }
+
+    private static byte flags(BlockState state) {
+        byte[] current = table;
+        if (current == null) {
+            current = rebuild();
+        }
+        int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+        return id >= 0 && id < current.length ? current[id] : compute(state);
+    }
+
+    private static synchronized byte[] rebuild() {
+        byte[] current = table;
+        if (current != null) {
+            return current;
+        }
+        current = new byte[Block.BLOCK_STATE_REGISTRY.size()];
+        for (BlockState state : Block.BLOCK_STATE_REGISTRY) {
+            int id = Block.BLOCK_STATE_REGISTRY.getId(state);
+            if (id >= 0 && id < current.length) {
+                current[id] = compute(state);
+            }
+        }
+        table = current;
+        return current;
+    }
+
+    private static byte compute(BlockState state) {
+        byte flags = 0;
+        if (dontPlaceHere.contains(state.getBlock())
+                || state.is(BlockTags.LEAVES)
+                || state.is(BlockTags.LOGS)
+                || state.is(BlockTags.UNDERWATER_BONEMEALS)
+                || state.is(BlockTags.WOODEN_FENCES)
+                || state.is(BlockTags.PLANKS)) {
+            flags |= PAVE_BLOCKED;
+        }
+        if (!state.is(Blocks.AIR) && !state.is(BlockTags.LOGS) && !state.is(BlockTags.FENCES)) {
+            flags |= CLEAR_ABOVE;
+        }
+        if (state.is(Blocks.WATER)
+                || state.is(Blocks.LAVA)
+                || state.is(BlockTags.LOGS)
+                || dontPlaceHere.contains(state.getBlock())) {
+            flags |= BLOCKS_DECORATION;
+        }
+        if (state.canOcclude()) {
+            flags |= OCCLUDES;
+        }
+        return flags;
+    }
 }
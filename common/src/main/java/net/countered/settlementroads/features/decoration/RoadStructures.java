@@ -1,7 +1,5 @@
 package net.countered.settlementroads.features.decoration;
 
-import net.countered.settlementroads.features.decoration.util.WoodSelector;
-
 import java.util.Iterator;
 import java.util.Set;
 
@@ -11,42 +9,16 @@ public class RoadStructures {
         if (roadDecorationPlacementPositions.isEmpty()) {
             return;
         }
+        // 同一批装饰来自同一个区块，共享生物群系查询
+        DecorationContext context = null;
         Iterator<Decoration> iterator = roadDecorationPlacementPositions.iterator();
         while (iterator.hasNext()) {
             Decoration roadDecoration = iterator.next();
             if (roadDecoration != null) {
-                if (roadDecoration instanceof LamppostDecoration lamppostDecoration) {
-                    lamppostDecoration.setWoodType(WoodSelector.forBiome(lamppostDecoration.getWorld(), lamppostDecoration.getPos()));
-                    lamppostDecoration.place();
-                }
-                if (roadDecoration instanceof DistanceSignDecoration distanceSignDecoration) {
-                    distanceSignDecoration.setWoodType(WoodSelector.forBiome(distanceSignDecoration.getWorld(), distanceSignDecoration.getPos()));
-                    distanceSignDecoration.place();
-                }
-                if (roadDecoration instanceof FenceWaypointDecoration fenceWaypointDecoration) {
-                    fenceWaypointDecoration.setWoodType(WoodSelector.forBiome(fenceWaypointDecoration.getWorld(), fenceWaypointDecoration.getPos()));
-                    fenceWaypointDecoration.place();
-                }
-                if (roadDecoration instanceof RoadFenceDecoration roadFenceDecoration) {
-                    roadFenceDecoration.setWoodType(WoodSelector.forBiome(roadFenceDecoration.getWorld(), roadFenceDecoration.getPos()));
-                    roadFenceDecoration.place();
-                }
-                if (roadDecoration instanceof SwingDecoration swingDecoration) {
-                    swingDecoration.setWoodType(WoodSelector.forBiome(swingDecoration.getWorld(), swingDecoration.getPos()));
-                    swingDecoration.place();
-                }
-                if (roadDecoration instanceof BenchDecoration benchDecoration) {
-                    benchDecoration.setWoodType(WoodSelector.forBiome(benchDecoration.getWorld(), benchDecoration.getPos()));
-                    benchDecoration.place();
-                }
-                if (roadDecoration instanceof GlorietteDecoration glorietteDecoration) {
-                    glorietteDecoration.setWoodType(WoodSelector.forBiome(glorietteDecoration.getWorld(), glorietteDecoration.getPos()));
-                    glorietteDecoration.place();
-                }
-                if (roadDecoration instanceof NbtStructureDecoration nbtStructureDecoration) {
-                    nbtStructureDecoration.setWoodType(WoodSelector.forBiome(nbtStructureDecoration.getWorld(), nbtStructureDecoration.getPos()));
-                    nbtStructureDecoration.place();
+                if (context == null) {
+                    context = new DecorationContext(roadDecoration.getWorld());
                 }
+                DecorationTypes.place(roadDecoration, context);
                 iterator.remove();
             }
         }
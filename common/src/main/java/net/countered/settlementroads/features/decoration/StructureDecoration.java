@@ -1,30 +1,15 @@
 package net.countered.settlementroads.features.decoration;
 
 import net.countered.settlementroads.features.decoration.util.BiomeWoodAware;
+import net.countered.settlementroads.features.decoration.util.StructureTemplateCache;
 import net.countered.settlementroads.helpers.Records;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Vec3i;
-import net.minecraft.nbt.CompoundTag;
-import net.minecraft.nbt.NbtIo;
-import net.minecraft.resources.ResourceLocation;
-import net.minecraft.tags.BlockTags;
 import net.minecraft.world.level.WorldGenLevel;
-import net.minecraft.world.level.block.Blocks;
-import net.minecraft.world.level.block.Mirror;
 import net.minecraft.world.level.block.Rotation;
-import net.minecraft.world.level.block.state.BlockState;
 import net.minecraft.world.level.levelgen.Heightmap;
-import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
-import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import java.io.InputStream;
-import java.util.List;
 
 public abstract class StructureDecoration extends OrientedDecoration implements BiomeWoodAware {
-    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
-
     protected Records.WoodAssets wood;
     private final String structureName;
     private final Vec3i structureSize;
@@ -35,15 +20,24 @@ public abstract class StructureDecoration extends OrientedDecoration implements
         this.structureSize = structureSize;
     }
 
+    /**
+     * 先按所在生物群系选择木材再放置
+     */
+    @Override
+    public void place(DecorationContext context) {
+        setWoodType(context.woodAt(getPos()));
+        place();
+    }
+
     @Override
     public void place() {
         if (!placeAllowed()) return;
         if (!hasEnoughSpace()) {
             return;
         }
-        StructureTemplate template = loadStructureTemplate();
-        if (template != null) {
-            placeStructure(template);
+        StructureTemplateCache.CachedStructure structure = StructureTemplateCache.get(getWorld().getLevel(), structureName);
+        if (structure != null) {
+            placeStructure(structure);
         } else {
             placeFallbackStructure();
         }
@@ -65,32 +59,17 @@ public abstract class StructureDecoration extends OrientedDecoration implements
         return (maxY - minY) <= 2;
     }
 
-    protected StructureTemplate loadStructureTemplate() {
-        try {
-            ResourceLocation structureId = new ResourceLocation("roadweaver", "structures/" + structureName);
-            StructureTemplate template = new StructureTemplate();
-            InputStream inputStream = getClass().getResourceAsStream("/data/roadweaver/structures/" + structureName + ".nbt");
-            if (inputStream != null) {
-                CompoundTag nbt = NbtIo.readCompressed(inputStream);
-                template.load(getWorld().getLevel().holderLookup(net.minecraft.core.registries.Registries.BLOCK), nbt);
-                return template;
-            }
-        } catch (Exception e) {
-            LOGGER.warn("Failed to load structure: {} using fallback. Error: {}", structureName, e.getMessage());
+    /**
+     * 按预先旋转好的方块印章逐块复制（模板中的空气方块同样写入，清理草和花）
+     */
+    protected void placeStructure(StructureTemplateCache.CachedStructure structure) {
+        BlockPos groundLevel = findGroundLevel(getPos(), getWorld());
+        StructureTemplateCache.Stamp stamp = structure.stamp(getRotationFromDirection());
+        BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos();
+        for (int i = 0; i < stamp.size(); i++) {
+            setBlock(stamp.pos(i, groundLevel, cursor).immutable(), stamp.state(i),
+                    BlockEntityPostProcessor.tag(stamp.blockEntityTag(i)));
         }
-        return null;
-    }
-
-    protected void placeStructure(StructureTemplate template) {
-        BlockPos placePos = getPos();
-        WorldGenLevel world = getWorld();
-        BlockPos groundLevel = findGroundLevel(placePos, world);
-        StructurePlaceSettings placementData = new StructurePlaceSettings()
-                .setMirror(Mirror.NONE)
-                .setRotation(getRotationFromDirection())
-                .setIgnoreEntities(true);
-        template.placeInWorld(world, groundLevel, groundLevel, placementData, world.getRandom(), 2);
-        cleanupAirBlocks(template, groundLevel, placementData);
     }
 
     protected BlockPos findGroundLevel(BlockPos basePos, WorldGenLevel world) {
@@ -106,25 +85,6 @@ public abstract class StructureDecoration extends OrientedDecoration implements
         return new BlockPos(basePos.getX(), minY - 1, basePos.getZ());
     }
 
-    protected void cleanupAirBlocks(StructureTemplate template, BlockPos basePos, StructurePlaceSettings placementData) {
-        List<StructureTemplate.StructureBlockInfo> blocks = template.filterBlocks(basePos, placementData, Blocks.AIR);
-        for (StructureTemplate.StructureBlockInfo blockInfo : blocks) {
-            BlockPos airPos = blockInfo.pos();
-            BlockState currentState = getWorld().getBlockState(airPos);
-            if (shouldReplaceWithAir(currentState)) {
-                getWorld().setBlock(airPos, Blocks.AIR.defaultBlockState(), 3);
-            }
-        }
-    }
-
-    protected boolean shouldReplaceWithAir(BlockState state) {
-        return state.getBlock().equals(Blocks.GRASS)
-                || state.getBlock().equals(Blocks.TALL_GRASS)
-                || state.is(BlockTags.FLOWERS)
-                || state.is(BlockTags.SAPLINGS)
-                || state.is(BlockTags.LEAVES);
-    }
-
     protected Rotation getRotationFromDirection() {
         Vec3i roadDirection = getRoadDirection();
         if (Math.abs(roadDirection.getX()) > Math.abs(roadDirection.getZ())) {
@@ -0,0 +1,209 @@
+package net.countered.settlementroads.features.decoration.util;
+
+import dev.architectury.registry.ReloadListenerRegistry;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.HolderGetter;
+import net.minecraft.core.Vec3i;
+import net.minecraft.core.registries.Registries;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.nbt.ListTag;
+import net.minecraft.nbt.NbtIo;
+import net.minecraft.nbt.NbtUtils;
+import net.minecraft.nbt.Tag;
+import net.minecraft.resources.ResourceLocation;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.server.packs.PackType;
+import net.minecraft.server.packs.resources.ResourceManagerReloadListener;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.Mirror;
+import net.minecraft.world.level.block.Rotation;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructurePlaceSettings;
+import net.minecraft.world.level.levelgen.structure.templatesystem.StructureTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 装饰结构模板缓存
+ *
+ * 每个结构只加载一次（优先使用数据包中的 roadweaver:&lt;name&gt;，允许数据包覆盖；否则读取 jar 内的 NBT），
+ * 并为四个旋转方向预先计算方块印章：调色板 + 打包的相对坐标，放置时只需一个紧凑的复制循环。
+ * 数据包重新加载（/reload）时缓存失效。
+ */
+public final class StructureTemplateCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 相对坐标打包：每个分量 10 位（结构尺寸远小于 512）
+    private static final int COORD_BITS = 10;
+    private static final int COORD_MASK = (1 << COORD_BITS) - 1;
+    private static final int COORD_BIAS = 1 << (COORD_BITS - 1);
+
+    /**
+     * 单个旋转方向的方块印章
+     */
+    public static final class Stamp {
+        private final BlockState[] palette;
+        private final int[] offsets;
+        private final short[] states;
+        private final CompoundTag[] blockEntityTags;
+
+        private Stamp(BlockState[] palette, int[] offsets, short[] states, CompoundTag[] blockEntityTags) {
+            this.palette = palette;
+            this.offsets = offsets;
+            this.states = states;
+            this.blockEntityTags = blockEntityTags;
+        }
+
+        public int size() {
+            return offsets.length;
+        }
+
+        public BlockState state(int i) {
+            return palette[states[i]];
+        }
+
+        /**
+         * 第 i 个方块的世界坐标
+         */
+        public BlockPos.MutableBlockPos pos(int i, BlockPos origin, BlockPos.MutableBlockPos out) {
+            int packed = offsets[i];
+            return out.set(
+                origin.getX() + ((packed >>> (COORD_BITS * 2)) & COORD_MASK) - COORD_BIAS,
+                origin.getY() + ((packed >>> COORD_BITS) & COORD_MASK) - COORD_BIAS,
+                origin.getZ() + (packed & COORD_MASK) - COORD_BIAS);
+        }
+
+        /**
+         * 第 i 个方块的方块实体数据（没有时为 null）
+         */
+        public CompoundTag blockEntityTag(int i) {
+            return blockEntityTags == null ? null : blockEntityTags[i];
+        }
+    }
+
+    /**
+     * 已加载的结构：尺寸 + 四个旋转方向的印章（按 Rotation.ordinal() 索引）
+     */
+    public record CachedStructure(Vec3i size, Stamp[] stamps) {
+        public Stamp stamp(Rotation rotation) {
+            return stamps[rotation.ordinal()];
+        }
+    }
+
+    // 加载失败的结构同样缓存（Optional.empty），避免每次放置都重新尝试
+    private static final Map<String, Optional<CachedStructure>> cache = new ConcurrentHashMap<>();
+
+    private StructureTemplateCache() {}
+
+    /**
+     * 注册数据包重新加载监听（模组初始化时调用一次）
+     */
+    public static void registerReloadListener() {
+        ReloadListenerRegistry.register(PackType.SERVER_DATA, (ResourceManagerReloadListener) resourceManager -> invalidate());
+    }
+
+    public static void invalidate() {
+        cache.clear();
+    }
+
+    /**
+     * 获取结构（首次调用时加载并预计算印章）
+     * @return 结构，加载失败时为 null
+     */
+    public static CachedStructure get(ServerLevel level, String structureName) {
+        return cache.computeIfAbsent(structureName, name -> Optional.ofNullable(load(level, name))).orElse(null);
+    }
+
+    private static CachedStructure load(ServerLevel level, String structureName) {
+        try {
+            CompoundTag nbt = null;
+            // 数据包（包括模组自带资源）中的模板，允许被数据包覆盖
+            Optional<StructureTemplate> template = level.getServer().getStructureManager()
+                    .get(new ResourceLocation("roadweaver", structureName));
+            if (template.isPresent()) {
+                nbt = template.get().save(new CompoundTag());
+            } else {
+                InputStream inputStream = StructureTemplateCache.class.getResourceAsStream("/data/roadweaver/structures/" + structureName + ".nbt");
+                if (inputStream != null) {
+                    try (inputStream) {
+                        nbt = NbtIo.readCompressed(inputStream);
+                    }
+                }
+            }
+            if (nbt == null) {
+                return null;
+            }
+            CachedStructure structure = bake(level.holderLookup(Registries.BLOCK), nbt);
+            LOGGER.debug("Cached structure {} ({} blocks)", structureName, structure.stamps()[0].size());
+            return structure;
+        } catch (Exception e) {
+            LOGGER.warn("Failed to load structure: {} using fallback. Error: {}", structureName, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 解析结构 NBT（第一个调色板）并为四个旋转方向生成印章
+     */
+    private static CachedStructure bake(HolderGetter<Block> blockLookup, CompoundTag nbt) {
+        ListTag sizeTag = nbt.getList("size", Tag.TAG_INT);
+        Vec3i size = new Vec3i(sizeTag.getInt(0), sizeTag.getInt(1), sizeTag.getInt(2));
+
+        ListTag paletteTag = nbt.contains("palettes", Tag.TAG_LIST)
+                ? nbt.getList("palettes", Tag.TAG_LIST).getList(0)
+                : nbt.getList("palette", Tag.TAG_COMPOUND);
+        BlockState[] palette = new BlockState[paletteTag.size()];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = NbtUtils.readBlockState(blockLookup, paletteTag.getCompound(i));
+        }
+
+        List<BlockPos> positions = new ArrayList<>();
+        List<Integer> stateIds = new ArrayList<>();
+        List<CompoundTag> blockEntityTags = new ArrayList<>();
+        boolean hasBlockEntities = false;
+        ListTag blocksTag = nbt.getList("blocks", Tag.TAG_COMPOUND);
+        for (int i = 0; i < blocksTag.size(); i++) {
+            CompoundTag blockTag = blocksTag.getCompound(i);
+            int stateId = blockTag.getInt("state");
+            if (stateId < 0 || stateId >= palette.length || palette[stateId].is(Blocks.STRUCTURE_VOID)) {
+                continue;
+            }
+            ListTag posTag = blockTag.getList("pos", Tag.TAG_INT);
+            positions.add(new BlockPos(posTag.getInt(0), posTag.getInt(1), posTag.getInt(2)));
+            stateIds.add(stateId);
+            CompoundTag blockEntityTag = blockTag.contains("nbt", Tag.TAG_COMPOUND) ? blockTag.getCompound("nbt") : null;
+            blockEntityTags.add(blockEntityTag);
+            hasBlockEntities |= blockEntityTag != null;
+        }
+
+        Stamp[] stamps = new Stamp[Rotation.values().length];
+        for (Rotation rotation : Rotation.values()) {
+            StructurePlaceSettings settings = new StructurePlaceSettings().setMirror(Mirror.NONE).setRotation(rotation);
+            // 旋转后的调色板（与 StructureTemplate.placeInWorld 相同：先镜像后旋转）
+            BlockState[] rotatedPalette = new BlockState[palette.length];
+            for (int i = 0; i < palette.length; i++) {
+                rotatedPalette[i] = palette[i].mirror(Mirror.NONE).rotate(rotation);
+            }
+            int[] offsets = new int[positions.size()];
+            short[] states = new short[positions.size()];
+            for (int i = 0; i < positions.size(); i++) {
+                BlockPos rotated = StructureTemplate.calculateRelativePosition(settings, positions.get(i));
+                offsets[i] = ((rotated.getX() + COORD_BIAS) << (COORD_BITS * 2))
+                        | ((rotated.getY() + COORD_BIAS) << COORD_BITS)
+                        | (rotated.getZ() + COORD_BIAS);
+                states[i] = (short) (int) stateIds.get(i);
+            }
+            CompoundTag[] tags = hasBlockEntities ? blockEntityTags.toArray(new CompoundTag[0]) : null;
+            stamps[rotation.ordinal()] = new Stamp(rotatedPalette, offsets, states, tags);
+        }
+        return new CachedStructure(size, stamps);
+    }
+}
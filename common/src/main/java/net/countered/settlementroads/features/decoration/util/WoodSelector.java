@@ -3,7 +3,6 @@ package net.countered.settlementroads.features.decoration.util;
 import net.countered.settlementroads.helpers.Records;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Holder;
-import net.minecraft.core.registries.Registries;
 import net.minecraft.resources.ResourceKey;
 import net.minecraft.tags.BiomeTags;
 import net.minecraft.world.level.WorldGenLevel;
@@ -11,45 +10,74 @@ import net.minecraft.world.level.biome.Biome;
 import net.minecraft.world.level.biome.Biomes;
 import net.minecraft.world.level.block.Blocks;
 
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * 按生物群系选择装饰木材
+ *
+ * 结果按 Holder&lt;Biome&gt; 缓存（每个生物群系只做一次标签判断），木材组合为共享常量；
+ * 生物群系标签随数据包变化，标签重新绑定后缓存失效。
+ */
 public class WoodSelector {
 
+    private static final Records.WoodAssets BAMBOO = new Records.WoodAssets(Blocks.BAMBOO_FENCE, Blocks.BAMBOO_HANGING_SIGN, Blocks.BAMBOO_PLANKS);
+    private static final Records.WoodAssets JUNGLE = new Records.WoodAssets(Blocks.JUNGLE_FENCE, Blocks.JUNGLE_HANGING_SIGN, Blocks.JUNGLE_PLANKS);
+    private static final Records.WoodAssets ACACIA = new Records.WoodAssets(Blocks.ACACIA_FENCE, Blocks.ACACIA_HANGING_SIGN, Blocks.ACACIA_PLANKS);
+    private static final Records.WoodAssets DARK_OAK = new Records.WoodAssets(Blocks.DARK_OAK_FENCE, Blocks.DARK_OAK_HANGING_SIGN, Blocks.DARK_OAK_PLANKS);
+    private static final Records.WoodAssets CHERRY = new Records.WoodAssets(Blocks.CHERRY_FENCE, Blocks.CHERRY_HANGING_SIGN, Blocks.CHERRY_PLANKS);
+    private static final Records.WoodAssets BIRCH = new Records.WoodAssets(Blocks.BIRCH_FENCE, Blocks.BIRCH_HANGING_SIGN, Blocks.BIRCH_PLANKS);
+    private static final Records.WoodAssets SPRUCE = new Records.WoodAssets(Blocks.SPRUCE_FENCE, Blocks.SPRUCE_HANGING_SIGN, Blocks.SPRUCE_PLANKS);
+    private static final Records.WoodAssets OAK = new Records.WoodAssets(Blocks.OAK_FENCE, Blocks.OAK_HANGING_SIGN, Blocks.OAK_PLANKS);
+
+    private static final Map<Holder<Biome>, Records.WoodAssets> cache = new ConcurrentHashMap<>();
+
+    /**
+     * 标签重新绑定后调用（数据包重新加载监听运行时新标签尚未绑定，不能在那里失效）
+     */
+    public static void invalidate() {
+        cache.clear();
+    }
+
     public static Records.WoodAssets forBiome(WorldGenLevel world, BlockPos pos) {
-        Holder<Biome> biome = world.getBiome(pos);
+        return forBiome(world.getBiome(pos));
+    }
+
+    public static Records.WoodAssets forBiome(Holder<Biome> biome) {
+        return cache.computeIfAbsent(biome, WoodSelector::select);
+    }
+
+    private static Records.WoodAssets select(Holder<Biome> biome) {
         Optional<ResourceKey<Biome>> optionalBiomeRegistryKey = biome.unwrapKey();
-        ResourceKey<Biome> biomeKey;
-
-        if (optionalBiomeRegistryKey.isPresent()) {
-            biomeKey = optionalBiomeRegistryKey.get();
-
-            if (biomeKey == Biomes.BAMBOO_JUNGLE) {
-                return new Records.WoodAssets(Blocks.BAMBOO_FENCE, Blocks.BAMBOO_HANGING_SIGN, Blocks.BAMBOO_PLANKS);
-            }
-            else if (biome.is(BiomeTags.IS_JUNGLE)) { // after Bamboo Jungle
-                return new Records.WoodAssets(Blocks.JUNGLE_FENCE, Blocks.JUNGLE_HANGING_SIGN, Blocks.JUNGLE_PLANKS);
-            }
-            else if (biome.is(BiomeTags.IS_SAVANNA)) {
-                return new Records.WoodAssets(Blocks.ACACIA_FENCE, Blocks.ACACIA_HANGING_SIGN, Blocks.ACACIA_PLANKS);
-            }
-            else if (biomeKey == Biomes.DARK_FOREST) {
-                return new Records.WoodAssets(Blocks.DARK_OAK_FENCE, Blocks.DARK_OAK_HANGING_SIGN, Blocks.DARK_OAK_PLANKS);
-            }
-            else if (biomeKey == Biomes.CHERRY_GROVE) {
-                return new Records.WoodAssets(Blocks.CHERRY_FENCE, Blocks.CHERRY_HANGING_SIGN, Blocks.CHERRY_PLANKS);
-            }
-            else if (biomeKey == Biomes.BIRCH_FOREST || biomeKey == Biomes.OLD_GROWTH_BIRCH_FOREST) {
-                return new Records.WoodAssets(Blocks.BIRCH_FENCE, Blocks.BIRCH_HANGING_SIGN, Blocks.BIRCH_PLANKS);
-            }
-            else if (biome.is(BiomeTags.IS_TAIGA)) {
-                return new Records.WoodAssets(Blocks.SPRUCE_FENCE, Blocks.SPRUCE_HANGING_SIGN, Blocks.SPRUCE_PLANKS);
-            }
-            else {
-                return new Records.WoodAssets(Blocks.OAK_FENCE, Blocks.OAK_HANGING_SIGN, Blocks.OAK_PLANKS);
-            }
+        if (optionalBiomeRegistryKey.isEmpty()) {
+            return OAK;
+        }
+        ResourceKey<Biome> biomeKey = optionalBiomeRegistryKey.get();
+
+        if (biomeKey == Biomes.BAMBOO_JUNGLE) {
+            return BAMBOO;
+        }
+        else if (biome.is(BiomeTags.IS_JUNGLE)) { // after Bamboo Jungle
+            return JUNGLE;
+        }
+        else if (biome.is(BiomeTags.IS_SAVANNA)) {
+            return ACACIA;
+        }
+        else if (biomeKey == Biomes.DARK_FOREST) {
+            return DARK_OAK;
+        }
+        else if (biomeKey == Biomes.CHERRY_GROVE) {
+            return CHERRY;
+        }
+        else if (biomeKey == Biomes.BIRCH_FOREST || biomeKey == Biomes.OLD_GROWTH_BIRCH_FOREST) {
+            return BIRCH;
+        }
+        else if (biome.is(BiomeTags.IS_TAIGA)) {
+            return SPRUCE;
         }
         else {
-            return new Records.WoodAssets(Blocks.OAK_FENCE, Blocks.OAK_HANGING_SIGN, Blocks.OAK_PLANKS);
+            return OAK;
         }
     }
 }
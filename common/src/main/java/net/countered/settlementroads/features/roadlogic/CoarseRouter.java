@@ -0,0 +1,177 @@
+package net.countered.settlementroads.features.roadlogic;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.helpers.async.RoadWorkerPool;
+import net.minecraft.core.BlockPos;
+import net.minecraft.core.Holder;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.tags.BiomeTags;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.biome.Biome;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+
+/**
+ * 两阶段寻路（长距离手动连接）
+ *
+ * 1. 粗略阶段：在 32x32 单元的降采样高度场上做 A*（每个单元只在中心采样高度与水域）
+ * 2. 精细阶段：粗略路线每隔若干单元取一个路点切分为多段，各段用 RoadPathCalculator 在道路工作线程池中并行寻路，
+ *    每段的起点就是上一段的目标路点，拼接后统一构建道路段
+ * 长路线的耗时随核心数缩短，且每段各有独立的步数预算，不会因总距离超出单次搜索的步数上限而失败。
+ */
+public final class CoarseRouter {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    private static final int CELL_SIZE = 32;
+    // 每段包含的粗略单元数（约 256 格）
+    private static final int LEG_CELLS = 8;
+    // 粗略搜索的节点上限
+    private static final int MAX_COARSE_EXPANSIONS = 50_000;
+    // 一个单元相当于多少个精细网格步
+    private static final int FINE_STEPS_PER_CELL = CELL_SIZE / 4;
+
+    private record Cell(int x, int z, int height, Cell parent, double gScore, double fScore) {}
+
+    private CoarseRouter() {}
+
+    /**
+     * @param maxStepsPerLeg 每段精细寻路的步数上限
+     * @return 道路段列表，任一阶段失败时为空
+     */
+    public static List<Records.RoadSegmentPlacement> route(
+            BlockPos start, BlockPos end, int width, ServerLevel serverWorld, int maxStepsPerLeg,
+            int maxHeightDifference, int maxTerrainStability, boolean ignoreWater
+    ) {
+        long startNanos = System.nanoTime();
+        List<BlockPos> coarse = coarseRoute(start, end, serverWorld, maxHeightDifference, ignoreWater);
+        if (coarse.isEmpty()) {
+            LOGGER.debug("Coarse route {} -> {} not found", start, end);
+            return Collections.emptyList();
+        }
+
+        List<BlockPos> waypoints = new ArrayList<>();
+        waypoints.add(start);
+        for (int i = LEG_CELLS; i < coarse.size() - LEG_CELLS / 2; i += LEG_CELLS) {
+            waypoints.add(coarse.get(i));
+        }
+        waypoints.add(end);
+
+        List<Callable<List<BlockPos>>> legs = new ArrayList<>(waypoints.size() - 1);
+        for (int i = 0; i < waypoints.size() - 1; i++) {
+            BlockPos from = waypoints.get(i);
+            BlockPos to = waypoints.get(i + 1);
+            legs.add(() -> RoadPathCalculator.calculateLatticePath(from, to, serverWorld, maxStepsPerLeg,
+                    maxHeightDifference, maxTerrainStability, ignoreWater));
+        }
+        List<List<BlockPos>> refined = RoadWorkerPool.invokeAll(legs);
+
+        List<BlockPos> latticePath = new ArrayList<>();
+        for (int i = 0; i < refined.size(); i++) {
+            List<BlockPos> leg = refined.get(i);
+            if (leg.isEmpty()) {
+                LOGGER.debug("Leg {}/{} of route {} -> {} failed ({} -> {})",
+                        i + 1, refined.size(), start, end, waypoints.get(i), waypoints.get(i + 1));
+                return Collections.emptyList();
+            }
+            // 上一段止于路点附近的网格点，本段从路点出发；相同的网格点只保留一个
+            int from = !latticePath.isEmpty() && sameColumn(latticePath.get(latticePath.size() - 1), leg.get(0)) ? 1 : 0;
+            latticePath.addAll(leg.subList(from, leg.size()));
+        }
+        LOGGER.debug("Two-phase route {} -> {}: {} cells, {} legs, {} lattice nodes in {} ms",
+                start, end, coarse.size(), refined.size(), latticePath.size(), (System.nanoTime() - startNanos) / 1_000_000);
+        return RoadPathCalculator.buildFromLattice(latticePath, width);
+    }
+
+    /**
+     * 粗略 A*：成本按精细网格步换算（基础步数 + 高差 + 水域），平均坡度超过精细寻路高差阈值的单元不可通行
+     * @return 单元中心组成的路线（含起点与终点所在单元），失败时为空
+     */
+    private static List<BlockPos> coarseRoute(BlockPos start, BlockPos end, ServerLevel serverWorld,
+                                              int maxHeightDifference, boolean ignoreWater) {
+        int endX = Math.floorDiv(end.getX(), CELL_SIZE);
+        int endZ = Math.floorDiv(end.getZ(), CELL_SIZE);
+        int startX = Math.floorDiv(start.getX(), CELL_SIZE);
+        int startZ = Math.floorDiv(start.getZ(), CELL_SIZE);
+
+        PriorityQueue<Cell> openSet = new PriorityQueue<>(Comparator.comparingDouble(Cell::fScore));
+        Long2ObjectOpenHashMap<Cell> best = new Long2ObjectOpenHashMap<>();
+        LongOpenHashSet closed = new LongOpenHashSet();
+        Cell startCell = new Cell(startX, startZ, height(startX, startZ, serverWorld), null, 0.0,
+                heuristic(startX, startZ, endX, endZ));
+        openSet.add(startCell);
+        best.put(ChunkPos.asLong(startX, startZ), startCell);
+
+        int expansions = 0;
+        while (!openSet.isEmpty() && expansions++ < MAX_COARSE_EXPANSIONS) {
+            if ((expansions & RoadPathCalculator.CANCEL_CHECK_MASK) == 0 && RoadWorkerPool.isCancelled()) {
+                break;
+            }
+            Cell current = openSet.poll();
+            long key = ChunkPos.asLong(current.x(), current.z());
+            if (!closed.add(key)) continue;
+            if (current.x() == endX && current.z() == endZ) {
+                List<BlockPos> route = new ArrayList<>();
+                for (Cell cell = current; cell != null; cell = cell.parent()) {
+                    route.add(new BlockPos(center(cell.x()), cell.height(), center(cell.z())));
+                }
+                Collections.reverse(route);
+                return route;
+            }
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dz = -1; dz <= 1; dz++) {
+                    if (dx == 0 && dz == 0) continue;
+                    int nx = current.x() + dx;
+                    int nz = current.z() + dz;
+                    long neighborKey = ChunkPos.asLong(nx, nz);
+                    if (closed.contains(neighborKey)) continue;
+                    int height = height(nx, nz, serverWorld);
+                    int elevation = Math.abs(height - current.height());
+                    double steps = (dx != 0 && dz != 0 ? 1.5 : 1.0) * FINE_STEPS_PER_CELL;
+                    if (elevation > maxHeightDifference * steps) continue;
+                    double waterCost = !ignoreWater && isWater(nx, nz, height, serverWorld) ? 50 * 8 * steps : 0;
+                    double tentativeG = current.gScore() + steps + elevation * 40 + waterCost;
+                    Cell neighbor = best.get(neighborKey);
+                    if (neighbor == null || tentativeG < neighbor.gScore()) {
+                        neighbor = new Cell(nx, nz, height, current, tentativeG, tentativeG + heuristic(nx, nz, endX, endZ));
+                        best.put(neighborKey, neighbor);
+                        openSet.add(neighbor);
+                    }
+                }
+            }
+        }
+        return Collections.emptyList();
+    }
+
+    private static double heuristic(int x, int z, int endX, int endZ) {
+        int dx = Math.abs(x - endX);
+        int dz = Math.abs(z - endZ);
+        return (Math.max(dx, dz) + 0.5 * Math.min(dx, dz)) * FINE_STEPS_PER_CELL;
+    }
+
+    private static int height(int cellX, int cellZ, ServerLevel serverWorld) {
+        return RoadPathCalculator.heightSampler(center(cellX), center(cellZ), serverWorld);
+    }
+
+    private static boolean isWater(int cellX, int cellZ, int height, ServerLevel serverWorld) {
+        Holder<Biome> biome = RoadPathCalculator.biomeSampler(new BlockPos(center(cellX), height, center(cellZ)), serverWorld);
+        return biome.is(BiomeTags.IS_RIVER) || biome.is(BiomeTags.IS_OCEAN) || biome.is(BiomeTags.IS_DEEP_OCEAN);
+    }
+
+    private static int center(int cell) {
+        return cell * CELL_SIZE + CELL_SIZE / 2;
+    }
+
+    private static boolean sameColumn(BlockPos a, BlockPos b) {
+        return a.getX() == b.getX() && a.getZ() == b.getZ();
+    }
+}
@@ -1,20 +1,31 @@
 package net.countered.settlementroads.features.roadlogic;
 
+import net.countered.settlementroads.chunk.CorridorGate;
+import net.countered.settlementroads.chunk.RoadOccupancyIndex;
 import net.countered.settlementroads.config.ConfigProvider;
 import net.countered.settlementroads.config.IModConfig;
 import net.countered.settlementroads.features.config.RoadFeatureConfig;
 import net.countered.settlementroads.helpers.Records;
 import net.countered.settlementroads.persistence.WorldDataProvider;
 import net.minecraft.core.BlockPos;
+import net.minecraft.server.MinecraftServer;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.util.RandomSource;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Road {
 
+    // 选择连接时多目标搜索已算出的网格路径，寻路阶段直接使用（不持久化，丢失时重新寻路）
+    private static final int MAX_PRECOMPUTED_PATHS = 256;
+    private static final Map<PathKey, List<BlockPos>> precomputedPaths = new ConcurrentHashMap<>();
+
+    private record PathKey(String world, BlockPos from, BlockPos to) {}
+
     private final ServerLevel serverWorld;
     private final Records.StructureConnection structureConnection;
     private final RoadFeatureConfig context;
@@ -27,63 +38,173 @@ public class Road {
         this.context = config;
     }
 
-    public void generateRoad(int maxSteps){
+    /**
+     * 规划阶段结果：道路宽度、类型、材料与寻路参数
+     */
+    public record Plan(int width, int type, List<BlockState> materials,
+                       int maxHeightDiff, int maxStability, boolean ignoreWater) {}
+
+    public ServerLevel getLevel() {
+        return serverWorld;
+    }
+
+    public Records.StructureConnection getConnection() {
+        return structureConnection;
+    }
+
+    /**
+     * 生成道路（在当前线程中依次执行全部阶段）
+     * 异步生成请使用 {@link RoadPipeline}
+     * @return true 如果道路成功生成并写入世界数据
+     */
+    public boolean generateRoad(int maxSteps){
         // 更新连接状态为"生成中"
         updateConnectionStatus(Records.ConnectionStatus.GENERATING);
 
+        Plan plan = plan();
+        if (plan == null) {
+            CorridorGate.cancel(serverWorld, structureConnection);
+            updateConnectionStatus(Records.ConnectionStatus.FAILED);
+            return false;
+        }
+
+        List<Records.RoadSegmentPlacement> roadSegmentPlacementList = findPath(plan, maxSteps);
+
+        if (roadSegmentPlacementList.isEmpty()) {
+            CorridorGate.cancel(serverWorld, structureConnection);
+            updateConnectionStatus(Records.ConnectionStatus.FAILED);
+            return false;
+        }
+
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        List<Records.RoadData> roadDataList = dataProvider.getRoadDataList(serverWorld);
+        // 创建可变副本以避免 UnsupportedOperationException
+        List<Records.RoadData> mutableList = new ArrayList<>(roadDataList != null ? roadDataList : new ArrayList<>());
+        Records.RoadData roadData = bake(plan, roadSegmentPlacementList);
+        mutableList.add(roadData);
+        dataProvider.setRoadDataList(serverWorld, mutableList);
+        RoadOccupancyIndex.addRoad(serverWorld, roadData);
+        RoadNetwork.addRoad(serverWorld, roadData);
+
+        // 完成
+        updateConnectionStatus(Records.ConnectionStatus.COMPLETED);
+        
+        // ✅ 释放道路覆盖的所有区块（已生成的区块补铺后放行）
+        releaseAffectedChunks(roadData);
+        return true;
+    }
+
+    /**
+     * 规划阶段：随机选择宽度、类型和材料
+     * @return 规划结果，配置不允许任何道路类型时返回 null
+     */
+    public Plan plan() {
         RandomSource random = RandomSource.create();
         int width = getRandomWidth(random, context.getWidths());
 
         IModConfig cfg = ConfigProvider.get();
         int type = allowedRoadTypes(random, cfg);
         if (type == -1) {
-            updateConnectionStatus(Records.ConnectionStatus.FAILED);
-            return;
+            return null;
         }
         List<BlockState> material = (type == 1)
                 ? getRandomMaterials(random, context.getNaturalMaterials())
                 : getRandomMaterials(random, context.getArtificialMaterials());
 
-        BlockPos start = structureConnection.from();
-        BlockPos end = structureConnection.to();
-
         int maxHeightDiff = structureConnection.manual() ? cfg.manualMaxHeightDifference() : cfg.maxHeightDifference();
         int maxStability = structureConnection.manual() ? cfg.manualMaxTerrainStability() : cfg.maxTerrainStability();
         boolean ignoreWater = structureConnection.manual() && cfg.manualIgnoreWater();
+        return new Plan(width, type, material, maxHeightDiff, maxStability, ignoreWater);
+    }
+
+    /**
+     * 寻路阶段：A* 计算道路路径
+     * 自动连接在已有道路通往目标结构时只寻路到道路网络，修建支路
+     * 自动连接在阈值内找不到路径时逐级放宽阈值，在同一次搜索上继续
+     * @return 道路段列表，寻路失败时为空
+     */
+    public List<Records.RoadSegmentPlacement> findPath(Plan plan, int maxSteps) {
+        List<BlockPos> latticePath = precomputedPaths.remove(pathKey(serverWorld, structureConnection));
+        if (latticePath != null) {
+            return RoadPathCalculator.buildFromLattice(latticePath, plan.width());
+        }
+        // 长距离手动连接：粗略路线切段后并行精细寻路
+        int coarseDistance = ConfigProvider.get().coarseRoutingDistance();
+        if (structureConnection.manual() && coarseDistance > 0) {
+            BlockPos from = structureConnection.from();
+            BlockPos to = structureConnection.to();
+            double dx = from.getX() - to.getX();
+            double dz = from.getZ() - to.getZ();
+            if (dx * dx + dz * dz > (double) coarseDistance * coarseDistance) {
+                return CoarseRouter.route(from, to, plan.width(), serverWorld, maxSteps,
+                        plan.maxHeightDiff(), plan.maxStability(), plan.ignoreWater());
+            }
+        }
+        RoadNetwork.Goals networkGoals = !structureConnection.manual() && ConfigProvider.get().routeOntoNetwork()
+                ? RoadNetwork.goalsFor(serverWorld, structureConnection.from(), structureConnection.to())
+                : null;
+        int[][] thresholds = relaxedThresholds(plan);
+        return RoadPathCalculator.calculateRelaxingRoadPath(
+                structureConnection.from(), structureConnection.to(), plan.width(), serverWorld, maxSteps,
+                thresholds[0], thresholds[1], plan.ignoreWater(), networkGoals);
+    }
 
-        List<Records.RoadSegmentPlacement> roadSegmentPlacementList = RoadPathCalculator.calculateAStarRoadPath(
-                start, end, width, serverWorld, maxSteps, maxHeightDiff, maxStability, ignoreWater);
+    /**
+     * 逐级放宽的阈值：自动连接失败时从规划阈值线性放宽到手动连接的阈值，手动连接不再放宽
+     * @return {高差阈值, 地形稳定性阈值}，第一级为规划阈值
+     */
+    private int[][] relaxedThresholds(Plan plan) {
+        IModConfig cfg = ConfigProvider.get();
+        int steps = structureConnection.manual() ? 0 : cfg.thresholdRelaxationSteps();
+        int heightTarget = Math.max(plan.maxHeightDiff(), cfg.manualMaxHeightDifference());
+        int stabilityTarget = Math.max(plan.maxStability(), cfg.manualMaxTerrainStability());
+        if (heightTarget == plan.maxHeightDiff() && stabilityTarget == plan.maxStability()) {
+            steps = 0;
+        }
+        int[] heightDifferences = new int[steps + 1];
+        int[] stabilities = new int[steps + 1];
+        for (int i = 0; i <= steps; i++) {
+            heightDifferences[i] = plan.maxHeightDiff() + (heightTarget - plan.maxHeightDiff()) * i / Math.max(1, steps);
+            stabilities[i] = plan.maxStability() + (stabilityTarget - plan.maxStability()) * i / Math.max(1, steps);
+        }
+        return new int[][]{heightDifferences, stabilities};
+    }
 
-        if (roadSegmentPlacementList.isEmpty()) {
-            updateConnectionStatus(Records.ConnectionStatus.FAILED);
-            return;
+    /**
+     * 登记连接已算出的网格路径，寻路阶段直接使用
+     */
+    public static void offerPrecomputedPath(ServerLevel level, Records.StructureConnection connection, List<BlockPos> latticePath) {
+        if (precomputedPaths.size() >= MAX_PRECOMPUTED_PATHS) {
+            precomputedPaths.clear();
         }
+        precomputedPaths.put(pathKey(level, connection), List.copyOf(latticePath));
+    }
 
-        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
-        List<Records.RoadData> roadDataList = dataProvider.getRoadDataList(serverWorld);
-        // 创建可变副本以避免 UnsupportedOperationException
-        List<Records.RoadData> mutableList = new ArrayList<>(roadDataList != null ? roadDataList : new ArrayList<>());
-        mutableList.add(new Records.RoadData(width, type, material, roadSegmentPlacementList));
-        dataProvider.setRoadDataList(serverWorld, mutableList);
+    private static PathKey pathKey(ServerLevel level, Records.StructureConnection connection) {
+        return new PathKey(level.dimension().location().toString(), connection.from(), connection.to());
+    }
 
-        // 完成
-        updateConnectionStatus(Records.ConnectionStatus.COMPLETED);
-        
-        // ✅ 释放道路覆盖的所有区块
-        releaseAffectedChunks(roadSegmentPlacementList);
+    /**
+     * 烘焙阶段：将规划与路径合成为可持久化的道路数据
+     */
+    public static Records.RoadData bake(Plan plan, List<Records.RoadSegmentPlacement> roadSegments) {
+        return new Records.RoadData(plan.width(), plan.type(), plan.materials(), roadSegments);
     }
     
     /**
      * 释放道路生成覆盖的所有区块
      */
-    private void releaseAffectedChunks(List<Records.RoadSegmentPlacement> roadSegments) {
+    private void releaseAffectedChunks(Records.RoadData roadData) {
         try {
             // 提取所有受影响的区块
             java.util.Set<net.minecraft.world.level.ChunkPos> affectedChunks = 
-                net.countered.settlementroads.chunk.ChunkRoadStateManager.extractAffectedChunks(roadSegments);
+                net.countered.settlementroads.chunk.ChunkRoadStateManager.extractAffectedChunks(roadData.roadSegmentList());
+            
+            // 预测走廊收缩为精确路径覆盖的区块
+            CorridorGate.refine(serverWorld, structureConnection, affectedChunks);
             
-            // 批量标记为已处理
-            net.countered.settlementroads.chunk.ChunkRoadStateManager.markChunksRoadProcessed(serverWorld, affectedChunks);
+            // 道路完成前已生成的区块交给补铺器，补铺后释放持有
+            RoadPaver.enqueue(serverWorld, roadData, affectedChunks);
         } catch (Exception e) {
             // 记录错误但不中断流程
             org.slf4j.LoggerFactory.getLogger("roadweaver")
@@ -92,20 +213,45 @@ public class Road {
     }
 
     private void updateConnectionStatus(Records.ConnectionStatus newStatus) {
+        updateConnectionStatuses(serverWorld, List.of(structureConnection), List.of(newStatus));
+    }
+
+    /**
+     * 批量更新连接状态（一次复制、一次写入）
+     * 连接列表的所有写入都在主线程进行：在其他线程调用时转交主线程执行，
+     * 避免复制-修改-写回与主线程上的写入（新规划的连接、恢复未完成的道路）交错而丢失更新
+     * @param targets 需要更新的连接
+     * @param statuses 与 targets 一一对应的新状态
+     */
+    static void updateConnectionStatuses(ServerLevel level, List<Records.StructureConnection> targets,
+                                         List<Records.ConnectionStatus> statuses) {
+        MinecraftServer server = level.getServer();
+        if (!server.isSameThread()) {
+            // 服务器已停止时 execute 直接在当前线程执行（此时各阶段已在主线程排空）
+            server.execute(() -> updateConnectionStatuses(level, targets, statuses));
+            return;
+        }
         WorldDataProvider dataProvider = WorldDataProvider.getInstance();
-        List<Records.StructureConnection> connections = dataProvider.getStructureConnections(serverWorld);
+        List<Records.StructureConnection> connections = dataProvider.getStructureConnections(level);
         // 创建可变副本以避免 UnsupportedOperationException
         List<Records.StructureConnection> mutableConnections = new ArrayList<>(connections != null ? connections : new ArrayList<>());
         
-        for (int i = 0; i < mutableConnections.size(); i++) {
-            Records.StructureConnection conn = mutableConnections.get(i);
-            if ((conn.from().equals(structureConnection.from()) && conn.to().equals(structureConnection.to())) ||
-                (conn.from().equals(structureConnection.to()) && conn.to().equals(structureConnection.from()))) {
-                mutableConnections.set(i, new Records.StructureConnection(conn.from(), conn.to(), newStatus, conn.manual()));
-                dataProvider.setStructureConnections(serverWorld, mutableConnections);
-                break;
+        boolean changed = false;
+        for (int t = 0; t < targets.size(); t++) {
+            Records.StructureConnection target = targets.get(t);
+            for (int i = 0; i < mutableConnections.size(); i++) {
+                Records.StructureConnection conn = mutableConnections.get(i);
+                if ((conn.from().equals(target.from()) && conn.to().equals(target.to())) ||
+                    (conn.from().equals(target.to()) && conn.to().equals(target.from()))) {
+                    mutableConnections.set(i, new Records.StructureConnection(conn.from(), conn.to(), statuses.get(t), conn.manual()));
+                    changed = true;
+                    break;
+                }
             }
         }
+        if (changed) {
+            dataProvider.setStructureConnections(level, mutableConnections);
+        }
     }
 
     private static int allowedRoadTypes(RandomSource deterministicRandom, IModConfig cfg) {
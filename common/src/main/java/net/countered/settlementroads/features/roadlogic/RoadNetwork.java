@@ -0,0 +1,569 @@
+package net.countered.settlementroads.features.roadlogic;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.longs.Long2LongOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import net.countered.settlementroads.helpers.CompactRoadSegments;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 全局道路网络图
+ *
+ * 道路按提交顺序加入网络：中心线经过的列（x, z）登记到所属道路，
+ * 之后的道路与已有道路重叠或相交时不再拥有这段中心线，而是在进入/离开处生成路口节点，
+ * 并在路口处拆分已有的边，因此重叠路段在网络中只有一条共享的边。
+ * - 边是某条道路上一段连续的自有中心线（段索引区间），不复制坐标
+ * - 铺路（RoadFeature、RoadPaver）跳过已被之前的道路铺设的段，每段共享路段只铺设一次
+ * - 调试地图只发送每条道路的自有路段，共享路段只绘制一次
+ * - 中心线按 4x4 网格单元建立空间索引，寻路可以把已有道路当作终点，只修建接入网络的支路（见 {@link Goals}）
+ * - 网络完全由道路列表及其顺序决定，首次查询时从已持久化的道路列表构建，之后每条新道路持久化时增量加入
+ */
+public final class RoadNetwork {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 道路两端靠近结构的段不铺设
+    private static final int STRUCTURE_CLEARANCE = 60;
+    private static final long NO_OWNER = -1L;
+    // 空间索引的网格单元（与寻路的 4 格网格对齐）
+    private static final int CELL_SHIFT = 2;
+    // 道路端点距结构多近时视为连接到该结构
+    private static final int STRUCTURE_ATTACH_RADIUS = 16;
+
+    /**
+     * 道路的铺设范围
+     * @param covered 已被之前的道路铺设、本道路跳过的段
+     * @param paved 本道路实际铺设的段
+     */
+    public record Paving(BitSet covered, BitSet paved) {}
+
+    /**
+     * 节点：道路端点或路口
+     */
+    private static final class Node {
+        private final BlockPos pos;
+        private int degree = 0;
+
+        private Node(BlockPos pos) {
+            this.pos = pos;
+        }
+    }
+
+    /**
+     * 边：某条道路上 [from, to] 的自有中心线
+     */
+    private static final class Edge {
+        private final int road;
+        private final int from;
+        private int to;
+        private final Node start;
+        private Node end;
+        // 经过这条边的道路数（拥有者 + 共享的道路）
+        private int roads = 1;
+
+        private Edge(int road, int from, int to, Node start, Node end) {
+            this.road = road;
+            this.from = from;
+            this.to = to;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private static final class RoadEntry {
+        private final CompactRoadSegments segments;
+        private final Paving paving;
+        // 是否与已有道路重叠或相交
+        private final boolean shared;
+        // 按 from 排序的自有边
+        private final List<Edge> edges = new ArrayList<>();
+
+        private RoadEntry(CompactRoadSegments segments, Paving paving, boolean shared) {
+            this.segments = segments;
+            this.paving = paving;
+            this.shared = shared;
+        }
+    }
+
+    /**
+     * 单个维度的网络（所有访问都在 synchronized(this) 中进行）
+     */
+    private static final class WorldNetwork {
+        private final List<RoadEntry> roads = new ArrayList<>();
+        // 道路按紧凑段列表的实例识别（持久化列表与补铺任务持有同一实例）
+        private final Map<CompactRoadSegments, RoadEntry> byRoad = new IdentityHashMap<>();
+        // 列 -> 拥有该中心线的道路编号与段索引
+        private final Long2LongOpenHashMap owners = new Long2LongOpenHashMap();
+        // 网格单元 -> 单元内第一条自有中心线（打包的道路编号与段索引）
+        private final Long2LongOpenHashMap cells = new Long2LongOpenHashMap();
+        private final Long2ObjectOpenHashMap<Node> nodes = new Long2ObjectOpenHashMap<>();
+        // 连通分量（按道路编号的并查集）
+        private final IntArrayList parents = new IntArrayList();
+        private int edgeCount = 0;
+
+        private WorldNetwork() {
+            owners.defaultReturnValue(NO_OWNER);
+            cells.defaultReturnValue(NO_OWNER);
+        }
+    }
+
+    private static final Map<String, WorldNetwork> worldNetworks = new ConcurrentHashMap<>();
+
+    private RoadNetwork() {}
+
+    private static WorldNetwork network(ServerLevel level) {
+        return worldNetworks.computeIfAbsent(level.dimension().location().toString(), k -> {
+            WorldNetwork network = new WorldNetwork();
+            List<Records.RoadData> roads = WorldDataProvider.getInstance().getRoadDataList(level);
+            if (roads != null) {
+                for (Records.RoadData road : List.copyOf(roads)) {
+                    add(network, road.segments());
+                }
+                LOGGER.info("🕸️ Road network built: {} roads, {} edges, {} junctions",
+                        network.roads.size(), network.edgeCount, countJunctions(network));
+            }
+            return network;
+        });
+    }
+
+    /**
+     * 道路持久化后调用：把道路加入网络（同一道路重复加入时忽略）
+     */
+    public static void addRoad(ServerLevel level, Records.RoadData road) {
+        WorldNetwork network = network(level);
+        synchronized (network) {
+            add(network, road.segments());
+        }
+    }
+
+    /**
+     * 道路的铺设范围（只读）
+     * @return 不在网络中的道路返回 null
+     */
+    public static Paving paving(ServerLevel level, Records.RoadData road) {
+        WorldNetwork network = network(level);
+        synchronized (network) {
+            RoadEntry entry = network.byRoad.get(road.segments());
+            return entry == null ? null : entry.paving;
+        }
+    }
+
+    /**
+     * 跳过被覆盖的段之后的段序号是否离两端的结构足够远（不在网络中的道路使用）
+     * @param segmentIndex 从 1 开始的段序号
+     */
+    public static boolean clearOfStructures(int segmentIndex, int segmentCount) {
+        return segmentIndex >= STRUCTURE_CLEARANCE && segmentIndex <= segmentCount - STRUCTURE_CLEARANCE;
+    }
+
+    /**
+     * 调试地图使用的道路列表：每条道路只保留自有路段（含两端的路口），
+     * 共享路段之间的间断由地图按距离断开，道路数量与顺序不变
+     */
+    public static List<Records.RoadData> renderView(ServerLevel level, List<Records.RoadData> roads) {
+        WorldNetwork network = network(level);
+        List<Records.RoadData> view = new ArrayList<>(roads.size());
+        synchronized (network) {
+            for (Records.RoadData road : roads) {
+                RoadEntry entry = network.byRoad.get(road.segments());
+                if (entry == null || !entry.shared) {
+                    view.add(road);
+                    continue;
+                }
+                CompactRoadSegments.Builder builder = new CompactRoadSegments.Builder(0, entry.segments.size());
+                for (Edge edge : entry.edges) {
+                    builder.add(edge.start.pos);
+                    for (int i = edge.from; i <= edge.to; i++) {
+                        builder.add(entry.segments.middlePos(i));
+                    }
+                    builder.add(edge.end.pos);
+                }
+                view.add(new Records.RoadData(road.width(), road.roadType(), road.materials(), builder.build()));
+            }
+        }
+        return view;
+    }
+
+    /**
+     * 寻路终点：已通往目标结构的道路网络（连通分量）
+     * 寻路到达其中任意中心线附近即可停止，剩余路程沿已有道路通行
+     */
+    public static final class Goals {
+        private final WorldNetwork network;
+        private final int road;
+
+        private Goals(WorldNetwork network, int road) {
+            this.network = network;
+            this.road = road;
+        }
+
+        /**
+         * 网格节点 (x, z) 周围 8x8 范围内的网络中心线（可在工作线程中调用）
+         * @return 接入点，附近没有目标网络时为 null
+         */
+        public BlockPos attach(int x, int z) {
+            int cellX = x >> CELL_SHIFT;
+            int cellZ = z >> CELL_SHIFT;
+            synchronized (network) {
+                int component = find(network, road);
+                for (int dx = -1; dx <= 0; dx++) {
+                    for (int dz = -1; dz <= 0; dz++) {
+                        long owner = network.cells.get(column(cellX + dx, cellZ + dz));
+                        if (owner != NO_OWNER && find(network, roadOf(owner)) == component) {
+                            return network.roads.get(roadOf(owner)).segments.middlePos(segmentOf(owner));
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 连接 from -> to 的寻路终点
+     * @return 没有道路通往 to，或 from 与 to 已经连通时返回 null（按普通寻路处理）
+     */
+    public static Goals goalsFor(ServerLevel level, BlockPos from, BlockPos to) {
+        WorldNetwork network = network(level);
+        synchronized (network) {
+            int target = roadTouching(network, to);
+            if (target < 0) {
+                return null;
+            }
+            int component = find(network, target);
+            for (int id = 0; id < network.roads.size(); id++) {
+                if (touches(network.roads.get(id).segments, from) && find(network, id) == component) {
+                    return null;
+                }
+            }
+            return new Goals(network, target);
+        }
+    }
+
+    /**
+     * 多目标搜索的网络探针：搜索到达某个候选所在的道路网络时，视为到达该候选
+     */
+    public static final class Probe {
+        /**
+         * @param pos 接入点（网络的中心线）
+         * @param candidates 经该网络可到达的候选索引
+         */
+        public record Hit(BlockPos pos, int[] candidates) {}
+
+        private final WorldNetwork network;
+        // 每个候选连接的一条道路，没有时为 -1
+        private final int[] candidateRoads;
+        // 起点已连接的道路，没有时为 -1（起点自身的网络不算到达）
+        private final int startRoad;
+
+        private Probe(WorldNetwork network, int[] candidateRoads, int startRoad) {
+            this.network = network;
+            this.candidateRoads = candidateRoads;
+            this.startRoad = startRoad;
+        }
+
+        /**
+         * 网格节点 (x, z) 周围 8x8 范围内是否有候选所在的网络（可在工作线程中调用）
+         * @return 命中的网络，没有时为 null
+         */
+        public Hit attach(int x, int z) {
+            int cellX = x >> CELL_SHIFT;
+            int cellZ = z >> CELL_SHIFT;
+            synchronized (network) {
+                int startComponent = startRoad >= 0 ? find(network, startRoad) : -1;
+                for (int dx = -1; dx <= 0; dx++) {
+                    for (int dz = -1; dz <= 0; dz++) {
+                        long owner = network.cells.get(column(cellX + dx, cellZ + dz));
+                        if (owner == NO_OWNER) continue;
+                        int component = find(network, roadOf(owner));
+                        if (component == startComponent) continue;
+                        IntArrayList reached = new IntArrayList();
+                        for (int c = 0; c < candidateRoads.length; c++) {
+                            if (candidateRoads[c] >= 0 && find(network, candidateRoads[c]) == component) {
+                                reached.add(c);
+                            }
+                        }
+                        if (!reached.isEmpty()) {
+                            return new Hit(network.roads.get(roadOf(owner)).segments.middlePos(segmentOf(owner)), reached.toIntArray());
+                        }
+                    }
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 从 start 出发的多目标搜索使用的网络探针
+     * @return 没有候选连接到道路网络时返回 null
+     */
+    public static Probe probe(ServerLevel level, BlockPos start, List<BlockPos> candidates) {
+        WorldNetwork network = network(level);
+        synchronized (network) {
+            int[] candidateRoads = new int[candidates.size()];
+            boolean any = false;
+            for (int c = 0; c < candidates.size(); c++) {
+                candidateRoads[c] = roadTouching(network, candidates.get(c));
+                any |= candidateRoads[c] >= 0;
+            }
+            return any ? new Probe(network, candidateRoads, roadTouching(network, start)) : null;
+        }
+    }
+
+    private static int roadTouching(WorldNetwork network, BlockPos structure) {
+        for (int id = 0; id < network.roads.size(); id++) {
+            if (touches(network.roads.get(id).segments, structure)) {
+                return id;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean touches(CompactRoadSegments segments, BlockPos structure) {
+        int last = segments.size() - 1;
+        return last >= 0 && (near(segments.centerX(0), segments.centerZ(0), structure)
+                || near(segments.centerX(last), segments.centerZ(last), structure));
+    }
+
+    private static boolean near(int x, int z, BlockPos structure) {
+        return Math.abs(x - structure.getX()) <= STRUCTURE_ATTACH_RADIUS
+                && Math.abs(z - structure.getZ()) <= STRUCTURE_ATTACH_RADIUS;
+    }
+
+    /**
+     * 网络中的路口（三条及以上边相交的节点）
+     */
+    public static List<BlockPos> getJunctions(ServerLevel level) {
+        WorldNetwork network = network(level);
+        List<BlockPos> junctions = new ArrayList<>();
+        synchronized (network) {
+            for (Node node : network.nodes.values()) {
+                if (node.degree >= 3) {
+                    junctions.add(node.pos);
+                }
+            }
+        }
+        return junctions;
+    }
+
+    private static void add(WorldNetwork network, CompactRoadSegments segments) {
+        if (network.byRoad.containsKey(segments)) {
+            return;
+        }
+        int roadId = network.roads.size();
+        int count = segments.size();
+        // 每个段对应的已有道路中心线（打包的道路编号与段索引），自有段为 NO_OWNER
+        long[] hits = new long[count];
+        BitSet covered = new BitSet(count);
+        boolean shared = false;
+        for (int i = 0; i < count; i++) {
+            long hit = findOwner(network, segments.centerX(i), segments.centerZ(i));
+            hits[i] = hit;
+            if (hit != NO_OWNER) {
+                shared = true;
+                if (network.roads.get(roadOf(hit)).paving.paved().get(segmentOf(hit))) {
+                    covered.set(i);
+                }
+            }
+        }
+        // 与 RoadFeature 的铺设范围一致：两端各留两段，段序号不计被覆盖的段；
+        // 接入已铺设道路的一端（支路）不是结构，铺到路口为止
+        boolean startJoined = count > 0 && covered.get(0);
+        boolean endJoined = count > 0 && covered.get(count - 1);
+        BitSet paved = new BitSet(count);
+        int segmentIndex = 0;
+        for (int i = 2; i < count - 2; i++) {
+            if (covered.get(i)) continue;
+            segmentIndex++;
+            if ((startJoined || segmentIndex >= STRUCTURE_CLEARANCE)
+                    && (endJoined || segmentIndex <= count - STRUCTURE_CLEARANCE)) {
+                paved.set(i);
+            }
+        }
+        RoadEntry entry = new RoadEntry(segments, new Paving(covered, paved), shared);
+        network.roads.add(entry);
+        network.byRoad.put(segments, entry);
+        network.parents.add(roadId);
+        for (long hit : hits) {
+            if (hit != NO_OWNER) {
+                union(network, roadId, roadOf(hit));
+            }
+        }
+
+        // 自有路段成为新的边，两端接到道路端点或已有道路上的路口
+        int i = 0;
+        while (i < count) {
+            if (hits[i] != NO_OWNER) {
+                i++;
+                continue;
+            }
+            int from = i;
+            while (i + 1 < count && hits[i + 1] == NO_OWNER) {
+                i++;
+            }
+            int to = i;
+            Node start = from == 0 ? node(network, segments.middlePos(0)) : splitAt(network, hits[from - 1]);
+            Node end = to == count - 1 ? node(network, segments.middlePos(to)) : splitAt(network, hits[to + 1]);
+            connect(network, entry, new Edge(roadId, from, to, start, end));
+            i++;
+        }
+        for (int j = 0; j < count; j++) {
+            if (hits[j] == NO_OWNER) {
+                int x = segments.centerX(j);
+                int z = segments.centerZ(j);
+                network.owners.put(column(x, z), pack(roadId, j));
+                network.cells.putIfAbsent(column(x >> CELL_SHIFT, z >> CELL_SHIFT), pack(roadId, j));
+            }
+        }
+
+        // 共享路段：经过的已有边计数加一
+        Edge previous = null;
+        for (int j = 0; j < count; j++) {
+            if (hits[j] == NO_OWNER) {
+                previous = null;
+                continue;
+            }
+            Edge edge = edgeAt(network, hits[j]);
+            if (edge != null && edge != previous) {
+                edge.roads++;
+                previous = edge;
+            }
+        }
+    }
+
+    /**
+     * 查找已有道路的中心线：先查同一列，再查相邻的八列（对角相交的道路可能没有公共的列）
+     */
+    private static long findOwner(WorldNetwork network, int x, int z) {
+        long owner = network.owners.get(column(x, z));
+        if (owner != NO_OWNER) {
+            return owner;
+        }
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0) continue;
+                owner = network.owners.get(column(x + dx, z + dz));
+                // 单格宽的道路只认同一列，避免相邻的平行道路被当作重叠
+                if (owner != NO_OWNER && network.roads.get(roadOf(owner)).segments.radius() > 0) {
+                    return owner;
+                }
+            }
+        }
+        return NO_OWNER;
+    }
+
+    /**
+     * 在已有道路的某个段处取得节点，必要时拆分所在的边
+     */
+    private static Node splitAt(WorldNetwork network, long hit) {
+        RoadEntry owner = network.roads.get(roadOf(hit));
+        int segment = segmentOf(hit);
+        for (int k = 0; k < owner.edges.size(); k++) {
+            Edge edge = owner.edges.get(k);
+            if (segment < edge.from || segment > edge.to) continue;
+            if (segment == edge.from) return edge.start;
+            if (segment == edge.to) return edge.end;
+            Node junction = node(network, owner.segments.middlePos(segment));
+            Edge tail = new Edge(edge.road, segment, edge.to, junction, edge.end);
+            tail.roads = edge.roads;
+            edge.to = segment;
+            edge.end = junction;
+            junction.degree += 2;
+            owner.edges.add(k + 1, tail);
+            network.edgeCount++;
+            return junction;
+        }
+        // 不应发生：登记的中心线总是属于某条边
+        return node(network, owner.segments.middlePos(segment));
+    }
+
+    private static int find(WorldNetwork network, int road) {
+        int root = road;
+        while (network.parents.getInt(root) != root) {
+            root = network.parents.getInt(root);
+        }
+        // 路径压缩
+        while (network.parents.getInt(road) != root) {
+            int next = network.parents.getInt(road);
+            network.parents.set(road, root);
+            road = next;
+        }
+        return root;
+    }
+
+    private static void union(WorldNetwork network, int a, int b) {
+        int rootA = find(network, a);
+        int rootB = find(network, b);
+        if (rootA != rootB) {
+            network.parents.set(Math.max(rootA, rootB), Math.min(rootA, rootB));
+        }
+    }
+
+    private static Edge edgeAt(WorldNetwork network, long hit) {
+        RoadEntry owner = network.roads.get(roadOf(hit));
+        int segment = segmentOf(hit);
+        for (Edge edge : owner.edges) {
+            if (segment >= edge.from && segment <= edge.to) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    private static void connect(WorldNetwork network, RoadEntry entry, Edge edge) {
+        entry.edges.add(edge);
+        edge.start.degree++;
+        edge.end.degree++;
+        network.edgeCount++;
+    }
+
+    private static Node node(WorldNetwork network, BlockPos pos) {
+        return network.nodes.computeIfAbsent(column(pos.getX(), pos.getZ()), k -> new Node(pos.immutable()));
+    }
+
+    private static int countJunctions(WorldNetwork network) {
+        int junctions = 0;
+        for (Node node : network.nodes.values()) {
+            if (node.degree >= 3) {
+                junctions++;
+            }
+        }
+        return junctions;
+    }
+
+    private static long column(int x, int z) {
+        return ChunkPos.asLong(x, z);
+    }
+
+    private static long pack(int road, int segment) {
+        return ((long) road << 32) | (segment & 0xFFFFFFFFL);
+    }
+
+    private static int roadOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static int segmentOf(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * 世界卸载时清理
+     */
+    public static void clearWorld(ServerLevel level) {
+        worldNetworks.remove(level.dimension().location().toString());
+    }
+}
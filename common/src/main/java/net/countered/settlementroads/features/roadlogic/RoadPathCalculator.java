@@ -1,13 +1,19 @@
 package net.countered.settlementroads.features.roadlogic;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import net.countered.settlementroads.config.ConfigProvider;
 import net.countered.settlementroads.config.IModConfig;
+import net.countered.settlementroads.helpers.CompactRoadSegments;
 import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.helpers.async.RoadWorkerPool;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Direction;
 import net.minecraft.core.Holder;
+import net.minecraft.server.level.ServerChunkCache;
 import net.minecraft.server.level.ServerLevel;
 import net.minecraft.tags.BiomeTags;
 import net.minecraft.world.level.biome.Biome;
+import net.minecraft.world.level.biome.BiomeSource;
+import net.minecraft.world.level.biome.Climate;
 import net.minecraft.world.level.levelgen.Heightmap;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,10 +26,25 @@ public class RoadPathCalculator {
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
 
     private static final int NEIGHBOR_DISTANCE = 4;
+    // 每展开 256 个节点检查一次任务是否已取消
+    static final int CANCEL_CHECK_MASK = 0xFF;
 
     // Cache for height values, mapping hashed (x, z) to height (y)
     public static final Map<Long, Integer> heightCache = new ConcurrentHashMap<>();
 
+    // 地形稳定性场：每个 16x16 图块（4x4 个网格点，与区块对齐）一个数组，按图块坐标索引
+    private static final int TILE_NODES = 4;
+    private static final int TILE_SIZE = TILE_NODES * NEIGHBOR_DISTANCE;
+    private static final Map<Long, int[]> stabilityTiles = new ConcurrentHashMap<>();
+
+    /**
+     * 清空高度缓存与地形稳定性场
+     */
+    public static void clearHeightCache() {
+        heightCache.clear();
+        stabilityTiles.clear();
+    }
+
     private static long hashXZ(int x, int z) {
         return ((long) x << 32) | (z & 0xFFFFFFFFL);
     }
@@ -49,111 +70,546 @@ public class RoadPathCalculator {
             BlockPos start, BlockPos end, int width, ServerLevel serverWorld, int maxSteps,
             int maxHeightDifference, int maxTerrainStability, boolean ignoreWater
     ) {
-        PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(n -> n.fScore));
-        Map<BlockPos, Node> allNodes = new HashMap<>();
-        Set<BlockPos> closedSet = new HashSet<>();
-        Map<BlockPos, List<BlockPos>> interpolatedSegments = new HashMap<>();
+        return calculateAStarRoadPath(start, end, width, serverWorld, maxSteps,
+                maxHeightDifference, maxTerrainStability, ignoreWater, null);
+    }
+
+    /**
+     * @param networkGoals 已通往终点的道路网络，可为 null；
+     *                     到达网络附近即停止，返回从起点接入网络的支路（最后一段连接到网络的中心线）
+     */
+    public static List<Records.RoadSegmentPlacement> calculateAStarRoadPath(
+            BlockPos start, BlockPos end, int width, ServerLevel serverWorld, int maxSteps,
+            int maxHeightDifference, int maxTerrainStability, boolean ignoreWater,
+            RoadNetwork.Goals networkGoals
+    ) {
+        Node endNode = search(start, end, serverWorld, maxSteps, maxHeightDifference, maxTerrainStability, ignoreWater, networkGoals);
+        return endNode == null ? Collections.emptyList() : buildFromLattice(latticePath(endNode), width);
+    }
+
+    /**
+     * A* 寻路，只返回网格路径（起点到终点附近的网格点），供分段寻路拼接
+     * @return 网格路径，寻路失败时为空
+     */
+    public static List<BlockPos> calculateLatticePath(
+            BlockPos start, BlockPos end, ServerLevel serverWorld, int maxSteps,
+            int maxHeightDifference, int maxTerrainStability, boolean ignoreWater
+    ) {
+        Node endNode = search(start, end, serverWorld, maxSteps, maxHeightDifference, maxTerrainStability, ignoreWater, null);
+        return endNode == null ? Collections.emptyList() : latticePath(endNode);
+    }
 
-        int startX = snapToGrid(start.getX(), NEIGHBOR_DISTANCE);
-        int startZ = snapToGrid(start.getZ(), NEIGHBOR_DISTANCE);
-        int endX = snapToGrid(end.getX(), NEIGHBOR_DISTANCE);
-        int endZ = snapToGrid(end.getZ(), NEIGHBOR_DISTANCE);
+    /**
+     * 约束逐级放宽的 A*
+     * 先以第一组阈值搜索，失败后依次放宽到后续阈值，在同一次搜索上继续（复用已展开的节点、g 值与高度缓存），
+     * 每次放宽只追加 maxSteps / 2 的步数预算
+     * @param maxHeightDifferences 逐级的高差阈值（非递减）
+     * @param maxTerrainStabilities 逐级的地形稳定性阈值（非递减，与高差阈值一一对应）
+     * @return 道路段列表，所有级别都失败时为空
+     */
+    public static List<Records.RoadSegmentPlacement> calculateRelaxingRoadPath(
+            BlockPos start, BlockPos end, int width, ServerLevel serverWorld, int maxSteps,
+            int[] maxHeightDifferences, int[] maxTerrainStabilities, boolean ignoreWater,
+            RoadNetwork.Goals networkGoals
+    ) {
+        LatticeSearch search = new LatticeSearch(start, end, serverWorld, ignoreWater, networkGoals,
+                maxHeightDifferences[0], maxTerrainStabilities[0]);
+        Node endNode = search.run(maxSteps);
+        for (int level = 1; endNode == null && level < maxHeightDifferences.length && !RoadWorkerPool.isCancelled(); level++) {
+            search.relax(maxHeightDifferences[level], maxTerrainStabilities[level]);
+            LOGGER.debug("Relaxed path {} -> {} to height difference {} / stability {} after {} expansions",
+                    start, end, maxHeightDifferences[level], maxTerrainStabilities[level], search.expansions);
+            endNode = search.run(maxSteps / 2);
+        }
+        return endNode == null ? Collections.emptyList() : buildFromLattice(latticePath(endNode), width);
+    }
 
-        start = new BlockPos(startX, start.getY(), startZ);
-        end = new BlockPos(endX, end.getY(), endZ);
+    /**
+     * A* 主循环（插值点由网格路径在构建道路段时重新计算）
+     * @return 终点节点，寻路失败时为 null
+     */
+    private static Node search(
+            BlockPos start, BlockPos end, ServerLevel serverWorld, int maxSteps,
+            int maxHeightDifference, int maxTerrainStability, boolean ignoreWater,
+            RoadNetwork.Goals networkGoals
+    ) {
+        return new LatticeSearch(start, end, serverWorld, ignoreWater, networkGoals,
+                maxHeightDifference, maxTerrainStability).run(maxSteps);
+    }
 
-        BlockPos startGround = new BlockPos(start.getX(), heightSampler(start.getX(), start.getZ(), serverWorld), start.getZ());
-        BlockPos endGround = new BlockPos(end.getX(), heightSampler(end.getX(), end.getZ(), serverWorld), end.getZ());
+    /**
+     * 可放宽约束的 A* 搜索状态
+     *
+     * 阈值只决定哪些边可以通行，不影响边的成本，因此放宽阈值后已展开的节点与 g 值仍然有效：
+     * 只需重新评估之前因阈值被拒绝的边，得到改进的节点重新加入开放列表（已关闭的节点重新打开），
+     * 然后在原来的开放列表上继续搜索，而不是从起点重来。
+     *
+     * 搜索配置（pathSearchEpsilon / anytimePathSearch）：
+     * - 加权 A*：f = g + ε·h，h 是一致的剩余成本下界，找到的路径成本不超过最优路径的 ε 倍
+     * - ARA*：找到第一条路径后将 ε 减半，把本轮中改进过的已关闭节点（INCONS）放回开放列表，
+     *   在剩余步数内继续改进，直到 ε = 1 或步数用尽；每轮路径成本不增，界限 ε' 随之收紧
+     */
+    private static final class LatticeSearch {
+        private static final int[][] NEIGHBOR_OFFSETS = {
+                {NEIGHBOR_DISTANCE, 0}, {-NEIGHBOR_DISTANCE, 0}, {0, NEIGHBOR_DISTANCE}, {0, -NEIGHBOR_DISTANCE},
+                {NEIGHBOR_DISTANCE, NEIGHBOR_DISTANCE}, {NEIGHBOR_DISTANCE, -NEIGHBOR_DISTANCE},
+                {-NEIGHBOR_DISTANCE, NEIGHBOR_DISTANCE}, {-NEIGHBOR_DISTANCE, -NEIGHBOR_DISTANCE}
+        };
 
-        Node startNode = new Node(startGround, null, 0.0, heuristic(startGround, endGround));
+        private final ServerLevel serverWorld;
+        private final boolean ignoreWater;
+        private final RoadNetwork.Goals networkGoals;
+        private final BlockPos startGround;
+        private final BlockPos endGround;
+        private final PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(n -> n.fScore));
+        // 每个网格点当前最优的节点（包括已关闭的节点，放宽后据此判断能否改进）
+        private final Map<BlockPos, Node> allNodes = new HashMap<>();
+        private final Set<BlockPos> closedSet = new HashSet<>();
+        // 因阈值被拒绝的边：起点网格点 + 邻居偏移
+        private final List<Blocked> blocked = new ArrayList<>();
+        // ARA*：本轮中已关闭后又得到改进的节点，下一轮再展开
+        private final List<Node> incons = new ArrayList<>();
+        private final boolean anytime;
+        private double epsilon;
+        private int maxHeightDifference;
+        private int maxTerrainStability;
+        // 放宽后允许重新打开已关闭的节点
+        private boolean reopen = false;
+        // 目前最好的路径终点
+        private Node solution = null;
+        int expansions = 0;
+
+        private record Blocked(BlockPos from, int[] offset) {}
+
+        LatticeSearch(BlockPos start, BlockPos end, ServerLevel serverWorld, boolean ignoreWater,
+                      RoadNetwork.Goals networkGoals, int maxHeightDifference, int maxTerrainStability) {
+            this.serverWorld = serverWorld;
+            this.ignoreWater = ignoreWater;
+            this.networkGoals = networkGoals;
+            this.maxHeightDifference = maxHeightDifference;
+            this.maxTerrainStability = maxTerrainStability;
+            IModConfig cfg = ConfigProvider.get();
+            this.epsilon = Math.max(1, cfg.pathSearchEpsilon());
+            this.anytime = cfg.anytimePathSearch();
+
+            int startX = snapToGrid(start.getX(), NEIGHBOR_DISTANCE);
+            int startZ = snapToGrid(start.getZ(), NEIGHBOR_DISTANCE);
+            int endX = snapToGrid(end.getX(), NEIGHBOR_DISTANCE);
+            int endZ = snapToGrid(end.getZ(), NEIGHBOR_DISTANCE);
+
+            this.startGround = new BlockPos(startX, heightSampler(startX, startZ, serverWorld), startZ);
+            this.endGround = new BlockPos(endX, heightSampler(endX, endZ, serverWorld), endZ);
+
+            Node startNode = new Node(startGround, null, 0.0, epsilon * heuristic(startGround, endGround));
+            openSet.add(startNode);
+            allNodes.put(startGround, startNode);
+        }
+
+        /**
+         * 继续搜索（加权 A* 找到第一条路径即返回；ARA* 在步数内继续改进）
+         * @return 终点节点，步数用尽或开放列表为空时为 null
+         */
+        Node run(int maxSteps) {
+            int budget = improvePath(maxSteps);
+            while (anytime && solution != null && epsilon > 1.0 && budget > 0) {
+                epsilon = Math.max(1.0, epsilon / 2);
+                restart();
+                budget = improvePath(budget);
+            }
+            if (solution != null) {
+                LOGGER.debug("Path search {} -> {}: {} expansions, cost {}, suboptimality bound {}",
+                        startGround, endGround, expansions, String.format("%.1f", solution.gScore),
+                        String.format("%.2f", bound()));
+            }
+            return solution;
+        }
+
+        /**
+         * 展开节点直到到达终点（或道路网络），开放列表为空或步数用尽
+         * @return 剩余步数
+         */
+        private int improvePath(int budget) {
+            while (!openSet.isEmpty() && budget > 0) {
+                // 任务被取消（世界卸载/服务器停止）时放弃剩余步数
+                if ((expansions & CANCEL_CHECK_MASK) == 0 && RoadWorkerPool.isCancelled()) {
+                    return 0;
+                }
+                Node current = openSet.poll();
+                // 已被更优的节点取代
+                if (allNodes.get(current.pos) != current || closedSet.contains(current.pos)) continue;
+                // ARA*：开放列表中已没有能改进当前路径的节点，本轮结束
+                if (solution != null && current.fScore >= solution.gScore) {
+                    openSet.add(current);
+                    return budget;
+                }
+                budget--;
+                expansions++;
+
+                if (current.pos.offset(0, -current.pos.getY(), 0).distManhattan(endGround.offset(0, -endGround.getY(), 0)) < NEIGHBOR_DISTANCE * 2) {
+                    LOGGER.debug("Found path! {}", current.pos);
+                    offerSolution(current);
+                    return budget;
+                }
+
+                // 🕸️ 到达已通往终点的道路网络：补上接入网络中心线的最后一段，作为支路返回
+                if (networkGoals != null && current.parent != null) {
+                    BlockPos attach = networkGoals.attach(current.pos.getX(), current.pos.getZ());
+                    if (attach != null) {
+                        LOGGER.debug("Reached road network at {}", attach);
+                        offerSolution(new Node(attach, current, current.gScore, current.gScore));
+                        return budget;
+                    }
+                }
+
+                closedSet.add(current.pos);
+
+                for (int[] offset : NEIGHBOR_OFFSETS) {
+                    expand(current, offset);
+                }
+            }
+            return budget;
+        }
+
+        private void offerSolution(Node end) {
+            if (solution == null || end.gScore < solution.gScore) {
+                solution = end;
+            }
+        }
+
+        /**
+         * ARA*：以新的 ε 重建开放列表（开放节点 + INCONS），清空关闭列表
+         */
+        private void restart() {
+            List<Node> pending = new ArrayList<>(incons);
+            incons.clear();
+            for (Node node : openSet) {
+                if (allNodes.get(node.pos) == node && !closedSet.contains(node.pos)) {
+                    pending.add(node);
+                }
+            }
+            openSet.clear();
+            closedSet.clear();
+            for (Node node : pending) {
+                node.fScore = node.gScore + epsilon * heuristic(node.pos, endGround);
+                openSet.add(node);
+            }
+        }
+
+        /**
+         * 次优界限：加权 A* 为 ε；ARA* 为 min(ε, g(终点) / min(g + h))，后者取开放列表与 INCONS 中的节点
+         */
+        private double bound() {
+            if (!anytime) {
+                return epsilon;
+            }
+            double lowest = Double.MAX_VALUE;
+            for (Node node : openSet) {
+                if (allNodes.get(node.pos) == node && !closedSet.contains(node.pos)) {
+                    lowest = Math.min(lowest, node.gScore + heuristic(node.pos, endGround));
+                }
+            }
+            for (Node node : incons) {
+                lowest = Math.min(lowest, node.gScore + heuristic(node.pos, endGround));
+            }
+            if (lowest == Double.MAX_VALUE || lowest <= 0) {
+                return lowest == Double.MAX_VALUE ? 1.0 : epsilon;
+            }
+            return Math.max(1.0, Math.min(epsilon, solution.gScore / lowest));
+        }
+
+        /**
+         * 放宽阈值，重新评估之前被拒绝的边（仍被拒绝的边保留到下一次放宽）
+         */
+        void relax(int maxHeightDifference, int maxTerrainStability) {
+            this.maxHeightDifference = maxHeightDifference;
+            this.maxTerrainStability = maxTerrainStability;
+            this.reopen = true;
+            List<Blocked> pending = new ArrayList<>(blocked);
+            blocked.clear();
+            for (Blocked edge : pending) {
+                expand(allNodes.get(edge.from()), edge.offset());
+            }
+        }
+
+        private void expand(Node current, int[] offset) {
+            int nx = current.pos.getX() + offset[0];
+            int nz = current.pos.getZ() + offset[1];
+            BlockPos neighborPos = new BlockPos(nx, heightSampler(nx, nz, serverWorld), nz);
+            boolean closed = closedSet.contains(neighborPos);
+            if (closed && !reopen && !anytime) return;
+
+            double moveCost = moveCost(current.pos, neighborPos, offset, serverWorld,
+                    maxHeightDifference, maxTerrainStability, ignoreWater);
+            if (moveCost < 0) {
+                blocked.add(new Blocked(current.pos, offset));
+                return;
+            }
+            double tentativeG = current.gScore + moveCost;
+
+            Node neighbor = allNodes.get(neighborPos);
+            if (neighbor == null || tentativeG < neighbor.gScore) {
+                double h = heuristic(neighborPos, endGround);
+                neighbor = new Node(neighborPos, current, tentativeG, tentativeG + epsilon * h);
+                allNodes.put(neighborPos, neighbor);
+                if (closed && anytime && !reopen) {
+                    // ARA*：本轮不再展开已关闭的节点，留到下一轮
+                    incons.add(neighbor);
+                } else {
+                    closedSet.remove(neighborPos);
+                    openSet.add(neighbor);
+                }
+            }
+        }
+    }
+
+    /**
+     * 多目标搜索到达的候选
+     * @param candidate 候选在输入列表中的索引
+     * @param cost 实际路径成本
+     * @param latticePath 网格路径（起点到终点；经道路网络到达时终点是网络的中心线）
+     */
+    public record ReachedTarget(int candidate, double cost, List<BlockPos> latticePath) {}
+
+    /**
+     * 多目标 Dijkstra：从起点展开一个成本场，到达 k 个候选（结构本身，或已通往候选的道路网络）后停止，
+     * 一次搜索得到所有已到达候选的真实路径成本与路径
+     * @param networkProbe 候选所在的道路网络，可为 null
+     * @return 按成本从低到高排列的已到达候选（步数用尽时可能少于 k 个）
+     */
+    public static List<ReachedTarget> calculateMultiTargetPaths(
+            BlockPos start, List<BlockPos> candidates, int k, ServerLevel serverWorld, int maxSteps,
+            int maxHeightDifference, int maxTerrainStability, boolean ignoreWater,
+            RoadNetwork.Probe networkProbe
+    ) {
+        List<ReachedTarget> reached = new ArrayList<>();
+        if (candidates.isEmpty() || k <= 0) {
+            return reached;
+        }
+        // 与 A* 的终止条件一致：曼哈顿距离小于两格网格步长的网格点视为到达候选
+        Map<Long, List<Integer>> candidateCells = new HashMap<>();
+        int d = NEIGHBOR_DISTANCE;
+        int[][] arrivalOffsets = {{0, 0}, {d, 0}, {-d, 0}, {0, d}, {0, -d}};
+        for (int c = 0; c < candidates.size(); c++) {
+            int x = snapToGrid(candidates.get(c).getX(), d);
+            int z = snapToGrid(candidates.get(c).getZ(), d);
+            for (int[] offset : arrivalOffsets) {
+                candidateCells.computeIfAbsent(hashXZ(x + offset[0], z + offset[1]), key -> new ArrayList<>()).add(c);
+            }
+        }
+        boolean[] done = new boolean[candidates.size()];
+
+        PriorityQueue<Node> openSet = new PriorityQueue<>(Comparator.comparingDouble(n -> n.gScore));
+        Map<BlockPos, Node> allNodes = new HashMap<>();
+        Set<BlockPos> closedSet = new HashSet<>();
+
+        int startX = snapToGrid(start.getX(), d);
+        int startZ = snapToGrid(start.getZ(), d);
+        BlockPos startGround = new BlockPos(startX, heightSampler(startX, startZ, serverWorld), startZ);
+        Node startNode = new Node(startGround, null, 0.0, 0.0);
         openSet.add(startNode);
         allNodes.put(startGround, startNode);
 
-        int d = NEIGHBOR_DISTANCE;
         int[][] neighborOffsets = {
                 {d, 0}, {-d, 0}, {0, d}, {0, -d},
                 {d, d}, {d, -d}, {-d, d}, {-d, -d}
         };
 
-        while (!openSet.isEmpty() && maxSteps-- > 0) {
+        while (!openSet.isEmpty() && maxSteps-- > 0 && reached.size() < k) {
+            if ((maxSteps & CANCEL_CHECK_MASK) == 0 && RoadWorkerPool.isCancelled()) {
+                break;
+            }
             Node current = openSet.poll();
-
-            if (current.pos.offset(0, -current.pos.getY(), 0).distManhattan(endGround.offset(0, -endGround.getY(), 0)) < NEIGHBOR_DISTANCE * 2) {
-                LOGGER.debug("Found path! {}", current.pos);
-                return reconstructPath(current, width, interpolatedSegments);
+            if (closedSet.contains(current.pos)) continue;
+
+            List<Integer> arrived = candidateCells.get(hashXZ(current.pos.getX(), current.pos.getZ()));
+            if (arrived != null) {
+                for (int c : arrived) {
+                    if (!done[c] && reached.size() < k) {
+                        done[c] = true;
+                        reached.add(new ReachedTarget(c, current.gScore, latticePath(current)));
+                    }
+                }
+            }
+            if (networkProbe != null && current.parent != null) {
+                RoadNetwork.Probe.Hit hit = networkProbe.attach(current.pos.getX(), current.pos.getZ());
+                if (hit != null) {
+                    for (int c : hit.candidates()) {
+                        if (!done[c] && reached.size() < k) {
+                            done[c] = true;
+                            Node attachNode = new Node(hit.pos(), current, current.gScore, current.gScore);
+                            reached.add(new ReachedTarget(c, current.gScore, latticePath(attachNode)));
+                        }
+                    }
+                }
             }
 
             closedSet.add(current.pos);
-            allNodes.remove(current.pos);
 
             for (int[] offset : neighborOffsets) {
-                BlockPos neighborXZ = current.pos.offset(offset[0], 0, offset[1]);
-                int y = heightSampler(neighborXZ.getX(), neighborXZ.getZ(), serverWorld);
-                BlockPos neighborPos = new BlockPos(neighborXZ.getX(), y, neighborXZ.getZ());
+                int nx = current.pos.getX() + offset[0];
+                int nz = current.pos.getZ() + offset[1];
+                BlockPos neighborPos = new BlockPos(nx, heightSampler(nx, nz, serverWorld), nz);
                 if (closedSet.contains(neighborPos)) continue;
-
-                Holder<Biome> biomeHolder = biomeSampler(neighborPos, serverWorld);
-                boolean isWater = biomeHolder.is(BiomeTags.IS_RIVER)
-                        || biomeHolder.is(BiomeTags.IS_OCEAN)
-                        || biomeHolder.is(BiomeTags.IS_DEEP_OCEAN);
-                // 水域成本：50 * 8 = 400（与原项目一致）
-                // 如果绕路成本更高（距离远、高度差大），仍会选择穿过水域
-                // 手动模式且忽略水域时，水域成本为 0（用于跨海连接）
-                int biomeCost = (isWater && !ignoreWater) ? 50 : 0;
-                int elevation = Math.abs(y - current.pos.getY());
-                if (elevation > maxHeightDifference) {
-                    continue;
-                }
-                int offsetSum = Math.abs(Math.abs(offset[0])) + Math.abs(offset[1]);
-                double stepCost = (offsetSum == 2 * NEIGHBOR_DISTANCE) ? 1.5 : 1;
-                int terrainStabilityCost = calculateTerrainStability(neighborPos, y, serverWorld);
-                if (terrainStabilityCost > maxTerrainStability) {
-                    continue;
-                }
-                int yLevelCost = y == serverWorld.getSeaLevel() ? 20 : 0;
-                double tentativeG = current.gScore + stepCost
-                        + elevation * 40
-                        + biomeCost * 8
-                        + yLevelCost * 8
-                        + terrainStabilityCost * 16;
-
+                double moveCost = moveCost(current.pos, neighborPos, offset, serverWorld,
+                        maxHeightDifference, maxTerrainStability, ignoreWater);
+                if (moveCost < 0) continue;
+                double tentativeG = current.gScore + moveCost;
                 Node neighbor = allNodes.get(neighborPos);
                 if (neighbor == null || tentativeG < neighbor.gScore) {
-                    double h = heuristic(neighborPos, endGround);
-                    neighbor = new Node(neighborPos, current, tentativeG, tentativeG + h);
+                    neighbor = new Node(neighborPos, current, tentativeG, tentativeG);
                     allNodes.put(neighborPos, neighbor);
                     openSet.add(neighbor);
-
-                    List<BlockPos> segmentPoints = new ArrayList<>();
-                    for (int i = 1; i < NEIGHBOR_DISTANCE; i++) {
-                        int interpX = current.pos.getX() + (offset[0] * i) / NEIGHBOR_DISTANCE;
-                        int interpZ = current.pos.getZ() + (offset[1] * i) / NEIGHBOR_DISTANCE;
-                        BlockPos interpolated = new BlockPos(interpX, current.pos.getY(), interpZ);
-                        segmentPoints.add(interpolated);
-                    }
-                    interpolatedSegments.put(neighborPos, segmentPoints);
                 }
             }
         }
-        return Collections.emptyList();
+        reached.sort(Comparator.comparingDouble(ReachedTarget::cost));
+        LOGGER.debug("Multi-target search from {} reached {}/{} candidates ({} nodes closed)",
+                startGround, reached.size(), Math.min(k, candidates.size()), closedSet.size());
+        return reached;
+    }
+
+    /**
+     * 由网格路径（例如多目标搜索的结果）构建道路段
+     */
+    public static List<Records.RoadSegmentPlacement> buildFromLattice(List<BlockPos> latticePath, int width) {
+        if (latticePath.isEmpty()) {
+            return Collections.emptyList();
+        }
+        Map<BlockPos, List<BlockPos>> interpolatedSegments = new HashMap<>();
+        Node node = new Node(latticePath.get(0), null, 0.0, 0.0);
+        for (int i = 1; i < latticePath.size(); i++) {
+            BlockPos pos = latticePath.get(i);
+            interpolatedSegments.put(pos, interpolate(node.pos, pos.getX() - node.pos.getX(), pos.getZ() - node.pos.getZ()));
+            node = new Node(pos, node, 0.0, 0.0);
+        }
+        return reconstructPath(node, width, interpolatedSegments);
+    }
+
+    private static List<BlockPos> latticePath(Node end) {
+        List<BlockPos> path = new ArrayList<>();
+        for (Node node = end; node != null; node = node.parent) {
+            path.add(node.pos);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * 网格上一步的成本
+     * @return 成本，不可通行（高差或地形稳定性超出阈值）时为 -1
+     */
+    private static double moveCost(BlockPos from, BlockPos neighborPos, int[] offset, ServerLevel serverWorld,
+                                   int maxHeightDifference, int maxTerrainStability, boolean ignoreWater) {
+        int y = neighborPos.getY();
+        int elevation = Math.abs(y - from.getY());
+        if (elevation > maxHeightDifference) {
+            return -1;
+        }
+        int terrainStabilityCost = calculateTerrainStability(neighborPos, y, serverWorld);
+        if (terrainStabilityCost > maxTerrainStability) {
+            return -1;
+        }
+        Holder<Biome> biomeHolder = biomeSampler(neighborPos, serverWorld);
+        boolean isWater = biomeHolder.is(BiomeTags.IS_RIVER)
+                || biomeHolder.is(BiomeTags.IS_OCEAN)
+                || biomeHolder.is(BiomeTags.IS_DEEP_OCEAN);
+        // 水域成本：50 * 8 = 400（与原项目一致）
+        // 如果绕路成本更高（距离远、高度差大），仍会选择穿过水域
+        // 手动模式且忽略水域时，水域成本为 0（用于跨海连接）
+        int biomeCost = (isWater && !ignoreWater) ? 50 : 0;
+        int offsetSum = Math.abs(offset[0]) + Math.abs(offset[1]);
+        double stepCost = (offsetSum == 2 * NEIGHBOR_DISTANCE) ? 1.5 : 1;
+        int yLevelCost = y == serverWorld.getSeaLevel() ? 20 : 0;
+        return stepCost
+                + elevation * 40
+                + biomeCost * 8
+                + yLevelCost * 8
+                + terrainStabilityCost * 16;
     }
 
+    /**
+     * 从 from 到 from + (dx, dz) 之间的插值点（不含两端）
+     */
+    private static List<BlockPos> interpolate(BlockPos from, int dx, int dz) {
+        List<BlockPos> segmentPoints = new ArrayList<>();
+        for (int i = 1; i < NEIGHBOR_DISTANCE; i++) {
+            int interpX = from.getX() + (dx * i) / NEIGHBOR_DISTANCE;
+            int interpZ = from.getZ() + (dz * i) / NEIGHBOR_DISTANCE;
+            segmentPoints.add(new BlockPos(interpX, from.getY(), interpZ));
+        }
+        return segmentPoints;
+    }
+
+    /**
+     * 剩余成本的一致下界（以网格步成本计）：每步至少 1（直行）或 1.5（对角），
+     * 到达条件是距终点一个直行网格步以内，因此减去 1
+     */
     private static double heuristic(BlockPos a, BlockPos b) {
-        int dx = a.getX() - b.getX();
-        int dz = a.getZ() - b.getZ();
-        double dxzApprox = Math.abs(dx) + Math.abs(dz) - 0.6 * Math.min(Math.abs(dx), Math.abs(dz));
-        return dxzApprox * 30;
+        int dx = Math.abs(a.getX() - b.getX()) / NEIGHBOR_DISTANCE;
+        int dz = Math.abs(a.getZ() - b.getZ()) / NEIGHBOR_DISTANCE;
+        return Math.max(0.0, Math.max(dx, dz) + 0.5 * Math.min(dx, dz) - 1);
     }
 
+    /**
+     * 地形稳定性：网格点与四个直行网格邻居的高差之和按网格步长折算到每格（四舍五入），
+     * 对线性坡面与原来按 ±1 格采样的结果相同。
+     * 网格点上 O(1) 查表；不在网格上的位置按 ±1 格采样。
+     */
     private static int calculateTerrainStability(BlockPos neighborPos, int y, ServerLevel serverWorld) {
-        int cost = 0;
-        for (Direction direction : Direction.Plane.HORIZONTAL) {
-            BlockPos testPos = neighborPos.relative(direction);
-            int testY = heightSampler(testPos.getX(), testPos.getZ(), serverWorld);
-            int elevation = Math.abs(y - testY);
-            cost += elevation;
+        int x = neighborPos.getX();
+        int z = neighborPos.getZ();
+        if (((x | z) & (NEIGHBOR_DISTANCE - 1)) != 0) {
+            int cost = 0;
+            for (Direction direction : Direction.Plane.HORIZONTAL) {
+                BlockPos testPos = neighborPos.relative(direction);
+                cost += Math.abs(y - heightSampler(testPos.getX(), testPos.getZ(), serverWorld));
+            }
+            return cost;
+        }
+        int tileX = Math.floorDiv(x, TILE_SIZE);
+        int tileZ = Math.floorDiv(z, TILE_SIZE);
+        long key = hashXZ(tileX, tileZ);
+        int[] tile = stabilityTiles.get(key);
+        if (tile == null) {
+            tile = computeStabilityTile(tileX, tileZ, serverWorld);
+            int[] existing = stabilityTiles.putIfAbsent(key, tile);
+            if (existing != null) {
+                tile = existing;
+            }
+        }
+        int i = Math.floorMod(x, TILE_SIZE) / NEIGHBOR_DISTANCE;
+        int j = Math.floorMod(z, TILE_SIZE) / NEIGHBOR_DISTANCE;
+        return tile[i * TILE_NODES + j];
+    }
+
+    /**
+     * 计算一个图块的稳定性场：先取图块及一圈边界共 6x6 个网格点的高度（经高度缓存，相邻图块共享边界），
+     * 再对 4x4 个网格点逐个做中心差分
+     */
+    private static int[] computeStabilityTile(int tileX, int tileZ, ServerLevel serverWorld) {
+        int side = TILE_NODES + 2;
+        int originX = tileX * TILE_SIZE - NEIGHBOR_DISTANCE;
+        int originZ = tileZ * TILE_SIZE - NEIGHBOR_DISTANCE;
+        int[] heights = new int[side * side];
+        for (int i = 0; i < side; i++) {
+            for (int j = 0; j < side; j++) {
+                heights[i * side + j] = heightSampler(originX + i * NEIGHBOR_DISTANCE, originZ + j * NEIGHBOR_DISTANCE, serverWorld);
+            }
         }
-        return cost;
+        int[] stability = new int[TILE_NODES * TILE_NODES];
+        for (int i = 0; i < TILE_NODES; i++) {
+            int row = (i + 1) * side;
+            for (int j = 0; j < TILE_NODES; j++) {
+                int center = row + j + 1;
+                int h = heights[center];
+                int sum = Math.abs(h - heights[center - side])
+                        + Math.abs(h - heights[center + side])
+                        + Math.abs(h - heights[center - 1])
+                        + Math.abs(h - heights[center + 1]);
+                stability[i * TILE_NODES + j] = (sum + NEIGHBOR_DISTANCE / 2) / NEIGHBOR_DISTANCE;
+            }
+        }
+        return stability;
     }
 
     private static List<Records.RoadSegmentPlacement> reconstructPath(
@@ -167,8 +623,9 @@ public class RoadPathCalculator {
         }
         Collections.reverse(pathNodes);
 
-        Map<BlockPos, Set<BlockPos>> roadSegments = new LinkedHashMap<>();
-        Set<BlockPos> widthCache = new HashSet<>();
+        // 直接构建紧凑表示：中心线按加入顺序去重，宽度位置记录为轮廓位图
+        CompactRoadSegments.Builder roadSegments = new CompactRoadSegments.Builder(width / 2, pathNodes.size() * NEIGHBOR_DISTANCE);
+        LongOpenHashSet widthCache = new LongOpenHashSet();
 
         for (Node node : pathNodes) {
             BlockPos pos = node.pos;
@@ -188,24 +645,17 @@ public class RoadPathCalculator {
                 }
 
                 for (BlockPos interp : interpolated) {
-                    Set<BlockPos> widthSetInterp = generateWidth(interp, width / 2, widthCache, roadDirection);
-                    roadSegments.put(interp, widthSetInterp);
+                    generateWidth(roadSegments, interp, width / 2, widthCache, roadDirection);
                 }
             }
 
-            Set<BlockPos> widthSet = generateWidth(pos, width / 2, widthCache, roadDirection);
-            roadSegments.put(pos, widthSet);
-        }
-
-        List<Records.RoadSegmentPlacement> result = new ArrayList<>();
-        for (Map.Entry<BlockPos, Set<BlockPos>> entry : roadSegments.entrySet()) {
-            result.add(new Records.RoadSegmentPlacement(entry.getKey(), new ArrayList<>(entry.getValue())));
+            generateWidth(roadSegments, pos, width / 2, widthCache, roadDirection);
         }
-        return result;
+        return roadSegments.build();
     }
 
     // Height sampler method - improved with sea level handling
-    private static int heightSampler(int x, int z, ServerLevel serverWorld) {
+    static int heightSampler(int x, int z, ServerLevel serverWorld) {
         long key = hashXZ(x, z);
         return heightCache.computeIfAbsent(key, k -> {
             int seaLevel = serverWorld.getSeaLevel();
@@ -223,8 +673,15 @@ public class RoadPathCalculator {
         });
     }
 
-    private static Holder<Biome> biomeSampler(BlockPos pos, ServerLevel serverWorld) {
-        return serverWorld.getBiome(pos);
+    // 与 heightSampler 一样直接由生成器的生物群系源计算，不读取区块，工作线程不会等待主线程；
+    // 经世界的 BiomeManager 做坐标扰动，结果与 getBiome 一致
+    static Holder<Biome> biomeSampler(BlockPos pos, ServerLevel serverWorld) {
+        ServerChunkCache chunkSource = serverWorld.getChunkSource();
+        BiomeSource biomeSource = chunkSource.getGenerator().getBiomeSource();
+        Climate.Sampler sampler = chunkSource.randomState().sampler();
+        return serverWorld.getBiomeManager()
+                .withDifferentSource((x, y, z) -> biomeSource.getNoiseBiome(x, y, z, sampler))
+                .getBiome(pos);
     }
 
     private static class Node {
@@ -244,26 +701,25 @@ public class RoadPathCalculator {
         return Math.floorDiv(value, gridSize) * gridSize;
     }
 
-    private static Set<BlockPos> generateWidth(BlockPos center, int radius, Set<BlockPos> widthPositionsCache, RoadDirection direction) {
-        Set<BlockPos> segmentWidthPositions = new HashSet<>();
+    /**
+     * 为一个中心点加入道路段，只记录尚未被前面的段占用的宽度位置
+     */
+    private static void generateWidth(CompactRoadSegments.Builder segments, BlockPos center, int radius,
+                                      LongOpenHashSet widthPositionsCache, RoadDirection direction) {
+        int index = segments.add(center);
         int centerX = center.getX();
         int centerZ = center.getZ();
-        int y = 0;
 
         if (direction == RoadDirection.X_AXIS) {
             for (int dz = -radius; dz <= radius; dz++) {
-                BlockPos pos = new BlockPos(centerX, y, centerZ + dz);
-                if (!widthPositionsCache.contains(pos)) {
-                    widthPositionsCache.add(pos);
-                    segmentWidthPositions.add(pos);
+                if (widthPositionsCache.add(BlockPos.asLong(centerX, 0, centerZ + dz))) {
+                    segments.setWidthOffset(index, 0, dz);
                 }
             }
         } else if (direction == RoadDirection.Z_AXIS) {
             for (int dx = -radius; dx <= radius; dx++) {
-                BlockPos pos = new BlockPos(centerX + dx, y, centerZ);
-                if (!widthPositionsCache.contains(pos)) {
-                    widthPositionsCache.add(pos);
-                    segmentWidthPositions.add(pos);
+                if (widthPositionsCache.add(BlockPos.asLong(centerX + dx, 0, centerZ))) {
+                    segments.setWidthOffset(index, dx, 0);
                 }
             }
         } else {
@@ -279,14 +735,11 @@ public class RoadPathCalculator {
                             continue;
                         }
                     }
-                    BlockPos pos = new BlockPos(centerX + dx, y, centerZ + dz);
-                    if (!widthPositionsCache.contains(pos)) {
-                        widthPositionsCache.add(pos);
-                        segmentWidthPositions.add(pos);
+                    if (widthPositionsCache.add(BlockPos.asLong(centerX + dx, 0, centerZ + dz))) {
+                        segments.setWidthOffset(index, dx, dz);
                     }
                 }
             }
         }
-        return segmentWidthPositions;
     }
 }
@@ -0,0 +1,516 @@
+package net.countered.settlementroads.features.roadlogic;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongLinkedOpenHashSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.countered.settlementroads.chunk.ChunkRoadStateManager;
+import net.countered.settlementroads.chunk.RoadPatchBroadcaster;
+import net.countered.settlementroads.config.ConfigProvider;
+import net.countered.settlementroads.features.RoadFeature;
+import net.countered.settlementroads.features.decoration.DecorationFragmentQueue;
+import net.countered.settlementroads.helpers.CompactRoadSegments;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.minecraft.core.BlockPos;
+import net.minecraft.nbt.CompoundTag;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerChunkCache;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.util.RandomSource;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.ChunkStatus;
+import net.minecraft.world.level.levelgen.Heightmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * 已生成区块的道路补铺器
+ *
+ * RoadFeature 只在区块生成时铺路，道路晚于区块完成时（异步流水线、出生点附近的区块）
+ * 这些区块会缺少道路。道路持久化后，补铺器找出已经跑过地物阶段的区块，在主线程上按时间预算补铺：
+ * - 区块及其周围 3x3 均已完整加载时才补铺，写入不会触发新的区块加载或生成
+ * - 写入标志跳过邻居更新与形状更新（与世界生成时一致），只同步给客户端
+ * - 先发送后补丁模式下不同步，变更交给 RoadPatchBroadcaster 限速推送
+ * - 未加载的区块保留在任务中，等区块再次被加载时补铺
+ * - 剩余区块持久化到世界数据中，重启后继续补铺
+ * - 道路仍扣留在 ChunkRoadStateManager 中的区块由补铺器放行：周围 3x3 内的补铺全部结束后才释放持有，
+ *   避免区块在补铺前就被发送给玩家
+ * 相邻区块装饰留下的片段（DecorationFragmentQueue）也由这里写入已经生成过地物阶段的区块。
+ */
+public final class RoadPaver {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 每个 tick 最多检查的区块数（时间预算之外的上限）
+    private static final int MAX_CHECKS_PER_TICK = 256;
+    // 等待加载的区块的重新检查间隔
+    private static final int RECHECK_INTERVAL_TICKS = 100;
+    // 补铺进度的最小持久化间隔
+    private static final int SAVE_INTERVAL_TICKS = 200;
+    // 区块的地物阶段紧随 LIQUID_CARVERS 之后，达到该状态的区块可能已经读取过旧的道路列表
+    private static final ChunkStatus FEATURES_MAY_HAVE_RUN = ChunkStatus.LIQUID_CARVERS;
+
+    private enum State {
+        // 尚未判断
+        UNKNOWN,
+        // 正在读取磁盘上的区块状态
+        READING,
+        // 已跑过地物阶段，等待区块（及周围区块）完整加载
+        WAITING
+    }
+
+    private static final class ChunkTask {
+        private final long chunk;
+        private State state = State.UNKNOWN;
+        private CompletableFuture<Optional<CompoundTag>> read = null;
+        private int recheckTick = 0;
+
+        private ChunkTask(long chunk) {
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * 一条道路的补铺任务；road 为 null 时表示装饰片段任务
+     */
+    private static final class Job {
+        private final Records.RoadData road;
+        private final BlockPos roadStart;
+        private final BlockPos roadEnd;
+        private final ArrayDeque<ChunkTask> tasks = new ArrayDeque<>();
+        // 仍被持有的区块 → 周围 3x3 内尚未结束的补铺任务数（归零时放行）
+        private final Long2IntOpenHashMap heldNear = new Long2IntOpenHashMap();
+
+        private Job(Records.RoadData road, BlockPos roadStart, BlockPos roadEnd) {
+            this.road = road;
+            this.roadStart = roadStart;
+            this.roadEnd = roadEnd;
+        }
+    }
+
+    /**
+     * 单个维度的补铺任务（仅在主线程访问）
+     */
+    private static final class WorldJobs {
+        private final ServerLevel level;
+        private final ArrayDeque<Job> jobs = new ArrayDeque<>();
+        // 装饰片段任务（所有片段区块共用一个，不持久化，重启时从片段队列恢复）
+        private Job fragmentJob = null;
+        private final LongOpenHashSet fragmentChunks = new LongOpenHashSet();
+        private boolean dirty = false;
+        private int lastSaveTick = 0;
+
+        private WorldJobs(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    private record Pending(ServerLevel level, Records.RoadData road, long chunk, Collection<ChunkPos> held) {}
+
+    // 任意线程提交的新任务，下一个 tick 在主线程接收
+    private static final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    private static final Map<String, WorldJobs> worldJobs = new ConcurrentHashMap<>();
+
+    private RoadPaver() {}
+
+    private static String worldKey(ServerLevel level) {
+        return level.dimension().location().toString();
+    }
+
+    /**
+     * 道路持久化后调用（任意线程）：登记该道路需要检查补铺的区块
+     */
+    public static void enqueue(ServerLevel level, Records.RoadData road) {
+        enqueue(level, road, List.of());
+    }
+
+    /**
+     * 道路持久化后调用（任意线程）：登记补铺，并接管道路在 ChunkRoadStateManager 中的区块持有
+     * @param held 道路持有的区块，每个区块在其周围的补铺结束后释放一个持有
+     */
+    public static void enqueue(ServerLevel level, Records.RoadData road, Collection<ChunkPos> held) {
+        if (road.roadSegmentList().size() < 5 || ConfigProvider.get().retroPavingBudgetMs() <= 0) {
+            ChunkRoadStateManager.markChunksRoadProcessed(level, held);
+            return;
+        }
+        pending.add(new Pending(level, road, 0L, held));
+    }
+
+    /**
+     * 区块有新的装饰片段时调用（任意线程）：区块已生成过地物阶段时在这里写入片段
+     */
+    public static void enqueueFragments(ServerLevel level, long chunk) {
+        pending.add(new Pending(level, null, chunk, List.of()));
+    }
+
+    /**
+     * 世界加载时调用：恢复上次未完成的补铺任务
+     */
+    public static void restore(ServerLevel level) {
+        for (long chunk : DecorationFragmentQueue.restore(level)) {
+            enqueueFragments(level, chunk);
+        }
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        List<Records.PavingJob> saved = dataProvider.getPavingJobs(level);
+        if (saved == null || saved.isEmpty()) {
+            return;
+        }
+        List<Records.RoadData> roads = dataProvider.getRoadDataList(level);
+        WorldJobs world = worldJobs.computeIfAbsent(worldKey(level), k -> new WorldJobs(level));
+        int restoredChunks = 0;
+        for (Records.PavingJob savedJob : saved) {
+            Records.RoadData road = findRoad(roads, savedJob.roadStart(), savedJob.roadEnd());
+            if (road == null) {
+                continue; // 道路已被删除
+            }
+            Job job = new Job(road, savedJob.roadStart(), savedJob.roadEnd());
+            for (long chunk : savedJob.chunks()) {
+                job.tasks.add(new ChunkTask(chunk));
+            }
+            if (!job.tasks.isEmpty()) {
+                world.jobs.add(job);
+                restoredChunks += job.tasks.size();
+            }
+        }
+        if (restoredChunks > 0) {
+            LOGGER.info("🧱 Restored {} paving jobs ({} chunks)", world.jobs.size(), restoredChunks);
+        }
+    }
+
+    /**
+     * 每个服务器 tick 调用（主线程）：在时间预算内补铺区块
+     */
+    public static void tick(MinecraftServer server) {
+        DecorationFragmentQueue.tick(server);
+        if (pending.isEmpty() && worldJobs.isEmpty()) {
+            return;
+        }
+        int budgetMs = ConfigProvider.get().retroPavingBudgetMs();
+        int tick = server.getTickCount();
+        acceptPending();
+        if (budgetMs <= 0) {
+            return;
+        }
+
+        long deadline = System.nanoTime() + budgetMs * 1_000_000L;
+        for (WorldJobs world : worldJobs.values()) {
+            processWorld(world, tick, deadline);
+            if (world.dirty && (world.jobs.isEmpty() || tick - world.lastSaveTick >= SAVE_INTERVAL_TICKS)) {
+                save(world, tick);
+            }
+        }
+        worldJobs.values().removeIf(world -> world.jobs.isEmpty() && !world.dirty);
+    }
+
+    private static void acceptPending() {
+        Pending next;
+        while ((next = pending.poll()) != null) {
+            WorldJobs world = worldJobs.computeIfAbsent(worldKey(next.level()), k -> new WorldJobs(next.level()));
+            Records.RoadData road = next.road();
+            if (road == null) {
+                if (world.fragmentChunks.add(next.chunk())) {
+                    if (world.fragmentJob == null) {
+                        world.fragmentJob = new Job(null, null, null);
+                        world.jobs.add(world.fragmentJob);
+                    }
+                    world.fragmentJob.tasks.add(new ChunkTask(next.chunk()));
+                }
+                continue;
+            }
+            CompactRoadSegments segments = road.segments();
+            // 只有中点所在的区块会铺设该段（与 RoadFeature 一致），按道路顺序去重
+            LongLinkedOpenHashSet chunks = new LongLinkedOpenHashSet();
+            for (int i = 2; i < segments.size() - 2; i++) {
+                chunks.add(ChunkPos.asLong(segments.centerX(i) >> 4, segments.centerZ(i) >> 4));
+            }
+            Job job = new Job(road, segments.middlePos(0), segments.middlePos(segments.size() - 1));
+            for (long chunk : chunks) {
+                job.tasks.add(new ChunkTask(chunk));
+            }
+            holdUntilPaved(next.level(), job, next.held());
+            world.jobs.add(job);
+            world.dirty = true;
+        }
+    }
+
+    /**
+     * 统计每个持有区块周围 3x3 内的补铺任务；附近没有任务的区块立即放行
+     */
+    private static void holdUntilPaved(ServerLevel level, Job job, Collection<ChunkPos> held) {
+        if (held.isEmpty()) {
+            return;
+        }
+        for (ChunkPos pos : held) {
+            job.heldNear.put(pos.toLong(), 0);
+        }
+        for (ChunkTask task : job.tasks) {
+            forEachNeighbour(task.chunk, neighbour -> {
+                if (job.heldNear.containsKey(neighbour)) {
+                    job.heldNear.addTo(neighbour, 1);
+                }
+            });
+        }
+        List<ChunkPos> release = new ArrayList<>();
+        for (ChunkPos pos : held) {
+            if (job.heldNear.get(pos.toLong()) == 0) {
+                job.heldNear.remove(pos.toLong());
+                release.add(pos);
+            }
+        }
+        ChunkRoadStateManager.markChunksRoadProcessed(level, release);
+    }
+
+    /**
+     * 补铺任务结束（已铺设或无需铺设）：周围持有区块的计数减一，归零的加入 release
+     */
+    private static void onTaskFinished(Job job, long chunk, List<ChunkPos> release) {
+        if (job.heldNear.isEmpty()) {
+            return;
+        }
+        forEachNeighbour(chunk, neighbour -> {
+            if (job.heldNear.containsKey(neighbour) && job.heldNear.addTo(neighbour, -1) == 1) {
+                job.heldNear.remove(neighbour);
+                release.add(new ChunkPos(neighbour));
+            }
+        });
+    }
+
+    private static void forEachNeighbour(long chunk, LongConsumer action) {
+        int chunkX = ChunkPos.getX(chunk);
+        int chunkZ = ChunkPos.getZ(chunk);
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                action.accept(ChunkPos.asLong(chunkX + dx, chunkZ + dz));
+            }
+        }
+    }
+
+    private static void processWorld(WorldJobs world, int tick, long deadline) {
+        int checks = 0;
+        List<ChunkPos> release = new ArrayList<>();
+        Iterator<Job> jobIterator = world.jobs.iterator();
+        while (jobIterator.hasNext() && checks < MAX_CHECKS_PER_TICK && System.nanoTime() < deadline) {
+            Job job = jobIterator.next();
+            int size = job.tasks.size();
+            for (int i = 0; i < size && checks < MAX_CHECKS_PER_TICK && System.nanoTime() < deadline; i++) {
+                ChunkTask task = job.tasks.pollFirst();
+                checks++;
+                if (step(world.level, job, task, tick)) {
+                    job.tasks.addLast(task);
+                } else if (job == world.fragmentJob) {
+                    world.fragmentChunks.remove(task.chunk);
+                } else {
+                    onTaskFinished(job, task.chunk, release);
+                    world.dirty = true;
+                }
+            }
+            if (job.tasks.isEmpty()) {
+                jobIterator.remove();
+                if (job == world.fragmentJob) {
+                    world.fragmentJob = null;
+                } else {
+                    LOGGER.debug("🧱 Retroactive paving finished for road {} -> {}", job.roadStart, job.roadEnd);
+                }
+            }
+        }
+        ChunkRoadStateManager.markChunksRoadProcessed(world.level, release);
+    }
+
+    /**
+     * 推进单个区块的补铺
+     * @return true 如果区块仍需保留在任务中
+     */
+    private static boolean step(ServerLevel level, Job job, ChunkTask task, int tick) {
+        ServerChunkCache chunkSource = level.getChunkSource();
+        int chunkX = ChunkPos.getX(task.chunk);
+        int chunkZ = ChunkPos.getZ(task.chunk);
+
+        switch (task.state) {
+            case UNKNOWN -> {
+                if (chunkSource.getChunkNow(chunkX, chunkZ) != null) {
+                    task.state = State.WAITING;
+                    return paveIfReady(level, job, task, tick);
+                }
+                ChunkAccess inMemory = chunkSource.getChunk(chunkX, chunkZ, ChunkStatus.EMPTY, false);
+                if (inMemory != null) {
+                    if (!inMemory.getStatus().isOrAfter(FEATURES_MAY_HAVE_RUN)) {
+                        return false; // 地物阶段尚未执行，生成时会读取到已持久化的道路
+                    }
+                    task.state = State.WAITING;
+                    task.recheckTick = tick + RECHECK_INTERVAL_TICKS;
+                    return true;
+                }
+                task.state = State.READING;
+                task.read = chunkSource.chunkMap.read(new ChunkPos(task.chunk));
+                return true;
+            }
+            case READING -> {
+                if (!task.read.isDone()) {
+                    return true;
+                }
+                Optional<CompoundTag> tag = task.read.getNow(Optional.empty());
+                task.read = null;
+                if (tag.isEmpty()) {
+                    return false; // 区块从未生成，之后生成时会铺路
+                }
+                ChunkStatus status = ChunkStatus.byName(tag.get().getString("Status"));
+                if (!status.isOrAfter(FEATURES_MAY_HAVE_RUN)) {
+                    return false;
+                }
+                task.state = State.WAITING;
+                task.recheckTick = tick + RECHECK_INTERVAL_TICKS;
+                return true;
+            }
+            default -> {
+                if (tick < task.recheckTick) {
+                    return true;
+                }
+                return paveIfReady(level, job, task, tick);
+            }
+        }
+    }
+
+    private static boolean paveIfReady(ServerLevel level, Job job, ChunkTask task, int tick) {
+        ServerChunkCache chunkSource = level.getChunkSource();
+        int chunkX = ChunkPos.getX(task.chunk);
+        int chunkZ = ChunkPos.getZ(task.chunk);
+        // 片段只写入自身区块；道路的路面与装饰可能触及周围区块
+        int radius = job.road == null ? 0 : 1;
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (chunkSource.getChunkNow(chunkX + dx, chunkZ + dz) == null) {
+                    task.recheckTick = tick + RECHECK_INTERVAL_TICKS;
+                    return true;
+                }
+            }
+        }
+
+        ChunkPos chunkPos = new ChunkPos(task.chunk);
+        if (job.road == null) {
+            applyFragments(level, chunkPos);
+            return false;
+        }
+        if (isAlreadyPaved(level, job.road, chunkPos)) {
+            return false; // 地物阶段已读取到该道路
+        }
+        RandomSource random = RandomSource.create(level.getSeed() ^ task.chunk);
+        try {
+            if (RoadPatchBroadcaster.isEnabled()) {
+                List<BlockPos> written = new ArrayList<>();
+                RoadFeature.paveChunk(level, chunkPos, List.of(job.road), random, Block.UPDATE_KNOWN_SHAPE, written::add);
+                RoadPatchBroadcaster.markChanged(level, written);
+            } else {
+                RoadFeature.paveChunk(level, chunkPos, List.of(job.road), random,
+                    Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE, null);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error paving chunk {} for road {} -> {}", chunkPos, job.roadStart, job.roadEnd, e);
+        }
+        return false;
+    }
+
+    private static void applyFragments(ServerLevel level, ChunkPos chunkPos) {
+        try {
+            if (RoadPatchBroadcaster.isEnabled()) {
+                List<BlockPos> written = new ArrayList<>();
+                DecorationFragmentQueue.apply(level, chunkPos, Block.UPDATE_KNOWN_SHAPE, written::add);
+                RoadPatchBroadcaster.markChanged(level, written);
+            } else {
+                DecorationFragmentQueue.apply(level, chunkPos, Block.UPDATE_CLIENTS | Block.UPDATE_KNOWN_SHAPE, null);
+            }
+        } catch (Exception e) {
+            LOGGER.error("Error placing decoration fragments in chunk {}", chunkPos, e);
+        }
+    }
+
+    /**
+     * 抽查区块内道路中点下方的方块：多数已是道路材料时说明生成时已经铺过
+     */
+    private static boolean isAlreadyPaved(ServerLevel level, Records.RoadData road, ChunkPos chunkPos) {
+        if (ConfigProvider.get().placeWaypoints()) {
+            return false;
+        }
+        CompactRoadSegments segments = road.segments();
+        List<BlockState> materials = road.materials();
+        int sampled = 0;
+        int matched = 0;
+        for (int i = 2; i < segments.size() - 2 && sampled < 8; i++) {
+            BlockPos middle = segments.middlePos(i);
+            if (ChunkPos.asLong(middle) != chunkPos.toLong()) {
+                continue;
+            }
+            sampled++;
+            int surfaceY = level.getHeight(Heightmap.Types.WORLD_SURFACE, middle.getX(), middle.getZ());
+            if (materials.contains(level.getBlockState(new BlockPos(middle.getX(), surfaceY - 1, middle.getZ())))) {
+                matched++;
+            }
+        }
+        return sampled > 0 && matched * 4 >= sampled;
+    }
+
+    private static Records.RoadData findRoad(List<Records.RoadData> roads, BlockPos start, BlockPos end) {
+        if (roads == null) return null;
+        for (Records.RoadData road : roads) {
+            CompactRoadSegments segments = road.segments();
+            if (!segments.isEmpty()
+                    && segments.centerKey(0) == start.asLong()
+                    && segments.centerKey(segments.size() - 1) == end.asLong()) {
+                return road;
+            }
+        }
+        return null;
+    }
+
+    private static void save(WorldJobs world, int tick) {
+        List<Records.PavingJob> saved = new ArrayList<>(world.jobs.size());
+        for (Job job : world.jobs) {
+            if (job.road == null) {
+                continue;
+            }
+            List<Long> chunks = new ArrayList<>(job.tasks.size());
+            for (ChunkTask task : job.tasks) {
+                chunks.add(task.chunk);
+            }
+            saved.add(new Records.PavingJob(job.roadStart, job.roadEnd, chunks));
+        }
+        WorldDataProvider.getInstance().setPavingJobs(world.level, saved);
+        world.dirty = false;
+        world.lastSaveTick = tick;
+    }
+
+    /**
+     * 当前等待补铺的区块数
+     */
+    public static int getPendingChunkCount() {
+        int count = 0;
+        for (WorldJobs world : worldJobs.values()) {
+            for (Job job : world.jobs) {
+                count += job.tasks.size();
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 服务器停止时调用（在世界保存之前）：写入剩余进度并清理
+     */
+    public static void shutdown() {
+        acceptPending();
+        for (WorldJobs world : worldJobs.values()) {
+            if (world.dirty) {
+                save(world, world.level.getServer().getTickCount());
+            }
+        }
+        worldJobs.clear();
+        DecorationFragmentQueue.shutdown();
+    }
+}
@@ -0,0 +1,414 @@
+package net.countered.settlementroads.features.roadlogic;
+
+import net.countered.settlementroads.chunk.ChunkRoadStateManager;
+import net.countered.settlementroads.chunk.CorridorGate;
+import net.countered.settlementroads.chunk.RoadOccupancyIndex;
+import net.countered.settlementroads.features.config.RoadFeatureConfig;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.helpers.async.PipelineStage;
+import net.countered.settlementroads.helpers.async.RoadConcurrencyController;
+import net.countered.settlementroads.helpers.async.RoadScheduler;
+import net.countered.settlementroads.helpers.async.RoadThroughputTracker;
+import net.countered.settlementroads.helpers.async.RoadWorkerPool;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 道路生成流水线：规划 → 寻路 → 烘焙 → 持久化 → 释放区块
+ *
+ * - plan：主线程，批量选择道路参数并一次性将连接标记为 GENERATING
+ * - path：道路工作线程池执行 A*，数量受自适应并发控制器限制
+ * - bake / persist / release：各自拥有有界队列与专用线程，按批处理
+ *   （persist 每批最多 10 条道路，只复制并写入一次道路列表和连接列表）
+ *
+ * 下游队列拥塞时 {@link #isBackpressured()} 返回 true，调度器暂停派发新道路，
+ * 因此慢速的持久化或区块释放不会占用寻路线程。
+ *
+ * 取消（世界卸载/服务器停止）通过任务的 cancelled 标记完成：寻路循环定期检查并提前退出，
+ * 各阶段跳过已取消的任务（连接保持 GENERATING，下次加载时恢复）。
+ */
+public final class RoadPipeline {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    private static final int BAKE_CAPACITY = 64;
+    private static final int BAKE_BATCH = 16;
+    private static final int PERSIST_CAPACITY = 64;
+    private static final int PERSIST_BATCH = 10;
+    private static final int RELEASE_CAPACITY = 64;
+    private static final int RELEASE_BATCH = 32;
+    // 服务器停止时等待寻路任务退出的最长时间
+    private static final long SHUTDOWN_WAIT_MS = 10_000;
+
+    /**
+     * 在各阶段之间传递的道路任务
+     */
+    private static final class Job {
+        private final Road road;
+        private final Road.Plan plan;
+        private List<Records.RoadSegmentPlacement> segments = List.of();
+        private Records.RoadData roadData = null;
+        private Set<ChunkPos> affectedChunks = Set.of();
+        private boolean failed = false;
+        // ForkJoinTask.cancel 不会中断运行中的任务，取消只能通过该标记传达
+        private volatile boolean cancelled = false;
+
+        private Job(Road road, Road.Plan plan) {
+            this.road = road;
+            this.plan = plan;
+        }
+    }
+
+    /**
+     * 占用寻路槽位的非道路搜索（例如多目标选点），与道路寻路共用并发上限、取消与停止等待
+     */
+    private static final class Search {
+        private final ServerLevel level;
+        private volatile boolean cancelled = false;
+
+        private Search(ServerLevel level) {
+            this.level = level;
+        }
+    }
+
+    private static final PipelineStage.StageMetrics planMetrics = new PipelineStage.StageMetrics("plan");
+    private static final PipelineStage.StageMetrics pathMetrics = new PipelineStage.StageMetrics("path");
+    private static final PipelineStage<Job> bakeStage =
+        new PipelineStage<>("bake", BAKE_CAPACITY, BAKE_BATCH, RoadPipeline::bakeBatch);
+    private static final PipelineStage<Job> persistStage =
+        new PipelineStage<>("persist", PERSIST_CAPACITY, PERSIST_BATCH, RoadPipeline::persistBatch);
+    private static final PipelineStage<Job> releaseStage =
+        new PipelineStage<>("release", RELEASE_CAPACITY, RELEASE_BATCH, RoadPipeline::releaseBatch);
+
+    // 正在寻路的任务（Key: 世界ID_纳秒时间戳）
+    private static final ConcurrentHashMap<String, Job> inFlightPaths = new ConcurrentHashMap<>();
+    // 正在执行的搜索（Key 同上）
+    private static final ConcurrentHashMap<String, Search> inFlightSearches = new ConcurrentHashMap<>();
+    // 已派发但尚未离开流水线的任务（世界卸载时据此取消各阶段中的任务）
+    private static final Set<Job> activeJobs = ConcurrentHashMap.newKeySet();
+
+    private RoadPipeline() {}
+
+    /**
+     * 启动各阶段线程（世界加载时调用）
+     */
+    public static void start() {
+        bakeStage.start();
+        persistStage.start();
+        releaseStage.start();
+    }
+
+    /**
+     * 规划阶段（主线程）：为一批连接选择道路参数，批量更新状态后提交寻路
+     */
+    public static void dispatch(ServerLevel level, List<Records.StructureConnection> connections,
+                                RoadFeatureConfig config, int maxSteps) {
+        if (connections.isEmpty()) {
+            return;
+        }
+        long planStart = System.nanoTime();
+        List<Job> jobs = new ArrayList<>(connections.size());
+        List<Records.ConnectionStatus> statuses = new ArrayList<>(connections.size());
+        for (Records.StructureConnection connection : connections) {
+            Road road = new Road(level, connection, config);
+            Road.Plan plan = road.plan();
+            if (plan == null) {
+                RoadThroughputTracker.recordFailed();
+                CorridorGate.cancel(level, connection);
+                statuses.add(Records.ConnectionStatus.FAILED);
+            } else {
+                Job job = new Job(road, plan);
+                jobs.add(job);
+                activeJobs.add(job);
+                statuses.add(Records.ConnectionStatus.GENERATING);
+            }
+        }
+        Road.updateConnectionStatuses(level, connections, statuses);
+        long planNanos = (System.nanoTime() - planStart) / connections.size();
+        for (int i = 0; i < connections.size(); i++) {
+            planMetrics.record(planNanos);
+        }
+
+        for (Job job : jobs) {
+            submitPath(job, maxSteps);
+        }
+    }
+
+    private static void submitPath(Job job, int maxSteps) {
+        RoadThroughputTracker.recordDispatched();
+        String taskId = job.road.getLevel().dimension().location() + "_" + System.nanoTime();
+        // 先登记再提交，任务结束时在 finally 中移除
+        inFlightPaths.put(taskId, job);
+        RoadWorkerPool.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                LOGGER.debug("🔨 Generating road: {} -> {}",
+                    job.road.getConnection().from(), job.road.getConnection().to());
+                job.segments = job.road.findPath(job.plan, maxSteps);
+                job.failed = job.segments.isEmpty();
+            } catch (Exception e) {
+                job.failed = true;
+                LOGGER.error("❌ Error generating road {} -> {}: {}",
+                    job.road.getConnection().from(), job.road.getConnection().to(), e.getMessage(), e);
+            }
+            pathMetrics.record(System.nanoTime() - start);
+            try {
+                // 被取消的任务（世界卸载/服务器停止）保持 GENERATING，下次加载时恢复
+                if (job.cancelled) {
+                    activeJobs.remove(job);
+                    return;
+                }
+                // 失败的任务释放预测走廊，跳过烘焙，直接持久化 FAILED 状态
+                if (job.failed) {
+                    CorridorGate.cancel(job.road.getLevel(), job.road.getConnection());
+                }
+                (job.failed ? persistStage : bakeStage).put(job);
+            } finally {
+                inFlightPaths.remove(taskId);
+                // 槽位已释放，立即调度下一条道路
+                RoadScheduler.wake(job.road.getLevel());
+            }
+        }, () -> job.cancelled);
+    }
+
+    /**
+     * 在寻路槽位中执行一次搜索（主线程调用）：没有空闲槽位时不提交
+     * 搜索中的长循环应定期检查 {@link RoadWorkerPool#isCancelled()}，世界卸载或服务器停止时提前退出
+     * @return false 如果并发上限已满
+     */
+    public static boolean trySubmitSearch(ServerLevel level, Runnable search) {
+        if (getInFlightCount() >= RoadConcurrencyController.getLimit()) {
+            return false;
+        }
+        Search entry = new Search(level);
+        String taskId = level.dimension().location() + "_search_" + System.nanoTime();
+        inFlightSearches.put(taskId, entry);
+        RoadWorkerPool.submit(() -> {
+            try {
+                search.run();
+            } finally {
+                inFlightSearches.remove(taskId);
+                RoadScheduler.wake(level);
+            }
+        }, () -> entry.cancelled);
+        return true;
+    }
+
+    /**
+     * 烘焙阶段：生成道路数据并提取受影响的区块
+     */
+    private static void bakeBatch(List<Job> jobs) {
+        for (Job job : jobs) {
+            if (job.cancelled) {
+                activeJobs.remove(job);
+                continue;
+            }
+            try {
+                job.roadData = Road.bake(job.plan, job.segments);
+                job.affectedChunks = ChunkRoadStateManager.extractAffectedChunks(job.segments);
+                // 预测走廊收缩为精确路径覆盖的区块
+                CorridorGate.refine(job.road.getLevel(), job.road.getConnection(), job.affectedChunks);
+            } catch (Exception e) {
+                job.failed = true;
+                CorridorGate.cancel(job.road.getLevel(), job.road.getConnection());
+                LOGGER.error("Error baking road {} -> {}",
+                    job.road.getConnection().from(), job.road.getConnection().to(), e);
+            } finally {
+                // 停止时被中断也不会抛出：剩余任务暂存到持久化阶段，由 stop(true) 落盘，连接不会停留在"生成中"
+                persistStage.put(job);
+            }
+        }
+    }
+
+    /**
+     * 持久化阶段：每个世界只复制并写入一次道路列表与连接列表
+     */
+    private static void persistBatch(List<Job> jobs) {
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        for (Map.Entry<ServerLevel, List<Job>> entry : groupByLevel(dropCancelled(jobs)).entrySet()) {
+            ServerLevel level = entry.getKey();
+            List<Job> levelJobs = entry.getValue();
+
+            List<Records.RoadData> newRoads = new ArrayList<>();
+            List<Records.StructureConnection> targets = new ArrayList<>(levelJobs.size());
+            List<Records.ConnectionStatus> statuses = new ArrayList<>(levelJobs.size());
+            for (Job job : levelJobs) {
+                if (!job.failed && job.roadData != null) {
+                    newRoads.add(job.roadData);
+                }
+                targets.add(job.road.getConnection());
+                statuses.add(job.failed ? Records.ConnectionStatus.FAILED : Records.ConnectionStatus.COMPLETED);
+            }
+
+            if (!newRoads.isEmpty()) {
+                List<Records.RoadData> roadDataList = dataProvider.getRoadDataList(level);
+                // 创建可变副本以避免 UnsupportedOperationException
+                List<Records.RoadData> mutableList = new ArrayList<>(roadDataList != null ? roadDataList : new ArrayList<>());
+                mutableList.addAll(newRoads);
+                dataProvider.setRoadDataList(level, mutableList);
+                for (Records.RoadData road : newRoads) {
+                    RoadOccupancyIndex.addRoad(level, road);
+                    RoadNetwork.addRoad(level, road);
+                }
+            }
+            Road.updateConnectionStatuses(level, targets, statuses);
+            LOGGER.debug("💾 Persisted {} roads ({} connections) in one batch", newRoads.size(), targets.size());
+
+            for (Job job : levelJobs) {
+                if (job.failed) {
+                    RoadThroughputTracker.recordFailed();
+                    activeJobs.remove(job);
+                    continue;
+                }
+                RoadThroughputTracker.recordCompleted();
+                LOGGER.info("✅ Road generation completed: {} -> {} (throughput: {} roads/min)",
+                    job.road.getConnection().from(), job.road.getConnection().to(),
+                    String.format("%.1f", RoadThroughputTracker.getRoadsPerMinute()));
+                if (!job.affectedChunks.isEmpty()) {
+                    releaseStage.put(job);
+                } else {
+                    activeJobs.remove(job);
+                }
+            }
+            // 持久化队列已腾出空间，解除背压后继续调度
+            RoadScheduler.wake(level);
+        }
+    }
+
+    /**
+     * 释放阶段：把道路持有的区块交给补铺器，已生成的区块补铺后才放行（未生成的区块立即放行）
+     */
+    private static void releaseBatch(List<Job> jobs) {
+        for (Map.Entry<ServerLevel, List<Job>> entry : groupByLevel(dropCancelled(jobs)).entrySet()) {
+            for (Job job : entry.getValue()) {
+                // 每条道路各自释放一次持有（与 CorridorGate.refine 为它增加的持有对应）
+                RoadPaver.enqueue(entry.getKey(), job.roadData, job.affectedChunks);
+                activeJobs.remove(job);
+            }
+            RoadScheduler.wake(entry.getKey());
+        }
+    }
+
+    /**
+     * 移除已取消的任务（其世界已卸载，不再写入）
+     */
+    private static List<Job> dropCancelled(List<Job> jobs) {
+        List<Job> remaining = new ArrayList<>(jobs.size());
+        for (Job job : jobs) {
+            if (job.cancelled) {
+                activeJobs.remove(job);
+            } else {
+                remaining.add(job);
+            }
+        }
+        return remaining;
+    }
+
+    private static Map<ServerLevel, List<Job>> groupByLevel(List<Job> jobs) {
+        Map<ServerLevel, List<Job>> grouped = new LinkedHashMap<>();
+        for (Job job : jobs) {
+            grouped.computeIfAbsent(job.road.getLevel(), k -> new ArrayList<>()).add(job);
+        }
+        return grouped;
+    }
+
+    /**
+     * 占用寻路槽位的任务数量（道路寻路与搜索）
+     */
+    public static int getInFlightCount() {
+        return inFlightPaths.size() + inFlightSearches.size();
+    }
+
+    /**
+     * 下游任一阶段拥塞时返回 true，调度器应暂停派发
+     */
+    public static boolean isBackpressured() {
+        return bakeStage.isCongested() || persistStage.isCongested() || releaseStage.isCongested();
+    }
+
+    /**
+     * 取消指定世界的全部任务（世界卸载时调用）：寻路提前退出，各阶段不再写入该世界
+     */
+    public static void cancelWorld(ServerLevel level) {
+        int cancelled = 0;
+        for (Job job : activeJobs) {
+            if (job.road.getLevel() == level) {
+                job.cancelled = true;
+                cancelled++;
+            }
+        }
+        for (Search search : inFlightSearches.values()) {
+            if (search.level == level) {
+                search.cancelled = true;
+                cancelled++;
+            }
+        }
+        if (cancelled > 0) {
+            LOGGER.debug("Cancelled {} road tasks for {}", cancelled, level.dimension().location());
+        }
+    }
+
+    /**
+     * 服务器停止时调用：取消寻路任务并等待其退出，再在当前线程中处理完已寻路完成的道路，确保数据落盘
+     */
+    public static void shutdown() {
+        for (Job job : inFlightPaths.values()) {
+            job.cancelled = true;
+        }
+        for (Search search : inFlightSearches.values()) {
+            search.cancelled = true;
+        }
+        // 寻路任务退出后不会再向各阶段提交，此时排空才不会遗漏或与其并发
+        long deadline = System.currentTimeMillis() + SHUTDOWN_WAIT_MS;
+        while (getInFlightCount() > 0 && System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (getInFlightCount() > 0) {
+            LOGGER.warn("RoadWeaver: {} road tasks still running after {} ms", getInFlightCount(), SHUTDOWN_WAIT_MS);
+        }
+        bakeStage.stop(true);
+        persistStage.stop(true);
+        releaseStage.stop(true);
+        inFlightPaths.clear();
+        inFlightSearches.clear();
+        activeJobs.clear();
+        planMetrics.reset();
+        pathMetrics.reset();
+        bakeStage.getMetrics().reset();
+        persistStage.getMetrics().reset();
+        releaseStage.getMetrics().reset();
+    }
+
+    /**
+     * 各阶段的队列深度与平均延迟（调试显示用）
+     */
+    public static List<Records.PipelineStageStatus> getStageStatuses() {
+        List<Records.PipelineStageStatus> statuses = new ArrayList<>(5);
+        statuses.add(toStatus(planMetrics, 0, 0));
+        statuses.add(toStatus(pathMetrics, getInFlightCount(), RoadConcurrencyController.getLimit()));
+        for (PipelineStage<Job> stage : List.of(bakeStage, persistStage, releaseStage)) {
+            statuses.add(toStatus(stage.getMetrics(), stage.getDepth(), stage.getCapacity()));
+        }
+        return statuses;
+    }
+
+    private static Records.PipelineStageStatus toStatus(PipelineStage.StageMetrics metrics, int depth, int capacity) {
+        return new Records.PipelineStageStatus(metrics.getName(), depth, capacity,
+            metrics.getAvgLatencyMs(), metrics.getProcessed());
+    }
+}
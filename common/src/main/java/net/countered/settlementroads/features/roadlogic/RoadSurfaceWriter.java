@@ -0,0 +1,223 @@
+package net.countered.settlementroads.features.roadlogic;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectLinkedOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import net.minecraft.core.BlockPos;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.ChunkPos;
+import net.minecraft.world.level.WorldGenLevel;
+import net.minecraft.world.level.block.Block;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.chunk.ChunkAccess;
+import net.minecraft.world.level.chunk.LevelChunk;
+import net.minecraft.world.level.chunk.LevelChunkSection;
+import net.minecraft.world.level.levelgen.Heightmap;
+import net.minecraft.world.level.lighting.LevelLightEngine;
+import net.minecraft.world.level.lighting.LightEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 区块级道路路面批量写入器
+ *
+ * 路面方块先写入内存中的覆盖层，读取（方块状态、地表高度）优先读取覆盖层，
+ * 因此与逐块 setBlock 的结果一致；{@link #flush()} 时一次性写入：
+ * 1. 地表高度从区块高度图读取一次并按列缓存，之后随覆盖层写入增量更新
+ * 2. 中心区块（正在生成或补铺的区块）的方块直接写入 LevelChunkSection 调色板，不经过 Level.setBlock 的逐块开销
+ * 3. 全部写完后统一更新一次高度图；已完成生成的区块再统一检查光照并通知客户端
+ * 落在相邻区块的宽度位置、带方块实体或需要后处理的方块仍走 Level.setBlock，
+ * 相邻区块的写入检查、光照与同步都由原版流程处理。
+ */
+public final class RoadSurfaceWriter {
+
+    private final WorldGenLevel level;
+    private final int flags;
+    private final Consumer<BlockPos> writeListener;
+    private final long centerChunk;
+
+    // 覆盖层：方块位置 → 待写入的方块状态（按写入顺序）
+    private final Long2ObjectLinkedOpenHashMap<BlockState> pending = new Long2ObjectLinkedOpenHashMap<>();
+    // 列（x, z 编码为 BlockPos.asLong(x, 0, z)）→ 地表高度（第一个空气方块的 Y）
+    private final Long2IntOpenHashMap heights = new Long2IntOpenHashMap();
+    private final Long2ObjectOpenHashMap<ChunkAccess> chunks = new Long2ObjectOpenHashMap<>();
+
+    /**
+     * @param flags 回退到 Level.setBlock 时使用的写入标志；包含 UPDATE_CLIENTS 时批量写入也会通知客户端
+     * @param writeListener 方块写入监听，可为 null
+     * @param centerChunk 正在生成或补铺的区块，只有该区块直接写入调色板
+     */
+    public RoadSurfaceWriter(WorldGenLevel level, int flags, Consumer<BlockPos> writeListener, ChunkPos centerChunk) {
+        this.level = level;
+        this.flags = flags;
+        this.writeListener = writeListener;
+        this.centerChunk = centerChunk.toLong();
+    }
+
+    private ChunkAccess chunkAt(int blockX, int blockZ) {
+        int chunkX = blockX >> 4;
+        int chunkZ = blockZ >> 4;
+        long key = ChunkPos.asLong(chunkX, chunkZ);
+        ChunkAccess chunk = chunks.get(key);
+        if (chunk == null) {
+            chunk = level.getChunk(chunkX, chunkZ);
+            chunks.put(key, chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * 已生成完成的区块使用 WORLD_SURFACE，生成中的区块使用 WORLD_SURFACE_WG（两者判定条件相同）
+     */
+    private static Heightmap.Types surfaceType(ChunkAccess chunk) {
+        return chunk instanceof LevelChunk ? Heightmap.Types.WORLD_SURFACE : Heightmap.Types.WORLD_SURFACE_WG;
+    }
+
+    /**
+     * 地表高度，等价于 level.getHeight(WORLD_SURFACE_WG, x, z)，包含覆盖层中的修改
+     */
+    public int getHeight(int x, int z) {
+        long column = BlockPos.asLong(x, 0, z);
+        if (heights.containsKey(column)) {
+            return heights.get(column);
+        }
+        ChunkAccess chunk = chunkAt(x, z);
+        int height = chunk.getHeight(surfaceType(chunk), x & 15, z & 15) + 1;
+        heights.put(column, height);
+        return height;
+    }
+
+    public BlockState getBlockState(BlockPos pos) {
+        BlockState state = pending.get(pos.asLong());
+        return state != null ? state : chunkAt(pos.getX(), pos.getZ()).getBlockState(pos);
+    }
+
+    /**
+     * 写入覆盖层并增量维护该列的地表高度
+     */
+    public void setBlock(BlockPos pos, BlockState state) {
+        pending.put(pos.asLong(), state);
+
+        long column = BlockPos.asLong(pos.getX(), 0, pos.getZ());
+        int height = getHeight(pos.getX(), pos.getZ());
+        int y = pos.getY();
+        if (!state.isAir()) {
+            if (y >= height) {
+                heights.put(column, y + 1);
+            }
+        } else if (y == height - 1) {
+            // 最高的方块被清除：向下找到新的地表
+            int minY = level.getMinBuildHeight();
+            BlockPos.MutableBlockPos cursor = new BlockPos.MutableBlockPos(pos.getX(), y - 1, pos.getZ());
+            while (cursor.getY() >= minY && getBlockState(cursor).isAir()) {
+                cursor.move(0, -1, 0);
+            }
+            heights.put(column, cursor.getY() + 1);
+        }
+    }
+
+    /**
+     * 将覆盖层写入世界：中心区块批量写入，其余区块逐块 setBlock
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 按区块分组（保持写入顺序）
+        Long2ObjectLinkedOpenHashMap<List<BlockPos>> byChunk = new Long2ObjectLinkedOpenHashMap<>();
+        for (LongIterator it = pending.keySet().iterator(); it.hasNext(); ) {
+            BlockPos pos = BlockPos.of(it.nextLong());
+            byChunk.computeIfAbsent(ChunkPos.asLong(pos), k -> new ArrayList<>()).add(pos);
+        }
+        for (Long2ObjectMap.Entry<List<BlockPos>> entry : byChunk.long2ObjectEntrySet()) {
+            List<BlockPos> positions = entry.getValue();
+            if (entry.getLongKey() == centerChunk) {
+                flushChunk(chunkAt(positions.get(0).getX(), positions.get(0).getZ()), positions);
+                continue;
+            }
+            // 相邻区块可能已经跑过光照阶段或正在生成（ImposterProtoChunk），交给 setBlock 做写入检查、光照与同步
+            for (BlockPos pos : positions) {
+                if (level.setBlock(pos, pending.get(pos.asLong()), flags)) {
+                    notifyWritten(pos);
+                }
+            }
+        }
+        pending.clear();
+        heights.clear();
+    }
+
+    private void flushChunk(ChunkAccess chunk, List<BlockPos> positions) {
+        boolean fullChunk = chunk instanceof LevelChunk;
+        ServerLevel serverLevel = level instanceof ServerLevel server ? server : null;
+        List<BlockPos> changed = new ArrayList<>(positions.size());
+        List<BlockState> previous = new ArrayList<>(positions.size());
+
+        for (BlockPos pos : positions) {
+            BlockState state = pending.get(pos.asLong());
+            int sectionIndex = chunk.getSectionIndex(pos.getY());
+            if (sectionIndex < 0 || sectionIndex >= chunk.getSectionsCount()) {
+                continue;
+            }
+            BlockState old = chunk.getBlockState(pos);
+            if (old == state) {
+                continue;
+            }
+            if (old.hasBlockEntity() || state.hasBlockEntity() || state.hasPostProcess(level, pos)) {
+                // 方块实体与后处理需要完整的 setBlock 流程
+                level.setBlock(pos, state, flags);
+                notifyWritten(pos);
+                continue;
+            }
+            LevelChunkSection section = chunk.getSection(sectionIndex);
+            boolean wasEmpty = section.hasOnlyAir();
+            section.setBlockState(pos.getX() & 15, pos.getY() & 15, pos.getZ() & 15, state);
+            if (fullChunk && serverLevel != null && wasEmpty != section.hasOnlyAir()) {
+                serverLevel.getChunkSource().getLightEngine().updateSectionStatus(pos, section.hasOnlyAir());
+            }
+            changed.add(pos);
+            previous.add(old);
+        }
+        if (changed.isEmpty()) {
+            return;
+        }
+
+        // 一次性更新高度图
+        for (Map.Entry<Heightmap.Types, Heightmap> entry : chunk.getHeightmaps()) {
+            Heightmap heightmap = entry.getValue();
+            for (BlockPos pos : changed) {
+                heightmap.update(pos.getX() & 15, pos.getY(), pos.getZ() & 15, chunk.getBlockState(pos));
+            }
+        }
+        chunk.setUnsaved(true);
+
+        // 生成中的区块由之后的光照阶段统一计算，已完成的区块在这里检查光照并同步
+        if (fullChunk && serverLevel != null) {
+            LevelLightEngine lightEngine = serverLevel.getChunkSource().getLightEngine();
+            for (int i = 0; i < changed.size(); i++) {
+                BlockPos pos = changed.get(i);
+                BlockState state = chunk.getBlockState(pos);
+                if (LightEngine.hasDifferentLightProperties(chunk, pos, previous.get(i), state)) {
+                    chunk.getSkyLightSources().update(chunk, pos.getX() & 15, pos.getY(), pos.getZ() & 15);
+                    lightEngine.checkBlock(pos);
+                }
+                if ((flags & Block.UPDATE_CLIENTS) != 0) {
+                    serverLevel.getChunkSource().blockChanged(pos);
+                }
+            }
+        }
+        for (BlockPos pos : changed) {
+            notifyWritten(pos);
+        }
+    }
+
+    private void notifyWritten(BlockPos pos) {
+        if (writeListener != null) {
+            writeListener.accept(pos);
+        }
+    }
+}
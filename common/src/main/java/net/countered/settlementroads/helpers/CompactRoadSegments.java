@@ -0,0 +1,224 @@
+package net.countered.settlementroads.helpers;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import net.minecraft.core.BlockPos;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * 紧凑的道路段列表
+ *
+ * 每个道路段只保存打包的中心线坐标（BlockPos.asLong）和一个宽度轮廓位图：
+ * 以中心为原点、边长 2r+1 的方形中，哪些偏移属于该段（已去除前面的段占用的位置），
+ * 因此道路方向、对角线的切角和段间去重都编码在位图中。
+ * 宽度位置通过 {@link WidthCursor} 按需计算，不分配对象；
+ * 作为 List&lt;RoadSegmentPlacement&gt; 访问时才临时构建段对象（编解码、调试显示等低频路径）。
+ */
+public final class CompactRoadSegments extends AbstractList<Records.RoadSegmentPlacement> implements RandomAccess {
+
+    private final long[] centers;
+    private final int radius;
+    private final int side;
+    private final int wordsPerSegment;
+    private final long[] masks;
+
+    private CompactRoadSegments(long[] centers, int radius, long[] masks) {
+        this.centers = centers;
+        this.radius = radius;
+        this.side = radius * 2 + 1;
+        this.wordsPerSegment = wordsFor(radius);
+        this.masks = masks;
+    }
+
+    private static int wordsFor(int radius) {
+        int side = radius * 2 + 1;
+        return (side * side + 63) >>> 6;
+    }
+
+    /**
+     * 将任意道路段列表转换为紧凑表示（已是紧凑表示时直接返回）
+     */
+    public static CompactRoadSegments of(int width, List<Records.RoadSegmentPlacement> segments) {
+        if (segments instanceof CompactRoadSegments compact) {
+            return compact;
+        }
+        // 半径取道路宽度与实际数据中较大者，兼容旧数据
+        int radius = Math.max(0, width / 2);
+        for (Records.RoadSegmentPlacement segment : segments) {
+            BlockPos middle = segment.middlePos();
+            for (BlockPos pos : segment.positions()) {
+                radius = Math.max(radius, Math.max(Math.abs(pos.getX() - middle.getX()), Math.abs(pos.getZ() - middle.getZ())));
+            }
+        }
+        Builder builder = new Builder(radius, segments.size());
+        for (Records.RoadSegmentPlacement segment : segments) {
+            BlockPos middle = segment.middlePos();
+            int index = builder.add(middle);
+            for (BlockPos pos : segment.positions()) {
+                builder.setWidthOffset(index, pos.getX() - middle.getX(), pos.getZ() - middle.getZ());
+            }
+        }
+        return builder.build();
+    }
+
+    @Override
+    public int size() {
+        return centers.length;
+    }
+
+    /**
+     * 构建段对象（会分配，热路径请使用中心线访问器与 WidthCursor）
+     */
+    @Override
+    public Records.RoadSegmentPlacement get(int index) {
+        List<BlockPos> positions = new ArrayList<>();
+        WidthCursor cursor = widthCursor().reset(index);
+        while (cursor.next()) {
+            positions.add(new BlockPos(cursor.x(), 0, cursor.z()));
+        }
+        return new Records.RoadSegmentPlacement(middlePos(index), positions);
+    }
+
+    public long centerKey(int index) {
+        return centers[index];
+    }
+
+    public int centerX(int index) {
+        return BlockPos.getX(centers[index]);
+    }
+
+    public int centerY(int index) {
+        return BlockPos.getY(centers[index]);
+    }
+
+    public int centerZ(int index) {
+        return BlockPos.getZ(centers[index]);
+    }
+
+    public BlockPos middlePos(int index) {
+        return BlockPos.of(centers[index]);
+    }
+
+    public int radius() {
+        return radius;
+    }
+
+    /**
+     * 创建可重复使用的宽度位置游标
+     */
+    public WidthCursor widthCursor() {
+        return new WidthCursor();
+    }
+
+    /**
+     * 遍历某一段的宽度位置（x, z），不分配对象
+     * <pre>
+     * cursor.reset(i);
+     * while (cursor.next()) { ... cursor.x(), cursor.z() ... }
+     * </pre>
+     */
+    public final class WidthCursor {
+        private int base;
+        private int centerX;
+        private int centerZ;
+        private int word;
+        private long remaining;
+        private int x;
+        private int z;
+
+        private WidthCursor() {}
+
+        public WidthCursor reset(int index) {
+            base = index * wordsPerSegment;
+            centerX = BlockPos.getX(centers[index]);
+            centerZ = BlockPos.getZ(centers[index]);
+            word = 0;
+            remaining = masks[base];
+            return this;
+        }
+
+        public boolean next() {
+            while (remaining == 0) {
+                if (++word >= wordsPerSegment) {
+                    return false;
+                }
+                remaining = masks[base + word];
+            }
+            int bit = (word << 6) + Long.numberOfTrailingZeros(remaining);
+            remaining &= remaining - 1;
+            x = centerX + bit / side - radius;
+            z = centerZ + bit % side - radius;
+            return true;
+        }
+
+        public int x() {
+            return x;
+        }
+
+        public int z() {
+            return z;
+        }
+    }
+
+    /**
+     * 逐段构建紧凑列表；同一中心点再次加入时覆盖原有的宽度轮廓（与按中心点去重的有序映射一致）
+     */
+    public static final class Builder {
+        private final int radius;
+        private final int side;
+        private final int wordsPerSegment;
+        private final LongArrayList centers;
+        private long[] masks;
+        private final Long2IntOpenHashMap indexByCenter;
+
+        public Builder(int radius, int expectedSize) {
+            this.radius = radius;
+            this.side = radius * 2 + 1;
+            this.wordsPerSegment = wordsFor(radius);
+            this.centers = new LongArrayList(expectedSize);
+            this.masks = new long[Math.max(1, expectedSize) * wordsPerSegment];
+            this.indexByCenter = new Long2IntOpenHashMap(expectedSize);
+            this.indexByCenter.defaultReturnValue(-1);
+        }
+
+        /**
+         * 加入一个段（中心点已存在时清空并复用原来的段）
+         * @return 段索引
+         */
+        public int add(BlockPos center) {
+            long key = center.asLong();
+            int index = indexByCenter.get(key);
+            if (index >= 0) {
+                Arrays.fill(masks, index * wordsPerSegment, (index + 1) * wordsPerSegment, 0L);
+                return index;
+            }
+            index = centers.size();
+            centers.add(key);
+            indexByCenter.put(key, index);
+            int required = (index + 1) * wordsPerSegment;
+            if (required > masks.length) {
+                masks = Arrays.copyOf(masks, Math.max(required, masks.length * 2));
+            }
+            return index;
+        }
+
+        public void setWidthOffset(int index, int dx, int dz) {
+            if (Math.abs(dx) > radius || Math.abs(dz) > radius) {
+                return;
+            }
+            int bit = (dx + radius) * side + (dz + radius);
+            masks[index * wordsPerSegment + (bit >>> 6)] |= 1L << (bit & 63);
+        }
+
+        public CompactRoadSegments build() {
+            long[] packedCenters = centers.toLongArray();
+            return new CompactRoadSegments(packedCenters, radius,
+                    Arrays.copyOf(masks, packedCenters.length * wordsPerSegment));
+        }
+    }
+}
@@ -4,11 +4,13 @@ import com.mojang.serialization.Codec;
 import com.mojang.serialization.codecs.RecordCodecBuilder;
 import net.minecraft.core.BlockPos;
 import net.minecraft.core.Vec3i;
+import net.minecraft.nbt.CompoundTag;
 import net.minecraft.world.level.block.Block;
 import net.minecraft.world.level.block.state.BlockState;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * 公共数据记录与编解码器（Common）
@@ -22,6 +24,17 @@ public final class Records {
 
     public record RoadDecoration(BlockPos placePos, Vec3i vector, int centerBlockCount, String signText, boolean isStart) {}
 
+    /**
+     * 道路调度状态（调试地图显示：当前并发上限、原因与吞吐量）
+     */
+    public record SchedulerStatus(int limit, int min, int max, String reason, double roadsPerMinute,
+                                  List<PipelineStageStatus> stages) {}
+
+    /**
+     * 道路流水线阶段状态（队列深度、容量、平均延迟与已处理数量）
+     */
+    public record PipelineStageStatus(String name, int depth, int capacity, double avgLatencyMs, long processed) {}
+
     /**
      * 单个结构位置与类型
      */
@@ -113,6 +126,33 @@ public final class Records {
         );
     }
 
+    /**
+     * 补铺任务（道路起点/终点中点 + 尚未补铺的区块）
+     * 道路以首尾段的中点识别，重启后据此重新关联道路数据
+     */
+    public record PavingJob(BlockPos roadStart, BlockPos roadEnd, List<Long> chunks) {
+        public static final Codec<PavingJob> CODEC = RecordCodecBuilder.create(instance ->
+                instance.group(
+                        BlockPos.CODEC.fieldOf("road_start").forGetter(PavingJob::roadStart),
+                        BlockPos.CODEC.fieldOf("road_end").forGetter(PavingJob::roadEnd),
+                        Codec.LONG.listOf().fieldOf("chunks").forGetter(PavingJob::chunks)
+                ).apply(instance, PavingJob::new)
+        );
+    }
+
+    /**
+     * 跨区块装饰片段：装饰写入其他区块的单个方块（可附带方块实体数据）
+     */
+    public record DecorationFragment(BlockPos pos, BlockState state, Optional<CompoundTag> blockEntityTag) {
+        public static final Codec<DecorationFragment> CODEC = RecordCodecBuilder.create(instance ->
+                instance.group(
+                        BlockPos.CODEC.fieldOf("pos").forGetter(DecorationFragment::pos),
+                        BlockState.CODEC.fieldOf("state").forGetter(DecorationFragment::state),
+                        CompoundTag.CODEC.optionalFieldOf("block_entity").forGetter(DecorationFragment::blockEntityTag)
+                ).apply(instance, DecorationFragment::new)
+        );
+    }
+
     /**
      * 道路数据（类型/材料/段列表）
      * roadType: 0=人工，1=自然
@@ -126,5 +166,17 @@ public final class Records {
                         RoadSegmentPlacement.CODEC.listOf().fieldOf("placements").forGetter(RoadData::roadSegmentList)
                 ).apply(instance, RoadData::new)
         );
+
+        // 道路段统一转换为紧凑表示（中心线 + 宽度轮廓），常驻内存的道路数据不再保存每个宽度位置
+        public RoadData {
+            roadSegmentList = CompactRoadSegments.of(width, roadSegmentList);
+        }
+
+        /**
+         * 紧凑的道路段（热路径使用其中心线访问器与宽度游标，避免构建段对象）
+         */
+        public CompactRoadSegments segments() {
+            return (CompactRoadSegments) roadSegmentList;
+        }
     }
 }
@@ -7,23 +7,61 @@
  
  import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentLinkedDeque;
  
+import net.countered.settlementroads.chunk.CorridorGate;
+import net.countered.settlementroads.config.ConfigProvider;
+import net.countered.settlementroads.config.IModConfig;
+import net.countered.settlementroads.features.roadlogic.Road;
+import net.countered.settlementroads.features.roadlogic.RoadNetwork;
+import net.countered.settlementroads.features.roadlogic.RoadPathCalculator;
+import net.countered.settlementroads.features.roadlogic.RoadPipeline;
+import net.countered.settlementroads.helpers.async.RoadWorkerPool;
+import net.countered.settlementroads.helpers.async.RoadScheduler;
 import net.countered.settlementroads.helpers.async.ThrottledStructureLocator;
 import net.countered.settlementroads.persistence.WorldDataProvider;
  
 public class StructureConnector {
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
 
+    // 多目标寻路的步数预算范围（按候选距离估算后限制在此范围内）
+    private static final int MULTI_TARGET_MIN_STEPS = 5000;
+    private static final int MULTI_TARGET_MAX_STEPS = 100000;
+
     // 按世界维度区分的队列存储
-    private static final ConcurrentHashMap<String, Queue<Records.StructureConnection>> worldQueues = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<String, ConcurrentLinkedDeque<Records.StructureConnection>> worldQueues = new ConcurrentHashMap<>();
+    // 正在工作线程中规划路网的世界 → 规划期间是否又发现了新结构（只在主线程访问）
+    private static final Map<String, Boolean> planningWorlds = new ConcurrentHashMap<>();
     
     /**
      * 获取指定世界的连接队列
      */
     public static Queue<Records.StructureConnection> getQueueForWorld(ServerLevel level) {
         String worldKey = level.dimension().location().toString();
-        return worldQueues.computeIfAbsent(worldKey, k -> new ConcurrentLinkedQueue<>());
+        return worldQueues.computeIfAbsent(worldKey, k -> new ConcurrentLinkedDeque<>());
+    }
+    
+    /**
+     * 将连接加入生成队列并唤醒道路调度器
+     */
+    public static void enqueue(ServerLevel level, Records.StructureConnection connection) {
+        // 预测性扣留直线走廊上的区块，避免精确路径算出前区块已发送给玩家
+        CorridorGate.reserve(level, connection);
+        getQueueForWorld(level).add(connection);
+        RoadScheduler.wake(level);
+    }
+    
+    /**
+     * 将仍在排队的连接移到队列最前面（玩家正在等待其走廊内的区块）
+     */
+    public static void prioritize(ServerLevel level, Records.StructureConnection connection) {
+        ConcurrentLinkedDeque<Records.StructureConnection> queue = worldQueues.get(level.dimension().location().toString());
+        if (queue != null && !connection.equals(queue.peekFirst()) && queue.remove(connection)) {
+            queue.addFirst(connection);
+            LOGGER.debug("⏫ Prioritized road {} -> {} (player waiting for corridor chunk)",
+                connection.from(), connection.to());
+            RoadScheduler.wake(level);
+        }
     }
     
     /**
@@ -31,7 +69,9 @@ public class StructureConnector {
      */
     public static void clearQueueForWorld(ServerLevel level) {
         String worldKey = level.dimension().location().toString();
-        Queue<Records.StructureConnection> queue = worldQueues.remove(worldKey);
+        ConcurrentLinkedDeque<Records.StructureConnection> queue = worldQueues.remove(worldKey);
+        // 进行中的规划结果到达时发现世界已清理，直接丢弃
+        planningWorlds.remove(worldKey);
         if (queue != null) {
             queue.clear();
             LOGGER.debug("Cleared queue for world: {}", worldKey);
@@ -116,10 +156,95 @@ public class StructureConnector {
         if (structureLocationData == null) return;
         List<BlockPos> worldStructureLocations = structureLocationData.structureLocations();
         if (worldStructureLocations == null || worldStructureLocations.size() < 2) return;
+
+        IModConfig config = ConfigProvider.get();
+        if (config.batchNetworkPlanning()) {
+            planNetwork(serverWorld, worldStructureLocations);
+            return;
+        }
  
         BlockPos latestVillagePos = worldStructureLocations.get(worldStructureLocations.size() - 1);
-        BlockPos closestVillage = findClosestStructure(latestVillagePos, worldStructureLocations);
- 
+        if (config.multiTargetCandidates() > 1) {
+            connectByPathCost(serverWorld, latestVillagePos, worldStructureLocations, config);
+            return;
+        }
+        connectStructures(serverWorld, latestVillagePos, findClosestStructure(latestVillagePos, worldStructureLocations), null);
+    }
+
+    /**
+     * 在工作线程中从新结构做一次多目标搜索，主线程中连接实际路径成本最低的候选（复用搜索得到的路径）
+     * 只用于逐个连接模式：批量规划（默认开启）按 Delaunay/MST 的直线距离选边，不经过这里
+     * 搜索占用一个寻路槽位（受 RoadConcurrencyController 的并发上限约束，世界卸载时取消）；
+     * 没有空闲槽位时不做搜索，直接连接直线距离最近的结构
+     */
+    private static void connectByPathCost(ServerLevel serverWorld, BlockPos latestVillagePos, List<BlockPos> structures, IModConfig config) {
+        int k = config.multiTargetCandidates();
+        // 候选取直线距离最近的 2k 个结构，到达其中 k 个后停止
+        List<BlockPos> candidates = new ArrayList<>(structures);
+        candidates.remove(latestVillagePos);
+        candidates.sort(Comparator.comparingDouble(latestVillagePos::distSqr));
+        if (candidates.size() > k * 2) {
+            candidates = new ArrayList<>(candidates.subList(0, k * 2));
+        }
+        List<BlockPos> finalCandidates = candidates;
+        int maxSteps = multiTargetBudget(latestVillagePos, finalCandidates, k);
+        RoadNetwork.Probe probe = RoadNetwork.probe(serverWorld, latestVillagePos, finalCandidates);
+        int maxHeightDifference = config.maxHeightDifference();
+        int maxTerrainStability = config.maxTerrainStability();
+        boolean submitted = RoadPipeline.trySubmitSearch(serverWorld, () -> {
+            List<RoadPathCalculator.ReachedTarget> reached;
+            try {
+                reached = RoadPathCalculator.calculateMultiTargetPaths(latestVillagePos, finalCandidates, k, serverWorld,
+                        maxSteps, maxHeightDifference, maxTerrainStability, false, probe);
+            } catch (Exception e) {
+                LOGGER.error("Multi-target search from {} failed", latestVillagePos, e);
+                reached = List.of();
+            }
+            if (RoadWorkerPool.isCancelled()) {
+                return; // 世界已卸载或服务器正在停止
+            }
+            List<RoadPathCalculator.ReachedTarget> result = reached;
+            serverWorld.getServer().execute(() -> {
+                if (result.isEmpty()) {
+                    // 步数内没有到达任何候选：退回到直线距离最近的结构
+                    connectStructures(serverWorld, latestVillagePos, finalCandidates.isEmpty() ? null : finalCandidates.get(0), null);
+                    return;
+                }
+                RoadPathCalculator.ReachedTarget best = result.get(0);
+                BlockPos target = finalCandidates.get(best.candidate());
+                LOGGER.debug("Multi-target search from {}: {} candidates reached, cheapest {} (cost {})",
+                        latestVillagePos, result.size(), target, (int) best.cost());
+                connectStructures(serverWorld, latestVillagePos, target, best.latticePath());
+            });
+        });
+        if (!submitted) {
+            LOGGER.debug("No free path slot for multi-target search from {}, connecting nearest structure", latestVillagePos);
+            connectStructures(serverWorld, latestVillagePos, finalCandidates.isEmpty() ? null : finalCandidates.get(0), null);
+        }
+    }
+
+    /**
+     * 多目标搜索的步数预算：Dijkstra 需要展开到第 k 近候选所在半径内的网格点，
+     * 按该半径（网格步）的圆面积留出两倍余量，限制在固定范围内
+     * @param sortedCandidates 按直线距离排序的候选
+     */
+    private static int multiTargetBudget(BlockPos start, List<BlockPos> sortedCandidates, int k) {
+        if (sortedCandidates.isEmpty()) {
+            return MULTI_TARGET_MIN_STEPS;
+        }
+        BlockPos kth = sortedCandidates.get(Math.min(k, sortedCandidates.size()) - 1);
+        double radius = Math.sqrt(start.distSqr(kth)) / 4.0;
+        double area = Math.PI * radius * radius * 2;
+        return (int) Math.max(MULTI_TARGET_MIN_STEPS, Math.min(MULTI_TARGET_MAX_STEPS, area));
+    }
+
+    /**
+     * 创建并排队两个结构之间的连接
+     * @param latticePath 已算出的网格路径，可为 null
+     */
+    private static void connectStructures(ServerLevel serverWorld, BlockPos latestVillagePos, BlockPos closestVillage,
+                                          List<BlockPos> latticePath) {
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
         if (closestVillage != null) {
             List<Records.StructureConnection> connections = new ArrayList<>(
                     Optional.ofNullable(dataProvider.getStructureConnections(serverWorld)).orElseGet(ArrayList::new)
@@ -128,8 +253,11 @@ public class StructureConnector {
                 Records.StructureConnection structureConnection = new Records.StructureConnection(latestVillagePos, closestVillage);
                 connections.add(structureConnection);
                 dataProvider.setStructureConnections(serverWorld, connections);
+                if (latticePath != null) {
+                    Road.offerPrecomputedPath(serverWorld, structureConnection, latticePath);
+                }
+                enqueue(serverWorld, structureConnection);
                 Queue<Records.StructureConnection> queue = getQueueForWorld(serverWorld);
-                queue.add(structureConnection);
                 double distance = Math.sqrt(latestVillagePos.distSqr(closestVillage));
                 LOGGER.info(" Created connection between {} and {} (distance: {} blocks, queue size: {})",
                         latestVillagePos, closestVillage, (int) Math.round(distance), queue.size());
@@ -141,6 +269,74 @@ public class StructureConnector {
         }
     }
     
+    /**
+     * 批量规划：对所有已知结构求最小生成树（可选环路），按从短到长加入缺失的连接
+     * 三角剖分在工作线程中对结构与连接的快照进行，结果回到主线程写入；
+     * 规划期间发现的新结构合并为结果写入后的一次重新规划
+     */
+    private static void planNetwork(ServerLevel serverWorld, List<BlockPos> structures) {
+        String worldKey = serverWorld.dimension().location().toString();
+        if (planningWorlds.containsKey(worldKey)) {
+            planningWorlds.put(worldKey, true);
+            return;
+        }
+        planningWorlds.put(worldKey, false);
+        List<BlockPos> snapshot = List.copyOf(structures);
+        List<Records.StructureConnection> connections = List.copyOf(
+                Optional.ofNullable(WorldDataProvider.getInstance().getStructureConnections(serverWorld)).orElseGet(ArrayList::new)
+        );
+        boolean addLoops = ConfigProvider.get().plannerAddLoops();
+        RoadWorkerPool.submit(() -> {
+            List<StructureNetworkPlanner.Edge> missing;
+            try {
+                missing = StructureNetworkPlanner.missingEdges(snapshot, connections, addLoops);
+            } catch (Exception e) {
+                LOGGER.error("Road network planning failed ({} structures)", snapshot.size(), e);
+                missing = List.of();
+            }
+            List<StructureNetworkPlanner.Edge> result = missing;
+            serverWorld.getServer().execute(() -> applyNetworkPlan(serverWorld, worldKey, snapshot, result));
+        });
+    }
+
+    /**
+     * 主线程：写入规划出的连接（跳过规划期间已经出现的连接），需要时重新规划
+     */
+    private static void applyNetworkPlan(ServerLevel serverWorld, String worldKey, List<BlockPos> structures,
+                                         List<StructureNetworkPlanner.Edge> missing) {
+        Boolean replan = planningWorlds.remove(worldKey);
+        if (replan == null) {
+            return; // 世界已卸载
+        }
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        List<Records.StructureConnection> connections = new ArrayList<>(
+                Optional.ofNullable(dataProvider.getStructureConnections(serverWorld)).orElseGet(ArrayList::new)
+        );
+        List<Records.StructureConnection> created = new ArrayList<>(missing.size());
+        for (StructureNetworkPlanner.Edge edge : missing) {
+            BlockPos from = structures.get(edge.a());
+            BlockPos to = structures.get(edge.b());
+            if (connectionExists(connections, from, to)) continue;
+            Records.StructureConnection structureConnection = new Records.StructureConnection(from, to);
+            connections.add(structureConnection);
+            created.add(structureConnection);
+        }
+        if (created.isEmpty()) {
+            LOGGER.debug("Road network plan is complete ({} structures)", structures.size());
+        } else {
+            dataProvider.setStructureConnections(serverWorld, connections);
+            // 短边在前：先修建的道路可以作为之后连接的接入网络
+            for (Records.StructureConnection structureConnection : created) {
+                enqueue(serverWorld, structureConnection);
+            }
+            LOGGER.info("🗺️ Planned {} new connections over {} structures (shortest: {} blocks, queue size: {})",
+                    created.size(), structures.size(), (int) Math.round(missing.get(0).length()), getQueueForWorld(serverWorld).size());
+        }
+        if (replan) {
+            createNewStructureConnection(serverWorld);
+        }
+    }
+    
     private static boolean connectionExists(List<Records.StructureConnection> existingConnections, BlockPos a, BlockPos b) {
         for (Records.StructureConnection connection : existingConnections) {
             if ((connection.from().equals(a) && connection.to().equals(b)) ||
@@ -0,0 +1,355 @@
+package net.countered.settlementroads.helpers;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import net.minecraft.core.BlockPos;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * 结构道路网络的批量规划
+ *
+ * 在所有已知结构的水平坐标上做 Delaunay 三角剖分（Bowyer-Watson），
+ * 在三角剖分的边上求欧氏最小生成树（MST 一定是 Delaunay 图的子图），
+ * 可选地再加入少量相对邻域图（RNG）的边形成环路（整个路网的环路边总数随结构数量限制）。
+ * 已有的连接（失败的除外）先并入连通分量，因此只返回缺失的边，按长度从短到长排列。
+ * Delaunay 边不足以连通时，每个分量只再尝试最近的几条跨分量边，全部失败后放弃该分量。
+ */
+public final class StructureNetworkPlanner {
+
+    // 每次规划最多加入的环路边数
+    private static final int MAX_LOOP_EDGES = 2;
+    // 整个路网的环路边总数上限：每 LOOP_EDGE_STRUCTURES 个结构一条
+    private static final int LOOP_EDGE_STRUCTURES = 4;
+    // 退回阶段每个孤立分量最多尝试的候选边数（全部失败后该分量不再规划）
+    private static final int FALLBACK_EDGES_PER_COMPONENT = 3;
+
+    /**
+     * 规划出的边（结构索引 a < b）
+     */
+    public record Edge(int a, int b, double length) {}
+
+    private StructureNetworkPlanner() {}
+
+    /**
+     * 计算需要新增的连接
+     * @param structures 已知结构
+     * @param connections 已有连接
+     * @param addLoops 是否加入相对邻域图中的少量额外边形成环路
+     * @return 缺失的边，短边在前
+     */
+    public static List<Edge> missingEdges(List<BlockPos> structures, List<Records.StructureConnection> connections, boolean addLoops) {
+        List<Edge> result = new ArrayList<>();
+        if (structures.size() < 2) {
+            return result;
+        }
+        Map<Long, Integer> indexByColumn = new HashMap<>();
+        Map<BlockPos, Integer> indexByPos = new HashMap<>();
+        List<BlockPos> points = new ArrayList<>();
+        // 点 → 该列第一个结构在 structures 中的索引
+        IntArrayList structureIndex = new IntArrayList();
+        for (int i = 0; i < structures.size(); i++) {
+            BlockPos structure = structures.get(i);
+            long column = BlockPos.asLong(structure.getX(), 0, structure.getZ());
+            Integer index = indexByColumn.get(column);
+            if (index == null) {
+                index = points.size();
+                indexByColumn.put(column, index);
+                points.add(structure);
+                structureIndex.add(i);
+            }
+            indexByPos.put(structure, index);
+        }
+
+        List<Edge> delaunay = delaunayEdges(points);
+        delaunay.sort(Comparator.comparingDouble(Edge::length));
+
+        // 已有连接并入连通分量；失败的连接视为不可用，规划时不再选择
+        int[] parents = new int[points.size()];
+        for (int i = 0; i < parents.length; i++) {
+            parents[i] = i;
+        }
+        LongOpenHashSet existing = new LongOpenHashSet();
+        LongOpenHashSet usable = new LongOpenHashSet();
+        for (Records.StructureConnection connection : connections) {
+            Integer a = indexByPos.get(connection.from());
+            Integer b = indexByPos.get(connection.to());
+            if (a == null || b == null || a.equals(b)) continue;
+            existing.add(edgeKey(a, b));
+            if (connection.status() != Records.ConnectionStatus.FAILED) {
+                usable.add(edgeKey(a, b));
+                union(parents, a, b);
+            }
+        }
+
+        // Kruskal：只加入连接不同分量的最短边
+        kruskal(delaunay, parents, existing, result);
+        if (componentCount(parents) > 1) {
+            // 三角剖分退化（大量共线点）或失败的连接挡住了 Delaunay 边时，退回到每个分量最近的几条跨分量边
+            List<Edge> fallback = fallbackEdges(points, parents, existing);
+            if (!fallback.isEmpty()) {
+                kruskal(fallback, parents, existing, result);
+                result.sort(Comparator.comparingDouble(Edge::length));
+            }
+        }
+
+        if (addLoops) {
+            List<IntSet> neighbors = new ArrayList<>(points.size());
+            for (int i = 0; i < points.size(); i++) {
+                neighbors.add(new IntOpenHashSet());
+            }
+            for (Edge edge : delaunay) {
+                neighbors.get(edge.a()).add(edge.b());
+                neighbors.get(edge.b()).add(edge.a());
+            }
+            // 已有的环路边：可用的边数减去生成森林的边数（点数 - 分量数）
+            int existingLoops = usable.size() + result.size() - (points.size() - componentCount(parents));
+            int loopBudget = Math.min(MAX_LOOP_EDGES, points.size() / LOOP_EDGE_STRUCTURES - existingLoops);
+            int loops = 0;
+            for (Edge edge : delaunay) {
+                if (loops >= loopBudget) break;
+                if (existing.contains(edgeKey(edge.a(), edge.b()))) continue;
+                if (isRelativeNeighbor(points, neighbors, edge)) {
+                    result.add(edge);
+                    existing.add(edgeKey(edge.a(), edge.b()));
+                    loops++;
+                }
+            }
+            result.sort(Comparator.comparingDouble(Edge::length));
+        }
+
+        // 边的端点换回原始结构坐标的索引
+        List<Edge> mapped = new ArrayList<>(result.size());
+        for (Edge edge : result) {
+            mapped.add(new Edge(structureIndex.getInt(edge.a()), structureIndex.getInt(edge.b()), edge.length()));
+        }
+        return mapped;
+    }
+
+    private static void kruskal(List<Edge> sortedEdges, int[] parents, LongOpenHashSet existing, List<Edge> result) {
+        for (Edge edge : sortedEdges) {
+            if (existing.contains(edgeKey(edge.a(), edge.b()))) continue;
+            if (union(parents, edge.a(), edge.b())) {
+                result.add(edge);
+                existing.add(edgeKey(edge.a(), edge.b()));
+            }
+        }
+    }
+
+    /**
+     * 退回阶段的候选边：每个分量只保留通往其他分量的最短 {@value #FALLBACK_EDGES_PER_COMPONENT} 条边
+     * 跨分量的已有连接都是失败的连接；某个分量的候选边全部失败时不再为它规划，避免每轮都派发注定失败的连接
+     * 点按 X 坐标排序后向两侧扫描，X 方向的距离已不短于所在分量的候选边时停止（扫描线，避免枚举所有点对）
+     * @return 按长度排序的候选边（不含已有连接）
+     */
+    private static List<Edge> fallbackEdges(List<BlockPos> points, int[] parents, LongOpenHashSet existing) {
+        int n = points.size();
+        int[] roots = new int[n];
+        for (int i = 0; i < n; i++) {
+            roots[i] = find(parents, i);
+        }
+        Integer[] byX = new Integer[n];
+        for (int i = 0; i < n; i++) {
+            byX[i] = i;
+        }
+        Arrays.sort(byX, Comparator.comparingInt(i -> points.get(i).getX()));
+        // 分量根 → 最短的若干条跨分量边（最长的在堆顶）
+        Map<Integer, PriorityQueue<Edge>> nearest = new HashMap<>();
+        for (int i = 0; i < n; i++) {
+            int a = byX[i];
+            for (int step = -1; step <= 1; step += 2) {
+                for (int j = i + step; j >= 0 && j < n; j += step) {
+                    int b = byX[j];
+                    // 更远的点在 X 方向上更远，不可能再进入该分量的候选
+                    if (!acceptsNearest(nearest.get(roots[a]), Math.abs(points.get(b).getX() - points.get(a).getX()))) break;
+                    if (roots[a] == roots[b]) continue;
+                    double length = distance(points.get(a), points.get(b));
+                    if (!acceptsNearest(nearest.get(roots[a]), length)) continue;
+                    // 每个点只为自己的分量收集候选（b 一侧的分量由 b 自己的扫描收集）
+                    offerNearest(nearest, roots[a], new Edge(Math.min(a, b), Math.max(a, b), length));
+                }
+            }
+        }
+        LongOpenHashSet seen = new LongOpenHashSet();
+        List<Edge> candidates = new ArrayList<>();
+        for (PriorityQueue<Edge> edges : nearest.values()) {
+            for (Edge edge : edges) {
+                long key = edgeKey(edge.a(), edge.b());
+                if (!existing.contains(key) && seen.add(key)) {
+                    candidates.add(edge);
+                }
+            }
+        }
+        candidates.sort(Comparator.comparingDouble(Edge::length));
+        return candidates;
+    }
+
+    private static boolean acceptsNearest(PriorityQueue<Edge> edges, double length) {
+        return edges == null || edges.size() < FALLBACK_EDGES_PER_COMPONENT || length < edges.peek().length();
+    }
+
+    private static void offerNearest(Map<Integer, PriorityQueue<Edge>> nearest, int root, Edge edge) {
+        PriorityQueue<Edge> edges = nearest.computeIfAbsent(root,
+                k -> new PriorityQueue<>(Comparator.comparingDouble(Edge::length).reversed()));
+        if (!acceptsNearest(edges, edge.length())) {
+            return;
+        }
+        if (edges.size() >= FALLBACK_EDGES_PER_COMPONENT) {
+            edges.poll();
+        }
+        edges.add(edge);
+    }
+
+    private static int componentCount(int[] parents) {
+        int count = 0;
+        for (int i = 0; i < parents.length; i++) {
+            if (find(parents, i) == i) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 相对邻域图：不存在第三个点同时比 a、b 彼此更近（见证点只需在 Delaunay 邻居中查找）
+     */
+    private static boolean isRelativeNeighbor(List<BlockPos> points, List<IntSet> neighbors, Edge edge) {
+        IntArrayList candidates = new IntArrayList(neighbors.get(edge.a()));
+        candidates.addAll(neighbors.get(edge.b()));
+        for (int i = 0; i < candidates.size(); i++) {
+            int r = candidates.getInt(i);
+            if (r == edge.a() || r == edge.b()) continue;
+            if (Math.max(distance(points.get(edge.a()), points.get(r)), distance(points.get(edge.b()), points.get(r))) < edge.length()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Bowyer-Watson 三角剖分，返回真实点之间的所有边（共线的点也能得到相邻点之间的边）
+     */
+    private static List<Edge> delaunayEdges(List<BlockPos> points) {
+        int n = points.size();
+        double[] xs = new double[n + 3];
+        double[] zs = new double[n + 3];
+        double minX = Double.MAX_VALUE, minZ = Double.MAX_VALUE, maxX = -Double.MAX_VALUE, maxZ = -Double.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            xs[i] = points.get(i).getX();
+            zs[i] = points.get(i).getZ();
+            minX = Math.min(minX, xs[i]);
+            minZ = Math.min(minZ, zs[i]);
+            maxX = Math.max(maxX, xs[i]);
+            maxZ = Math.max(maxZ, zs[i]);
+        }
+        // 包含所有点的超级三角形
+        double span = Math.max(Math.max(maxX - minX, maxZ - minZ), 1.0) * 20;
+        double midX = (minX + maxX) / 2;
+        double midZ = (minZ + maxZ) / 2;
+        xs[n] = midX - span;
+        zs[n] = midZ - span;
+        xs[n + 1] = midX;
+        zs[n + 1] = midZ + span;
+        xs[n + 2] = midX + span;
+        zs[n + 2] = midZ - span;
+
+        List<double[]> triangles = new ArrayList<>();
+        triangles.add(triangle(xs, zs, n, n + 1, n + 2));
+        for (int p = 0; p < n; p++) {
+            List<double[]> bad = new ArrayList<>();
+            for (double[] t : triangles) {
+                double dx = xs[p] - t[3];
+                double dz = zs[p] - t[4];
+                if (dx * dx + dz * dz <= t[5]) {
+                    bad.add(t);
+                }
+            }
+            // 空洞边界：只属于一个坏三角形的边
+            Map<Long, int[]> boundary = new HashMap<>();
+            for (double[] t : bad) {
+                for (int e = 0; e < 3; e++) {
+                    int a = (int) t[e];
+                    int b = (int) t[(e + 1) % 3];
+                    long key = edgeKey(a, b);
+                    if (boundary.remove(key) == null) {
+                        boundary.put(key, new int[]{a, b});
+                    }
+                }
+            }
+            triangles.removeAll(bad);
+            for (int[] edge : boundary.values()) {
+                triangles.add(triangle(xs, zs, edge[0], edge[1], p));
+            }
+        }
+
+        LongOpenHashSet seen = new LongOpenHashSet();
+        List<Edge> edges = new ArrayList<>();
+        for (double[] t : triangles) {
+            for (int e = 0; e < 3; e++) {
+                int a = (int) t[e];
+                int b = (int) t[(e + 1) % 3];
+                if (a >= n || b >= n || !seen.add(edgeKey(a, b))) continue;
+                edges.add(new Edge(Math.min(a, b), Math.max(a, b), distance(points.get(a), points.get(b))));
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * 三角形：三个顶点索引 + 外接圆圆心与半径平方
+     */
+    private static double[] triangle(double[] xs, double[] zs, int a, int b, int c) {
+        double ax = xs[a], az = zs[a], bx = xs[b], bz = zs[b], cx = xs[c], cz = zs[c];
+        double d = 2 * (ax * (bz - cz) + bx * (cz - az) + cx * (az - bz));
+        double centerX;
+        double centerZ;
+        if (Math.abs(d) < 1e-9) {
+            // 退化三角形：外接圆取无穷大，之后插入的点总会将其移除
+            centerX = (ax + bx + cx) / 3;
+            centerZ = (az + bz + cz) / 3;
+            return new double[]{a, b, c, centerX, centerZ, Double.MAX_VALUE};
+        }
+        double a2 = ax * ax + az * az, b2 = bx * bx + bz * bz, c2 = cx * cx + cz * cz;
+        centerX = (a2 * (bz - cz) + b2 * (cz - az) + c2 * (az - bz)) / d;
+        centerZ = (a2 * (cx - bx) + b2 * (ax - cx) + c2 * (bx - ax)) / d;
+        double dx = ax - centerX;
+        double dz = az - centerZ;
+        return new double[]{a, b, c, centerX, centerZ, dx * dx + dz * dz};
+    }
+
+    private static double distance(BlockPos a, BlockPos b) {
+        double dx = a.getX() - b.getX();
+        double dz = a.getZ() - b.getZ();
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+
+    private static long edgeKey(int a, int b) {
+        return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            parents[i] = parents[parents[i]];
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static boolean union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        if (rootA == rootB) {
+            return false;
+        }
+        parents[rootB] = rootA;
+        return true;
+    }
+}
@@ -0,0 +1,224 @@
+package net.countered.settlementroads.helpers.async;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * 道路流水线中的一个阶段
+ *
+ * 每个阶段拥有独立的有界队列和一个专用守护线程：
+ * 1. 线程取出一个元素后，最多再合并 batchSize - 1 个元素，整批交给处理函数
+ * 2. 队列满时 {@link #put(Object)} 阻塞调用者（在道路工作线程中通过 ManagedBlocker 补偿），形成背压
+ * 3. 阻塞等待中被中断（服务器停止）的元素转入溢出队列，由 {@link #stop(boolean)} 一并处理，不会丢失
+ * 4. 记录队列深度、处理数量与平均延迟（入队到处理完成），用于调试显示
+ */
+public final class PipelineStage<T> {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 平均延迟的指数平滑系数
+    private static final double LATENCY_ALPHA = 0.2;
+
+    private final String name;
+    private final int capacity;
+    private final int batchSize;
+    private final Consumer<List<T>> handler;
+    private final BlockingQueue<Entry<T>> queue;
+    // 入队等待被中断时暂存的元素（不受容量限制）
+    private final ConcurrentLinkedQueue<Entry<T>> overflow = new ConcurrentLinkedQueue<>();
+    private final StageMetrics metrics;
+    private Thread thread = null;
+
+    private record Entry<T>(T item, long enqueuedNanos) {}
+
+    public PipelineStage(String name, int capacity, int batchSize, Consumer<List<T>> handler) {
+        this.name = name;
+        this.capacity = capacity;
+        this.batchSize = Math.max(1, batchSize);
+        this.handler = handler;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.metrics = new StageMetrics(name);
+    }
+
+    /**
+     * 启动阶段线程（已启动时忽略）
+     */
+    public synchronized void start() {
+        if (thread != null && thread.isAlive()) {
+            return;
+        }
+        thread = new Thread(this::runLoop, "RoadWeaver-" + name);
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY + 1);
+        thread.start();
+    }
+
+    /**
+     * 入队，队列满时阻塞直到有空位
+     * 等待中被中断时元素转入溢出队列并保留中断标记，调用者可继续处理本批剩余元素
+     */
+    public void put(T item) {
+        Entry<T> entry = new Entry<>(item, System.nanoTime());
+        if (queue.offer(entry)) {
+            return;
+        }
+        RoadWorkerPool.managedBlock(() -> {
+            try {
+                queue.put(entry);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                overflow.add(entry);
+                LOGGER.debug("Interrupted while waiting for stage {}, item deferred to stop", name);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 停止阶段线程
+     * 等待阶段线程处理完当前批次并退出后才返回
+     * @param drain true 时在调用线程中处理完队列中剩余的元素（服务器停止时确保数据落盘）
+     */
+    public void stop(boolean drain) {
+        Thread current;
+        synchronized (this) {
+            current = thread;
+            thread = null;
+        }
+        if (current != null) {
+            // 必须等线程处理完当前批次再排空，否则两个线程会同时读写同一份世界数据
+            current.interrupt();
+            boolean interrupted = false;
+            while (current.isAlive()) {
+                try {
+                    current.join(2000);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+                if (current.isAlive()) {
+                    LOGGER.warn("RoadWeaver: Waiting for pipeline stage {} to finish its current batch", name);
+                    current.interrupt();
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (drain) {
+            List<Entry<T>> batch = new ArrayList<>();
+            while (queue.drainTo(batch, batchSize) > 0) {
+                process(batch);
+                batch.clear();
+            }
+            for (Entry<T> entry = overflow.poll(); entry != null; entry = overflow.poll()) {
+                batch.add(entry);
+                if (batch.size() >= batchSize) {
+                    process(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                process(batch);
+            }
+        } else {
+            queue.clear();
+            overflow.clear();
+        }
+    }
+
+    /**
+     * 队列占用超过 3/4 时视为拥塞，上游应暂停派发新任务
+     */
+    public boolean isCongested() {
+        return queue.size() * 4 >= capacity * 3;
+    }
+
+    public int getDepth() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void runLoop() {
+        List<Entry<T>> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                // 队列中剩余的元素由 stop(true) 处理
+                Thread.currentThread().interrupt();
+                break;
+            }
+            queue.drainTo(batch, batchSize - 1);
+            process(batch);
+            batch.clear();
+        }
+    }
+
+    private void process(List<Entry<T>> batch) {
+        List<T> items = new ArrayList<>(batch.size());
+        for (Entry<T> entry : batch) {
+            items.add(entry.item());
+        }
+        try {
+            handler.accept(items);
+        } catch (Exception e) {
+            LOGGER.error("RoadWeaver: Pipeline stage {} failed to process batch of {}", name, items.size(), e);
+        }
+        long now = System.nanoTime();
+        for (Entry<T> entry : batch) {
+            metrics.record(now - entry.enqueuedNanos());
+        }
+    }
+
+    /**
+     * 阶段统计：处理数量与平均延迟
+     */
+    public static final class StageMetrics {
+        private final String name;
+        private final AtomicLong processed = new AtomicLong();
+        private double avgLatencyMs = 0.0;
+
+        public StageMetrics(String name) {
+            this.name = name;
+        }
+
+        public synchronized void record(long latencyNanos) {
+            double latencyMs = latencyNanos / 1_000_000.0;
+            avgLatencyMs = processed.getAndIncrement() == 0
+                ? latencyMs
+                : avgLatencyMs + LATENCY_ALPHA * (latencyMs - avgLatencyMs);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getProcessed() {
+            return processed.get();
+        }
+
+        public synchronized double getAvgLatencyMs() {
+            return avgLatencyMs;
+        }
+
+        public synchronized void reset() {
+            processed.set(0);
+            avgLatencyMs = 0.0;
+        }
+    }
+}
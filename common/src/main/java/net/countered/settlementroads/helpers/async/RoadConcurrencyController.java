@@ -0,0 +1,198 @@
+package net.countered.settlementroads.helpers.async;
+
+import net.countered.settlementroads.config.ConfigProvider;
+import net.countered.settlementroads.config.IModConfig;
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.level.ServerLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.function.IntSupplier;
+
+/**
+ * 自适应道路生成并发控制器
+ *
+ * 每秒根据服务器健康状况调整并发道路数与每 tick 结构搜寻次数（AIMD 策略）：
+ * - 输入：滚动平均 MSPT、世界生成主线程任务队列长度、堆内存占用、系统负载
+ * - 任一指标过载时并发数减半；全部健康且仍有积压时并发数 +1
+ * - 结果始终限制在 [minConcurrentRoadGeneration, maxConcurrentRoadGeneration] 与线程池并行度之间
+ *
+ * 当前限制及原因可通过 {@link #getSnapshot()} 获取，在调试地图中显示。
+ */
+public final class RoadConcurrencyController {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    // 评估间隔（tick）
+    private static final int EVALUATE_INTERVAL_TICKS = 20;
+
+    // MSPT 阈值（毫秒）
+    private static final double MSPT_CRITICAL = 50.0;
+    private static final double MSPT_HIGH = 40.0;
+    private static final double MSPT_LOW = 30.0;
+
+    // 世界生成主线程任务队列阈值
+    private static final int WORLDGEN_QUEUE_HIGH = 200;
+    private static final int WORLDGEN_QUEUE_LOW = 50;
+
+    // 堆内存占用阈值
+    private static final double HEAP_HIGH = 0.85;
+    private static final double HEAP_LOW = 0.70;
+
+    private static final int MAX_STRUCTURE_SCANS_PER_TICK = 3;
+
+    /**
+     * 限制原因
+     */
+    public enum Reason {
+        STARTUP,
+        IDLE,
+        STABLE,
+        RAMP_UP,
+        HIGH_MSPT,
+        WORLDGEN_BUSY,
+        HEAP_PRESSURE,
+        CPU_SATURATED
+    }
+
+    /**
+     * 控制器状态快照（调试显示用）
+     */
+    public record Snapshot(int limit, int min, int max, int structureScansPerTick, Reason reason,
+                           double mspt, int worldgenQueue, double heapUsage) {}
+
+    private static volatile int currentLimit = 1;
+    private static volatile int structureScansPerTick = 1;
+    private static volatile Reason reason = Reason.STARTUP;
+    private static volatile double lastMspt = 0.0;
+    private static volatile int lastWorldgenQueue = 0;
+    private static volatile double lastHeapUsage = 0.0;
+    private static int tickCounter = 0;
+
+    private RoadConcurrencyController() {}
+
+    /**
+     * 有道路任务时每个服务器 tick 调用一次（主线程）
+     *
+     * @param server 服务器
+     * @param backlog 等待生成的连接数量（仅在评估时计算）
+     */
+    public static void tick(MinecraftServer server, IntSupplier backlog) {
+        if (++tickCounter < EVALUATE_INTERVAL_TICKS) {
+            return;
+        }
+        tickCounter = 0;
+        evaluate(server, backlog.getAsInt());
+    }
+
+    private static void evaluate(MinecraftServer server, int backlog) {
+        IModConfig config = ConfigProvider.get();
+        int max = Math.max(1, Math.min(config.maxConcurrentRoadGeneration(), RoadWorkerPool.getParallelism()));
+        int min = Math.max(1, Math.min(config.minConcurrentRoadGeneration(), max));
+
+        double mspt = server.getAverageTickTime();
+        int worldgenQueue = worldgenQueueLength(server);
+        double heapUsage = heapUsage();
+        double cpuLoad = systemLoadPerCore();
+
+        int limit = Math.max(min, Math.min(currentLimit, max));
+        Reason newReason;
+        int scans;
+
+        if (mspt > MSPT_HIGH) {
+            limit = Math.max(min, limit / 2);
+            newReason = Reason.HIGH_MSPT;
+            scans = mspt > MSPT_CRITICAL ? 0 : 1;
+        } else if (heapUsage > HEAP_HIGH) {
+            limit = Math.max(min, limit / 2);
+            newReason = Reason.HEAP_PRESSURE;
+            scans = 1;
+        } else if (worldgenQueue > WORLDGEN_QUEUE_HIGH) {
+            limit = Math.max(min, limit / 2);
+            newReason = Reason.WORLDGEN_BUSY;
+            scans = 1;
+        } else if (cpuLoad > 1.0) {
+            limit = Math.max(min, limit - 1);
+            newReason = Reason.CPU_SATURATED;
+            scans = 1;
+        } else if (backlog == 0) {
+            newReason = Reason.IDLE;
+            scans = 1;
+        } else if (mspt < MSPT_LOW && worldgenQueue < WORLDGEN_QUEUE_LOW && heapUsage < HEAP_LOW && limit < max) {
+            limit = limit + 1;
+            newReason = Reason.RAMP_UP;
+            scans = MAX_STRUCTURE_SCANS_PER_TICK;
+        } else {
+            newReason = Reason.STABLE;
+            scans = mspt < MSPT_LOW ? MAX_STRUCTURE_SCANS_PER_TICK : 1;
+        }
+
+        if (limit != currentLimit || newReason != reason) {
+            LOGGER.debug("RoadWeaver: Road concurrency {} -> {} ({}; mspt={}, worldgenQueue={}, heap={}%)",
+                currentLimit, limit, newReason, String.format("%.1f", mspt), worldgenQueue,
+                Math.round(heapUsage * 100));
+        }
+
+        currentLimit = limit;
+        structureScansPerTick = scans;
+        reason = newReason;
+        lastMspt = mspt;
+        lastWorldgenQueue = worldgenQueue;
+        lastHeapUsage = heapUsage;
+    }
+
+    /**
+     * 当前允许同时运行的道路生成任务数
+     */
+    public static int getLimit() {
+        return currentLimit;
+    }
+
+    /**
+     * 当前每 tick 允许处理的结构搜寻请求数（0 表示本 tick 暂停搜寻）
+     */
+    public static int getStructureScansPerTick() {
+        return structureScansPerTick;
+    }
+
+    public static Snapshot getSnapshot() {
+        IModConfig config = ConfigProvider.get();
+        return new Snapshot(currentLimit, config.minConcurrentRoadGeneration(), config.maxConcurrentRoadGeneration(),
+            structureScansPerTick, reason, lastMspt, lastWorldgenQueue, lastHeapUsage);
+    }
+
+    /**
+     * 服务器停止时重置
+     */
+    public static void reset() {
+        currentLimit = Math.max(1, ConfigProvider.get().minConcurrentRoadGeneration());
+        structureScansPerTick = 1;
+        reason = Reason.STARTUP;
+        tickCounter = 0;
+    }
+
+    private static int worldgenQueueLength(MinecraftServer server) {
+        int pending = 0;
+        for (ServerLevel level : server.getAllLevels()) {
+            pending += level.getChunkSource().getPendingTasksCount();
+        }
+        return pending;
+    }
+
+    private static double heapUsage() {
+        Runtime runtime = Runtime.getRuntime();
+        long used = runtime.totalMemory() - runtime.freeMemory();
+        return (double) used / runtime.maxMemory();
+    }
+
+    private static double systemLoadPerCore() {
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double load = os.getSystemLoadAverage(); // 部分平台（Windows）返回负数
+        if (load < 0) {
+            return 0.0;
+        }
+        return load / Math.max(1, os.getAvailableProcessors());
+    }
+}
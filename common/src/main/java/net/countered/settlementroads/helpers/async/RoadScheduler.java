@@ -0,0 +1,119 @@
+package net.countered.settlementroads.helpers.async;
+
+import net.minecraft.server.MinecraftServer;
+import net.minecraft.server.TickTask;
+import net.minecraft.server.level.ServerLevel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * 事件驱动的道路调度器
+ *
+ * 不再每个 tick 轮询连接队列，只在以下事件发生时唤醒一次调度：
+ * 1. 新连接入队（StructureConnector.enqueue）
+ * 2. 寻路任务结束或下游阶段处理完一批（释放槽位 / 解除背压）
+ * 3. 服务器启动完成，注册表就绪
+ * 4. 自适应控制器提高并发上限
+ *
+ * 唤醒请求按世界合并，以任务形式投递到服务器主线程，
+ * 工作线程完成后无需等待下一个 tick 即可派发下一条道路。
+ */
+public final class RoadScheduler {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    private static volatile Consumer<ServerLevel> dispatcher = null;
+    private static volatile boolean ready = false;
+
+    // 已投递、尚未执行的唤醒（按世界合并）
+    private static final Set<String> scheduledWorlds = ConcurrentHashMap.newKeySet();
+    // 因注册表未就绪等原因推迟到下一个 tick 的世界
+    private static final Map<String, ServerLevel> deferredWorlds = new ConcurrentHashMap<>();
+
+    private RoadScheduler() {}
+
+    /**
+     * 设置调度函数（在主线程中执行，负责填满空闲槽位）
+     */
+    public static void setDispatcher(Consumer<ServerLevel> levelDispatcher) {
+        dispatcher = levelDispatcher;
+    }
+
+    /**
+     * 服务器启动完成后调用：开始接受唤醒并立即调度一次
+     */
+    public static void markReady(MinecraftServer server) {
+        ready = true;
+        LOGGER.info("RoadWeaver: Registries ready, road scheduling enabled");
+        wake(server.overworld());
+    }
+
+    public static boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * 请求一次调度（任意线程可调用，重复请求会被合并）
+     */
+    public static void wake(ServerLevel level) {
+        Consumer<ServerLevel> target = dispatcher;
+        if (!ready || target == null || level == null) {
+            return;
+        }
+        String worldKey = level.dimension().location().toString();
+        if (!scheduledWorlds.add(worldKey)) {
+            return; // 已有待执行的唤醒
+        }
+        MinecraftServer server = level.getServer();
+        server.tell(new TickTask(server.getTickCount(), () -> {
+            scheduledWorlds.remove(worldKey);
+            if (ready) {
+                target.accept(level);
+            }
+        }));
+    }
+
+    /**
+     * 推迟到下一个 tick 再调度（例如注册表暂不可用）
+     */
+    public static void deferToNextTick(ServerLevel level) {
+        deferredWorlds.put(level.dimension().location().toString(), level);
+    }
+
+    /**
+     * 每个服务器 tick 调用：只处理被推迟的调度，没有推迟请求时无开销
+     */
+    public static void tick() {
+        if (deferredWorlds.isEmpty()) {
+            return;
+        }
+        for (String worldKey : deferredWorlds.keySet()) {
+            ServerLevel level = deferredWorlds.remove(worldKey);
+            if (level != null) {
+                wake(level);
+            }
+        }
+    }
+
+    /**
+     * 世界卸载时清理
+     */
+    public static void clearWorld(ServerLevel level) {
+        String worldKey = level.dimension().location().toString();
+        deferredWorlds.remove(worldKey);
+    }
+
+    /**
+     * 服务器停止时重置
+     */
+    public static void reset() {
+        ready = false;
+        scheduledWorlds.clear();
+        deferredWorlds.clear();
+    }
+}
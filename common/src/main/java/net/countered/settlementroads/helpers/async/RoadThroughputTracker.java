@@ -0,0 +1,77 @@
+package net.countered.settlementroads.helpers.async;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 道路生成吞吐量统计
+ * 基于最近 60 秒的完成时间戳计算“每分钟道路数”，用于日志与调试显示
+ */
+public final class RoadThroughputTracker {
+
+    private static final long WINDOW_MS = 60_000L;
+
+    private static final Deque<Long> completedTimestamps = new ConcurrentLinkedDeque<>();
+    private static final AtomicLong totalCompleted = new AtomicLong();
+    private static final AtomicLong totalFailed = new AtomicLong();
+    private static volatile long firstDispatchMs = 0L;
+
+    private RoadThroughputTracker() {}
+
+    /**
+     * 记录一次任务派发（用于计算窗口起点，避免刚启动时吞吐量被低估）
+     */
+    public static void recordDispatched() {
+        if (firstDispatchMs == 0L) {
+            firstDispatchMs = System.currentTimeMillis();
+        }
+    }
+
+    public static void recordCompleted() {
+        long now = System.currentTimeMillis();
+        completedTimestamps.addLast(now);
+        totalCompleted.incrementAndGet();
+        evictOld(now);
+    }
+
+    public static void recordFailed() {
+        totalFailed.incrementAndGet();
+    }
+
+    /**
+     * 最近一分钟内完成的道路数量（运行不足一分钟时按实际时长折算）
+     */
+    public static double getRoadsPerMinute() {
+        long now = System.currentTimeMillis();
+        evictOld(now);
+        int count = completedTimestamps.size();
+        if (count == 0 || firstDispatchMs == 0L) {
+            return 0.0;
+        }
+        long elapsed = Math.min(WINDOW_MS, Math.max(1_000L, now - firstDispatchMs));
+        return count * (60_000.0 / elapsed);
+    }
+
+    public static long getTotalCompleted() {
+        return totalCompleted.get();
+    }
+
+    public static long getTotalFailed() {
+        return totalFailed.get();
+    }
+
+    public static void reset() {
+        completedTimestamps.clear();
+        totalCompleted.set(0);
+        totalFailed.set(0);
+        firstDispatchMs = 0L;
+    }
+
+    private static void evictOld(long now) {
+        Long head;
+        while ((head = completedTimestamps.peekFirst()) != null && now - head > WINDOW_MS) {
+            completedTimestamps.pollFirst();
+        }
+    }
+}
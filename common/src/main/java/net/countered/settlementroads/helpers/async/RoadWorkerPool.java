@@ -0,0 +1,207 @@
+package net.countered.settlementroads.helpers.async;
+
+import net.countered.settlementroads.config.ConfigProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 道路计算专用线程池
+ *
+ * 取代原先的 128 线程固定线程池：
+ * 1. 线程数按 CPU 核心数与配置 roadWorkerThreads 计算（0 = 自动，核心数的一半）
+ * 2. 使用 ForkJoinPool（工作窃取），异步 FIFO 模式，任务按提交顺序执行
+ * 3. 工作线程为低优先级守护线程，并带有可识别的线程名
+ * 4. 需要等待区块/主线程数据时通过 {@link #managedBlock(Supplier)} 通知线程池补偿线程
+ * 5. ForkJoinTask.cancel 不会中断正在运行的任务，取消通过 {@link #submit(Runnable, BooleanSupplier)} 登记的检查完成，
+ *    长时间运行的循环定期调用 {@link #isCancelled()} 提前退出
+ */
+public final class RoadWorkerPool {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
+
+    private static final AtomicInteger threadCounter = new AtomicInteger();
+    private static volatile ForkJoinPool pool = null;
+    // 当前线程上任务的取消检查（由 submit 设置，invokeAll 传递给分叉的子任务）
+    private static final ThreadLocal<BooleanSupplier> cancellation = new ThreadLocal<>();
+
+    private RoadWorkerPool() {}
+
+    /**
+     * 确保线程池可用（世界加载时调用，服务器停止后会重新创建）
+     */
+    public static synchronized ForkJoinPool ensureStarted() {
+        ForkJoinPool current = pool;
+        if (current == null || current.isShutdown()) {
+            int parallelism = computeParallelism();
+            current = new ForkJoinPool(parallelism, RoadWorkerPool::newWorkerThread, RoadWorkerPool::onUncaughtException, true);
+            pool = current;
+            LOGGER.info("RoadWeaver: Road worker pool started with {} threads ({} CPU cores available)",
+                parallelism, Runtime.getRuntime().availableProcessors());
+        }
+        return current;
+    }
+
+    public static Future<?> submit(Runnable task) {
+        return ensureStarted().submit(task);
+    }
+
+    /**
+     * 提交可取消的任务：任务（及其 invokeAll 分叉的子任务）中的 {@link #isCancelled()} 返回 cancelled 的结果
+     */
+    public static Future<?> submit(Runnable task, BooleanSupplier cancelled) {
+        return ensureStarted().submit(() -> callWith(cancelled, () -> {
+            task.run();
+            return null;
+        }));
+    }
+
+    /**
+     * 当前任务是否已被取消（或线程被中断），寻路等长循环应定期检查并提前退出
+     */
+    public static boolean isCancelled() {
+        BooleanSupplier cancelled = cancellation.get();
+        return (cancelled != null && cancelled.getAsBoolean()) || Thread.currentThread().isInterrupted();
+    }
+
+    private static <T> T callWith(BooleanSupplier cancelled, Callable<T> task) throws Exception {
+        BooleanSupplier previous = cancellation.get();
+        cancellation.set(cancelled);
+        try {
+            return task.call();
+        } finally {
+            if (previous == null) {
+                cancellation.remove();
+            } else {
+                cancellation.set(previous);
+            }
+        }
+    }
+
+    /**
+     * 并行执行一组任务并等待全部完成
+     * 在工作线程中调用时任务分叉到当前线程池，等待期间当前线程参与执行，不会占满线程池
+     * @return 与 tasks 一一对应的结果
+     */
+    public static <T> List<T> invokeAll(List<Callable<T>> tasks) {
+        ForkJoinPool current = ensureStarted();
+        BooleanSupplier cancelled = cancellation.get();
+        List<ForkJoinTask<T>> forked = new ArrayList<>(tasks.size());
+        for (Callable<T> task : tasks) {
+            forked.add(ForkJoinTask.adapt(cancelled == null ? task : () -> callWith(cancelled, task)));
+        }
+        if (ForkJoinTask.getPool() == current) {
+            ForkJoinTask.invokeAll(forked);
+        } else {
+            for (ForkJoinTask<T> task : forked) {
+                current.execute(task);
+            }
+        }
+        List<T> results = new ArrayList<>(forked.size());
+        for (ForkJoinTask<T> task : forked) {
+            results.add(task.join());
+        }
+        return results;
+    }
+
+    public static synchronized void shutdown() {
+        ForkJoinPool current = pool;
+        pool = null;
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                if (!current.awaitTermination(2, TimeUnit.SECONDS)) {
+                    LOGGER.warn("RoadWeaver: Road worker pool did not terminate in time");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 当前线程池的并行度（未启动时返回预计值）
+     */
+    public static int getParallelism() {
+        ForkJoinPool current = pool;
+        return current != null ? current.getParallelism() : computeParallelism();
+    }
+
+    public static int getActiveCount() {
+        ForkJoinPool current = pool;
+        return current != null ? current.getActiveThreadCount() : 0;
+    }
+
+    /**
+     * 在工作线程中执行可能阻塞的调用（例如等待区块数据）
+     * 通过 ManagedBlocker 让 ForkJoinPool 在阻塞期间补偿额外线程，避免饿死其他道路任务
+     * 每次调用都可能让线程池创建补偿线程，只用于确实会阻塞的调用（寻路采样直接由生成器计算，不经过这里）
+     */
+    public static <T> T managedBlock(Supplier<T> blockingCall) {
+        if (!(Thread.currentThread() instanceof ForkJoinWorkerThread)) {
+            return blockingCall.get();
+        }
+        BlockingCall<T> blocker = new BlockingCall<>(blockingCall);
+        try {
+            ForkJoinPool.managedBlock(blocker);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for blocking call", e);
+        }
+        return blocker.result;
+    }
+
+    private static int computeParallelism() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int configured = ConfigProvider.get().roadWorkerThreads();
+        int threads = configured > 0 ? configured : cores / 2;
+        return Math.max(1, Math.min(threads, cores));
+    }
+
+    private static ForkJoinWorkerThread newWorkerThread(ForkJoinPool forkJoinPool) {
+        ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+        thread.setName("RoadWeaver-Worker-" + threadCounter.incrementAndGet());
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY + 1);
+        return thread;
+    }
+
+    private static void onUncaughtException(Thread thread, Throwable throwable) {
+        LOGGER.error("RoadWeaver: Uncaught exception in {}", thread.getName(), throwable);
+    }
+
+    private static final class BlockingCall<T> implements ForkJoinPool.ManagedBlocker {
+        private final Supplier<T> call;
+        private T result;
+        private boolean done = false;
+
+        private BlockingCall(Supplier<T> call) {
+            this.call = call;
+        }
+
+        @Override
+        public boolean block() {
+            if (!done) {
+                result = call.get();
+                done = true;
+            }
+            return true;
+        }
+
+        @Override
+        public boolean isReleasable() {
+            return done;
+        }
+    }
+}
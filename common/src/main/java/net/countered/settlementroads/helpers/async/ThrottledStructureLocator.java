@@ -46,9 +46,6 @@ public class ThrottledStructureLocator {
     
     private static final Logger LOGGER = LoggerFactory.getLogger("roadweaver");
     
-    // 每个tick最多处理的搜寻请求数量
-    private static final int MAX_SEARCHES_PER_TICK = 1;
-    
     // 每个世界的待处理搜寻队列
     private static final ConcurrentHashMap<String, Queue<LocateRequest>> pendingRequests = new ConcurrentHashMap<>();
     
@@ -104,9 +101,10 @@ public class ThrottledStructureLocator {
             return;
         }
         
-        // 每个tick最多处理N个搜寻请求
+        // 每个tick最多处理N个搜寻请求（N 由自适应并发控制器根据服务器负载决定）
+        int maxSearches = RoadConcurrencyController.getStructureScansPerTick();
         int processed = 0;
-        while (processed < MAX_SEARCHES_PER_TICK && !queue.isEmpty()) {
+        while (processed < maxSearches && !queue.isEmpty()) {
             LocateRequest request = queue.poll();
             if (request != null) {
                 try {
@@ -1,6 +1,7 @@
 package net.countered.settlementroads.network;
 
 import io.netty.buffer.Unpooled;
+import net.countered.settlementroads.helpers.CompactRoadSegments;
 import net.countered.settlementroads.helpers.Records;
 import net.minecraft.core.BlockPos;
 import net.minecraft.network.FriendlyByteBuf;
@@ -16,15 +17,26 @@ public class DebugDataPacket {
     private final List<Records.StructureInfo> structureInfos;
     private final List<Records.StructureConnection> connections;
     private final List<Records.RoadData> roads;
+    private final Records.SchedulerStatus schedulerStatus;
     
     public DebugDataPacket(
         List<Records.StructureInfo> structureInfos,
         List<Records.StructureConnection> connections,
         List<Records.RoadData> roads
+    ) {
+        this(structureInfos, connections, roads, null);
+    }
+    
+    public DebugDataPacket(
+        List<Records.StructureInfo> structureInfos,
+        List<Records.StructureConnection> connections,
+        List<Records.RoadData> roads,
+        Records.SchedulerStatus schedulerStatus
     ) {
         this.structureInfos = structureInfos != null ? structureInfos : new ArrayList<>();
         this.connections = connections != null ? connections : new ArrayList<>();
         this.roads = roads != null ? roads : new ArrayList<>();
+        this.schedulerStatus = schedulerStatus;
     }
     
     public List<Records.StructureInfo> getStructureInfos() {
@@ -39,6 +51,13 @@ public class DebugDataPacket {
         return roads;
     }
     
+    /**
+     * @return 调度状态，旧版服务器未发送时为 null
+     */
+    public Records.SchedulerStatus getSchedulerStatus() {
+        return schedulerStatus;
+    }
+    
     /**
      * 编码数据包
      */
@@ -68,11 +87,29 @@ public class DebugDataPacket {
             buf.writeInt(road.roadType());
             
             // 写入道路段列表
-            List<Records.RoadSegmentPlacement> segments = road.roadSegmentList();
+            CompactRoadSegments segments = road.segments();
             buf.writeInt(segments.size());
-            for (Records.RoadSegmentPlacement segment : segments) {
+            for (int i = 0; i < segments.size(); i++) {
                 // 只传输中点位置（用于绘制道路路径）
-                buf.writeBlockPos(segment.middlePos());
+                buf.writeLong(segments.centerKey(i));
+            }
+        }
+        
+        // 写入调度状态（可选）
+        buf.writeBoolean(schedulerStatus != null);
+        if (schedulerStatus != null) {
+            buf.writeInt(schedulerStatus.limit());
+            buf.writeInt(schedulerStatus.min());
+            buf.writeInt(schedulerStatus.max());
+            buf.writeUtf(schedulerStatus.reason());
+            buf.writeDouble(schedulerStatus.roadsPerMinute());
+            buf.writeInt(schedulerStatus.stages().size());
+            for (Records.PipelineStageStatus stage : schedulerStatus.stages()) {
+                buf.writeUtf(stage.name());
+                buf.writeInt(stage.depth());
+                buf.writeInt(stage.capacity());
+                buf.writeDouble(stage.avgLatencyMs());
+                buf.writeLong(stage.processed());
             }
         }
         
@@ -124,6 +161,23 @@ public class DebugDataPacket {
             roads.add(new Records.RoadData(width, roadType, new ArrayList<>(), segments));
         }
         
-        return new DebugDataPacket(structureInfos, connections, roads);
+        // 读取调度状态（兼容未发送该字段的旧版服务器）
+        Records.SchedulerStatus schedulerStatus = null;
+        if (buf.isReadable() && buf.readBoolean()) {
+            int limit = buf.readInt();
+            int min = buf.readInt();
+            int max = buf.readInt();
+            String reason = buf.readUtf();
+            double roadsPerMinute = buf.readDouble();
+            int stageCount = buf.readInt();
+            List<Records.PipelineStageStatus> stages = new ArrayList<>(stageCount);
+            for (int i = 0; i < stageCount; i++) {
+                stages.add(new Records.PipelineStageStatus(
+                    buf.readUtf(), buf.readInt(), buf.readInt(), buf.readDouble(), buf.readLong()));
+            }
+            schedulerStatus = new Records.SchedulerStatus(limit, min, max, reason, roadsPerMinute, stages);
+        }
+        
+        return new DebugDataPacket(structureInfos, connections, roads, schedulerStatus);
     }
 }
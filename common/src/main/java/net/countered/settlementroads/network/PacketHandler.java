@@ -1,6 +1,10 @@
 package net.countered.settlementroads.network;
 
+import net.countered.settlementroads.features.roadlogic.RoadNetwork;
+import net.countered.settlementroads.features.roadlogic.RoadPipeline;
 import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.helpers.async.RoadConcurrencyController;
+import net.countered.settlementroads.helpers.async.RoadThroughputTracker;
 import net.countered.settlementroads.persistence.WorldDataProvider;
 import net.minecraft.client.Minecraft;
 import net.minecraft.server.level.ServerLevel;
@@ -37,8 +41,9 @@ public class PacketHandler {
             List<Records.StructureInfo> structureInfos = structureData != null ? 
                 new ArrayList<>(structureData.structureInfos()) : new ArrayList<>();
             
-            // 创建数据包并发送
-            DebugDataPacket packet = new DebugDataPacket(structureInfos, connections, roads);
+            // 创建数据包并发送（共享路段只发送一次）
+            List<Records.RoadData> roadView = roads != null ? RoadNetwork.renderView(world, roads) : null;
+            DebugDataPacket packet = new DebugDataPacket(structureInfos, connections, roadView, buildSchedulerStatus());
             RoadWeaverNetworkManager.sendDebugData(player, packet);
             
             LOGGER.info("Sent debug data to player {}: {} structures, {} connections, {} roads",
@@ -52,6 +57,25 @@ public class PacketHandler {
         }
     }
     
+    /**
+     * 服务器端：采集当前道路调度状态
+     */
+    public static Records.SchedulerStatus buildSchedulerStatus() {
+        RoadConcurrencyController.Snapshot snapshot = RoadConcurrencyController.getSnapshot();
+        return new Records.SchedulerStatus(snapshot.limit(), snapshot.min(), snapshot.max(),
+            snapshot.reason().name(), RoadThroughputTracker.getRoadsPerMinute(), RoadPipeline.getStageStatuses());
+    }
+    
+    /**
+     * 客户端：获取道路调度状态（单人游戏直接读取集成服务器，多人游戏使用服务器发送的数据）
+     */
+    public static Records.SchedulerStatus getSchedulerStatus() {
+        if (Minecraft.getInstance().getSingleplayerServer() != null) {
+            return buildSchedulerStatus();
+        }
+        return cachedDebugData != null ? cachedDebugData.getSchedulerStatus() : null;
+    }
+    
     /**
      * 客户端：处理服务器发送的调试数据
      */
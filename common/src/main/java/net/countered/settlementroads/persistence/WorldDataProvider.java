@@ -30,6 +30,14 @@ public abstract class WorldDataProvider {
     // 道路数据
     public abstract List<Records.RoadData> getRoadDataList(ServerLevel level);
     public abstract void setRoadDataList(ServerLevel level, List<Records.RoadData> roadDataList);
+
+    // 补铺任务
+    public abstract List<Records.PavingJob> getPavingJobs(ServerLevel level);
+    public abstract void setPavingJobs(ServerLevel level, List<Records.PavingJob> jobs);
+
+    // 待放置的跨区块装饰片段
+    public abstract List<Records.DecorationFragment> getDecorationFragments(ServerLevel level);
+    public abstract void setDecorationFragments(ServerLevel level, List<Records.DecorationFragment> fragments);
     
     // 便捷方法：添加单个结构位置
     public void addStructureLocation(ServerLevel level, BlockPos pos) {
@@ -0,0 +1,143 @@
+package net.countered.settlementroads.chunk;
+
+import net.minecraft.world.level.ChunkPos;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.function.LongSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ChunkRoadStateManagerTest {
+
+    private static final long CHUNK = ChunkPos.asLong(-3, 7);
+    private static final long OTHER_CHUNK = ChunkPos.asLong(-3, 8);
+
+    private LongSupplier originalClock;
+    private long now;
+    private ChunkRoadStateManager.TimerWheel wheel;
+    private ChunkRoadStateManager.WorldGate gate;
+
+    @BeforeEach
+    void setUp() {
+        originalClock = ChunkRoadStateManager.clock;
+        now = 1_000_000L;
+        ChunkRoadStateManager.clock = () -> now;
+        // 不启动后台线程，由测试推进时间轮；闸门不需要世界（没有释放回调时不会访问）
+        wheel = new ChunkRoadStateManager.TimerWheel(false);
+        gate = new ChunkRoadStateManager.WorldGate(null, wheel);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ChunkRoadStateManager.clock = originalClock;
+    }
+
+    @Test
+    void holdsAndReleasesBalance() {
+        synchronized (gate) {
+            gate.hold(CHUNK, now);
+            gate.hold(CHUNK, now);
+            gate.hold(OTHER_CHUNK, now);
+            assertEquals(2, gate.holdCount(CHUNK));
+            assertEquals(2, gate.pendingCount());
+
+            gate.release(CHUNK, false, new ArrayList<>());
+            assertEquals(1, gate.holdCount(CHUNK));
+            assertEquals(2, gate.pendingCount());
+
+            gate.release(CHUNK, false, new ArrayList<>());
+            assertEquals(0, gate.holdCount(CHUNK));
+            assertEquals(1, gate.pendingCount());
+
+            // 多余的释放不会影响其他区块，也不会让计数变为负数
+            gate.release(CHUNK, false, new ArrayList<>());
+            gate.hold(CHUNK, now);
+            assertEquals(1, gate.holdCount(CHUNK));
+            assertEquals(1, gate.holdCount(OTHER_CHUNK));
+        }
+    }
+
+    @Test
+    void forcedReleaseDropsAllHolds() {
+        synchronized (gate) {
+            gate.hold(CHUNK, now);
+            gate.hold(CHUNK, now);
+            gate.release(CHUNK, true, new ArrayList<>());
+            assertEquals(0, gate.holdCount(CHUNK));
+            assertEquals(0, gate.pendingCount());
+        }
+    }
+
+    @Test
+    void chunkExpiresAfterTimeout() {
+        synchronized (gate) {
+            gate.hold(CHUNK, now);
+            gate.hold(CHUNK, now);
+        }
+        // 超时前：时间轮推进到截止时间之前，区块仍被扣留
+        advanceUntil(now + ChunkRoadStateManager.TIMEOUT_MS - ChunkRoadStateManager.TimerWheel.TICK_MS);
+        synchronized (gate) {
+            assertEquals(2, gate.holdCount(CHUNK));
+        }
+        // 到期后无论持有数多少都强制放行
+        advanceUntil(now + 2 * ChunkRoadStateManager.TimerWheel.TICK_MS);
+        synchronized (gate) {
+            assertEquals(0, gate.holdCount(CHUNK));
+            assertEquals(0, gate.pendingCount());
+        }
+    }
+
+    @Test
+    void reheldChunkIsNotExpiredByItsOldTimer() {
+        synchronized (gate) {
+            gate.hold(CHUNK, now);
+        }
+        advanceUntil(now + ChunkRoadStateManager.TIMEOUT_MS / 2);
+        synchronized (gate) {
+            gate.release(CHUNK, false, new ArrayList<>());
+            // 重新持有：新的截止时间从现在开始计算
+            gate.hold(CHUNK, now);
+        }
+        long newDeadline = now + ChunkRoadStateManager.TIMEOUT_MS;
+        advanceUntil(newDeadline - ChunkRoadStateManager.TimerWheel.TICK_MS);
+        synchronized (gate) {
+            assertEquals(1, gate.holdCount(CHUNK), "old timer entry must not release the re-held chunk");
+        }
+        advanceUntil(newDeadline + 2 * ChunkRoadStateManager.TimerWheel.TICK_MS);
+        synchronized (gate) {
+            assertEquals(0, gate.holdCount(CHUNK));
+        }
+    }
+
+    @Test
+    void earlyWheelTickReschedulesInsteadOfExpiring() {
+        synchronized (gate) {
+            gate.hold(CHUNK, now);
+        }
+        // 时钟落后于时间轮（例如线程被提前唤醒）：到达槽位时尚未到期，应重新排入
+        int ticks = (int) (ChunkRoadStateManager.TIMEOUT_MS / ChunkRoadStateManager.TimerWheel.TICK_MS) + 1;
+        for (int i = 0; i < ticks; i++) {
+            wheel.advance();
+        }
+        synchronized (gate) {
+            assertEquals(1, gate.holdCount(CHUNK));
+        }
+        advanceUntil(now + ChunkRoadStateManager.TIMEOUT_MS + ChunkRoadStateManager.TimerWheel.TICK_MS);
+        synchronized (gate) {
+            assertEquals(0, gate.holdCount(CHUNK));
+        }
+    }
+
+    /**
+     * 按时间轮的格长推进时钟与时间轮，直到 target
+     */
+    private void advanceUntil(long target) {
+        while (now < target) {
+            now += ChunkRoadStateManager.TimerWheel.TICK_MS;
+            wheel.advance();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package net.countered.settlementroads.chunk;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RoadOccupancyIndexTest {
+
+    @Test
+    void bitIndexIsUniqueWithinARegion() {
+        Set<Integer> bits = new HashSet<>();
+        // 负区域 (-1, -1) 内的全部 32x32 区块
+        for (int chunkX = -32; chunkX < 0; chunkX++) {
+            for (int chunkZ = -32; chunkZ < 0; chunkZ++) {
+                int bit = RoadOccupancyIndex.WorldIndex.bitIndex(chunkX, chunkZ);
+                assertTrue(bit >= 0 && bit < 1024, "bit out of range: " + bit);
+                assertTrue(bits.add(bit), "duplicate bit for " + chunkX + "," + chunkZ);
+            }
+        }
+        assertEquals(1024, bits.size());
+    }
+
+    @Test
+    void chunksAroundTheOriginDoNotAlias() {
+        RoadOccupancyIndex.WorldIndex index = new RoadOccupancyIndex.WorldIndex();
+        index.mark(-1, -1);
+        index.mark(0, 0);
+        index.mark(-32, 31);
+
+        assertTrue(index.contains(-1, -1));
+        assertTrue(index.contains(0, 0));
+        assertTrue(index.contains(-32, 31));
+        // 同一区域内的局部坐标相同，但位于相邻区域
+        assertFalse(index.contains(31, 31));
+        assertFalse(index.contains(-1, 31));
+        assertFalse(index.contains(0, -1));
+        assertFalse(index.contains(-33, 31));
+        assertFalse(index.contains(-32, 32));
+        assertFalse(index.contains(-32, -1));
+    }
+
+    @Test
+    void markedChunksMatchReferenceSetAcrossRegions() {
+        Random random = new Random(7);
+        RoadOccupancyIndex.WorldIndex index = new RoadOccupancyIndex.WorldIndex();
+        Set<Long> marked = new HashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            int chunkX = random.nextInt(200) - 100;
+            int chunkZ = random.nextInt(200) - 100;
+            index.mark(chunkX, chunkZ);
+            marked.add(key(chunkX, chunkZ));
+        }
+        for (int chunkX = -110; chunkX < 110; chunkX++) {
+            for (int chunkZ = -110; chunkZ < 110; chunkZ++) {
+                assertEquals(marked.contains(key(chunkX, chunkZ)), index.contains(chunkX, chunkZ),
+                        "chunk " + chunkX + "," + chunkZ);
+            }
+        }
+    }
+
+    @Test
+    void farAwayRegionsAreIndependent() {
+        RoadOccupancyIndex.WorldIndex index = new RoadOccupancyIndex.WorldIndex();
+        // 世界边界附近（±30M 方块 ≈ ±1.87M 区块）
+        index.mark(-1_875_000, 1_874_999);
+        assertTrue(index.contains(-1_875_000, 1_874_999));
+        assertFalse(index.contains(1_874_999, -1_875_000));
+        assertFalse(index.contains(-1_875_000 + 32, 1_874_999));
+    }
+
+    private static long key(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,118 @@
+package net.countered.settlementroads.helpers;
+
+import net.countered.settlementroads.features.roadlogic.RoadPathCalculator;
+import net.minecraft.core.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CompactRoadSegmentsTest {
+
+    // 覆盖半径 0（单格）、奇偶宽度以及位图跨越两个 long 的半径（9 → 9x9 = 81 位）
+    private static final int[] WIDTHS = {1, 2, 3, 5, 7, 9};
+    // 直行 X、直行 Z、两个对角方向，以及反向
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+    private static final int STEPS = 12;
+
+    @Test
+    void widthPositionsRoundTripForEveryWidthAndDirection() {
+        for (int width : WIDTHS) {
+            for (int[] direction : DIRECTIONS) {
+                // 负坐标起点，覆盖打包坐标的符号位
+                CompactRoadSegments compact = build(new BlockPos(-1000, 64, -2000), direction, width);
+                List<Records.RoadSegmentPlacement> plain = new ArrayList<>(compact);
+                CompactRoadSegments restored = CompactRoadSegments.of(width, plain);
+
+                String label = "width " + width + " direction " + direction[0] + "," + direction[1];
+                assertEquals(compact.size(), restored.size(), label);
+                assertEquals(compact.radius(), restored.radius(), label);
+                for (int i = 0; i < compact.size(); i++) {
+                    assertEquals(compact.centerKey(i), restored.centerKey(i), label + " segment " + i);
+                    assertEquals(widthColumns(compact, i), widthColumns(restored, i), label + " segment " + i);
+                }
+            }
+        }
+    }
+
+    @Test
+    void widthPositionsStayWithinRadiusAndAreNotShared() {
+        for (int width : WIDTHS) {
+            for (int[] direction : DIRECTIONS) {
+                CompactRoadSegments compact = build(new BlockPos(37, 70, -5), direction, width);
+                Set<Long> seen = new HashSet<>();
+                for (int i = 0; i < compact.size(); i++) {
+                    for (long column : widthColumns(compact, i)) {
+                        assertTrue(Math.abs(BlockPos.getX(column) - compact.centerX(i)) <= width / 2);
+                        assertTrue(Math.abs(BlockPos.getZ(column) - compact.centerZ(i)) <= width / 2);
+                        // 段间去重：每个位置只属于第一个覆盖它的段
+                        assertTrue(seen.add(column), "width " + width + " duplicated " + BlockPos.of(column));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void straightRoadCoversFullWidthAcrossTheAxis() {
+        int width = 5;
+        CompactRoadSegments compact = build(new BlockPos(-8, 64, -8), new int[]{1, 0}, width);
+        Set<Long> covered = new HashSet<>();
+        for (int i = 0; i < compact.size(); i++) {
+            covered.addAll(widthColumns(compact, i));
+        }
+        for (int x = -8; x <= -8 + STEPS * 4; x++) {
+            for (int dz = -width / 2; dz <= width / 2; dz++) {
+                assertTrue(covered.contains(BlockPos.asLong(x, 0, -8 + dz)), "missing " + x + "," + (-8 + dz));
+            }
+        }
+        assertEquals((STEPS * 4 + 1) * width, covered.size());
+    }
+
+    @Test
+    void compactListIsReturnedAsIs() {
+        CompactRoadSegments compact = build(BlockPos.ZERO, new int[]{1, 1}, 3);
+        assertSame(compact, CompactRoadSegments.of(3, compact));
+    }
+
+    @Test
+    void builderOverwritesProfileForRepeatedCenter() {
+        CompactRoadSegments.Builder builder = new CompactRoadSegments.Builder(1, 2);
+        int first = builder.add(new BlockPos(-3, 0, -3));
+        builder.setWidthOffset(first, 1, 1);
+        int again = builder.add(new BlockPos(-3, 0, -3));
+        builder.setWidthOffset(again, -1, 0);
+        // 超出半径的偏移被忽略
+        builder.setWidthOffset(again, 2, 0);
+        CompactRoadSegments compact = builder.build();
+
+        assertEquals(first, again);
+        assertEquals(1, compact.size());
+        assertEquals(Set.of(BlockPos.asLong(-4, 0, -3)), widthColumns(compact, 0));
+    }
+
+    private static CompactRoadSegments build(BlockPos start, int[] direction, int width) {
+        List<BlockPos> lattice = new ArrayList<>();
+        for (int i = 0; i <= STEPS; i++) {
+            lattice.add(start.offset(direction[0] * 4 * i, 0, direction[1] * 4 * i));
+        }
+        return (CompactRoadSegments) RoadPathCalculator.buildFromLattice(lattice, width);
+    }
+
+    private static Set<Long> widthColumns(CompactRoadSegments segments, int index) {
+        Set<Long> columns = new HashSet<>();
+        CompactRoadSegments.WidthCursor cursor = segments.widthCursor().reset(index);
+        while (cursor.next()) {
+            columns.add(BlockPos.asLong(cursor.x(), 0, cursor.z()));
+        }
+        return columns;
+    }
+}
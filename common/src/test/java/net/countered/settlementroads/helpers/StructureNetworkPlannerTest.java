@@ -0,0 +1,203 @@
+package net.countered.settlementroads.helpers;
+
+import net.minecraft.core.BlockPos;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StructureNetworkPlannerTest {
+
+    @Test
+    void randomPointsGetMinimumSpanningTree() {
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            List<BlockPos> structures = new ArrayList<>();
+            for (int i = 0; i < 40; i++) {
+                structures.add(new BlockPos(random.nextInt(4000) - 2000, 64, random.nextInt(4000) - 2000));
+            }
+            List<StructureNetworkPlanner.Edge> edges = StructureNetworkPlanner.missingEdges(structures, List.of(), false);
+
+            assertEquals(structures.size() - 1, edges.size());
+            assertEquals(1, components(structures.size(), edges, List.of(), structures));
+            assertEquals(primLength(structures), totalLength(edges), 1e-6);
+            assertSortedByLength(edges);
+        }
+    }
+
+    @Test
+    void collinearPointsAreChainedToNeighbours() {
+        List<BlockPos> structures = new ArrayList<>();
+        // 打乱顺序的共线点：三角剖分完全退化
+        for (int x : new int[]{600, -200, 0, 1000, 200, -600, 400}) {
+            structures.add(new BlockPos(x, 70, 3 * x));
+        }
+        List<StructureNetworkPlanner.Edge> edges = StructureNetworkPlanner.missingEdges(structures, List.of(), true);
+
+        assertEquals(structures.size() - 1, edges.size());
+        assertEquals(1, components(structures.size(), edges, List.of(), structures));
+        assertEquals(primLength(structures), totalLength(edges), 1e-6);
+    }
+
+    @Test
+    void existingConnectionsMergeComponents() {
+        List<BlockPos> structures = List.of(
+                new BlockPos(0, 64, 0), new BlockPos(100, 64, 0),
+                new BlockPos(0, 64, 100), new BlockPos(1000, 64, 1000));
+        List<Records.StructureConnection> connections = List.of(
+                new Records.StructureConnection(structures.get(0), structures.get(1), Records.ConnectionStatus.COMPLETED),
+                new Records.StructureConnection(structures.get(0), structures.get(2), Records.ConnectionStatus.PLANNED));
+
+        List<StructureNetworkPlanner.Edge> edges = StructureNetworkPlanner.missingEdges(structures, connections, false);
+
+        // 三个已连通的结构只差一条通往远处结构的边
+        assertEquals(1, edges.size());
+        assertTrue(edges.get(0).a() == 3 || edges.get(0).b() == 3);
+        assertEquals(1, components(structures.size(), edges, connections, structures));
+    }
+
+    @Test
+    void failedConnectionIsRoutedAround() {
+        BlockPos a = new BlockPos(0, 64, 0);
+        BlockPos b = new BlockPos(100, 64, 0);
+        BlockPos c = new BlockPos(50, 64, 300);
+        List<BlockPos> structures = List.of(a, b, c);
+        List<Records.StructureConnection> connections = List.of(
+                new Records.StructureConnection(a, b, Records.ConnectionStatus.FAILED));
+
+        List<StructureNetworkPlanner.Edge> edges = StructureNetworkPlanner.missingEdges(structures, connections, false);
+
+        assertEquals(2, edges.size());
+        for (StructureNetworkPlanner.Edge edge : edges) {
+            assertTrue(edge.a() == 2 || edge.b() == 2, "failed edge a-b must not be planned again");
+        }
+    }
+
+    @Test
+    void componentWithOnlyFailedCandidatesIsAbandoned() {
+        BlockPos a = new BlockPos(-500, 64, -500);
+        BlockPos b = new BlockPos(-400, 64, -500);
+        List<Records.StructureConnection> connections = List.of(
+                new Records.StructureConnection(a, b, Records.ConnectionStatus.FAILED));
+
+        assertTrue(StructureNetworkPlanner.missingEdges(List.of(a, b), connections, true).isEmpty());
+    }
+
+    @Test
+    void structuresSharingAColumnMapToTheFirstIndex() {
+        List<BlockPos> structures = List.of(
+                new BlockPos(0, 64, 0), new BlockPos(300, 64, 0), new BlockPos(0, 90, 0));
+
+        List<StructureNetworkPlanner.Edge> edges = StructureNetworkPlanner.missingEdges(structures, List.of(), false);
+
+        assertEquals(1, edges.size());
+        StructureNetworkPlanner.Edge edge = edges.get(0);
+        assertEquals(0, Math.min(edge.a(), edge.b()));
+        assertEquals(1, Math.max(edge.a(), edge.b()));
+    }
+
+    @Test
+    void loopEdgesAreCappedAcrossPlanningPasses() {
+        List<BlockPos> structures = new ArrayList<>();
+        for (int x = 0; x < 4; x++) {
+            for (int z = 0; z < 4; z++) {
+                structures.add(new BlockPos(x * 500, 64, z * 500));
+            }
+        }
+        List<Records.StructureConnection> connections = new ArrayList<>();
+        for (int pass = 0; pass < 5; pass++) {
+            for (StructureNetworkPlanner.Edge edge : StructureNetworkPlanner.missingEdges(structures, connections, true)) {
+                connections.add(new Records.StructureConnection(structures.get(edge.a()), structures.get(edge.b()),
+                        Records.ConnectionStatus.COMPLETED));
+            }
+        }
+
+        int loops = connections.size() - (structures.size() - 1);
+        assertTrue(loops > 0, "loops should be added");
+        assertTrue(loops <= structures.size() / 4, "too many loop edges: " + loops);
+        assertTrue(StructureNetworkPlanner.missingEdges(structures, connections, true).isEmpty());
+    }
+
+    private static void assertSortedByLength(List<StructureNetworkPlanner.Edge> edges) {
+        for (int i = 1; i < edges.size(); i++) {
+            assertTrue(edges.get(i - 1).length() <= edges.get(i).length());
+        }
+    }
+
+    private static double totalLength(List<StructureNetworkPlanner.Edge> edges) {
+        double total = 0;
+        for (StructureNetworkPlanner.Edge edge : edges) {
+            total += edge.length();
+        }
+        return total;
+    }
+
+    /**
+     * 参考实现：O(n²) 的 Prim 最小生成树总长度
+     */
+    private static double primLength(List<BlockPos> points) {
+        int n = points.size();
+        boolean[] inTree = new boolean[n];
+        double[] best = new double[n];
+        java.util.Arrays.fill(best, Double.MAX_VALUE);
+        best[0] = 0;
+        double total = 0;
+        for (int round = 0; round < n; round++) {
+            int next = -1;
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i] && (next < 0 || best[i] < best[next])) {
+                    next = i;
+                }
+            }
+            inTree[next] = true;
+            total += best[next];
+            for (int i = 0; i < n; i++) {
+                if (!inTree[i]) {
+                    best[i] = Math.min(best[i], distance(points.get(next), points.get(i)));
+                }
+            }
+        }
+        return total;
+    }
+
+    private static int components(int n, List<StructureNetworkPlanner.Edge> edges,
+                                  List<Records.StructureConnection> connections, List<BlockPos> structures) {
+        int[] parents = new int[n];
+        for (int i = 0; i < n; i++) {
+            parents[i] = i;
+        }
+        int count = n;
+        for (StructureNetworkPlanner.Edge edge : edges) {
+            count -= union(parents, edge.a(), edge.b()) ? 1 : 0;
+        }
+        for (Records.StructureConnection connection : connections) {
+            if (connection.status() == Records.ConnectionStatus.FAILED) continue;
+            count -= union(parents, structures.indexOf(connection.from()), structures.indexOf(connection.to())) ? 1 : 0;
+        }
+        return count;
+    }
+
+    private static boolean union(int[] parents, int a, int b) {
+        int rootA = find(parents, a);
+        int rootB = find(parents, b);
+        parents[rootB] = rootA;
+        return rootA != rootB;
+    }
+
+    private static int find(int[] parents, int i) {
+        while (parents[i] != i) {
+            i = parents[i];
+        }
+        return i;
+    }
+
+    private static double distance(BlockPos a, BlockPos b) {
+        double dx = a.getX() - b.getX();
+        double dz = a.getZ() - b.getZ();
+        return Math.sqrt(dx * dx + dz * dz);
+    }
+}
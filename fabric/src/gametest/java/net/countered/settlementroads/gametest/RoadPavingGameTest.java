@@ -0,0 +1,127 @@
+package net.countered.settlementroads.gametest;
+
+import net.countered.settlementroads.chunk.RoadOccupancyIndex;
+import net.countered.settlementroads.features.roadlogic.RoadNetwork;
+import net.countered.settlementroads.features.roadlogic.RoadPathCalculator;
+import net.countered.settlementroads.features.roadlogic.RoadPaver;
+import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.persistence.WorldDataProvider;
+import net.fabricmc.fabric.api.gametest.v1.FabricGameTest;
+import net.minecraft.core.BlockPos;
+import net.minecraft.gametest.framework.GameTest;
+import net.minecraft.gametest.framework.GameTestAssertException;
+import net.minecraft.gametest.framework.GameTestAssertPosException;
+import net.minecraft.gametest.framework.GameTestHelper;
+import net.minecraft.server.level.ServerLevel;
+import net.minecraft.world.level.block.Blocks;
+import net.minecraft.world.level.block.state.BlockState;
+import net.minecraft.world.level.levelgen.Heightmap;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 补铺冒烟测试（./gradlew :fabric:runGametest）
+ *
+ * 在已经生成完毕的区块上登记一条道路（与持久化阶段相同：道路列表、占用索引、路网），
+ * 确认 RoadPaver 在服务器 tick 中经 Common 的 RoadFeature.paveChunk 把路面写入世界
+ */
+public class RoadPavingGameTest implements FabricGameTest {
+
+    private static final int TIMEOUT_TICKS = 600;
+    // 超时前的最后一次检查：失败时在这里清理（测试框架超时后不再回调）
+    private static final int LAST_CHECK_TICK = TIMEOUT_TICKS - 2;
+    // 道路半长；两端各约 60 段靠近结构不铺路，检查点离中心不远
+    private static final int HALF_LENGTH = 160;
+    private static final int CHECK_OFFSET = 24;
+
+    @GameTest(template = EMPTY_STRUCTURE, timeoutTicks = TIMEOUT_TICKS)
+    public void pavesExistingChunk(GameTestHelper helper) {
+        ServerLevel level = helper.getLevel();
+        BlockPos origin = helper.absolutePos(BlockPos.ZERO);
+        // 对齐寻路的 4 格网格
+        int centerX = origin.getX() & ~3;
+        int centerZ = origin.getZ() & ~3;
+        int y = level.getHeight(Heightmap.Types.WORLD_SURFACE, centerX, centerZ);
+
+        List<BlockPos> lattice = new ArrayList<>();
+        for (int x = centerX - HALF_LENGTH; x <= centerX + HALF_LENGTH; x += 4) {
+            lattice.add(new BlockPos(x, y, centerZ));
+        }
+        BlockState material = Blocks.POLISHED_ANDESITE.defaultBlockState();
+        Records.RoadData road = new Records.RoadData(3, 0, List.of(material),
+                RoadPathCalculator.buildFromLattice(lattice, 3));
+
+        // 道路所在区块及周围一圈保持加载，补铺器只写入 3x3 均已加载的区块
+        int minChunkX = (centerX - HALF_LENGTH >> 4) - 1;
+        int maxChunkX = (centerX + HALF_LENGTH >> 4) + 1;
+        int chunkZ = centerZ >> 4;
+        Runnable cleanup = () -> {
+            setChunksForced(level, minChunkX, maxChunkX, chunkZ, false);
+            removeRoad(level, road);
+        };
+
+        BlockPos roadPos;
+        try {
+            setChunksForced(level, minChunkX, maxChunkX, chunkZ, true);
+            BlockPos checkColumn = new BlockPos(centerX + CHECK_OFFSET, y, centerZ);
+            int surfaceY = level.getHeight(Heightmap.Types.WORLD_SURFACE, checkColumn.getX(), checkColumn.getZ());
+            roadPos = checkColumn.atY(surfaceY - 1);
+            addRoad(level, road);
+            RoadPaver.enqueue(level, road);
+        } catch (RuntimeException e) {
+            cleanup.run();
+            throw e;
+        }
+
+        helper.succeedWhen(() -> {
+            try {
+                BlockState state = level.getBlockState(roadPos);
+                if (!state.is(material.getBlock())) {
+                    throw new GameTestAssertPosException("Expected road material, got " + state,
+                            roadPos, helper.relativePos(roadPos), helper.getTick());
+                }
+            } catch (GameTestAssertException e) {
+                if (helper.getTick() >= LAST_CHECK_TICK) {
+                    cleanup.run();
+                }
+                throw e;
+            }
+            cleanup.run();
+        });
+    }
+
+    /**
+     * 与持久化阶段相同的登记：写入道路列表，并加入区块占用索引与路网
+     */
+    private static void addRoad(ServerLevel level, Records.RoadData road) {
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        List<Records.RoadData> roads = dataProvider.getRoadDataList(level);
+        List<Records.RoadData> updated = new ArrayList<>(roads != null ? roads : List.of());
+        updated.add(road);
+        dataProvider.setRoadDataList(level, updated);
+        RoadOccupancyIndex.addRoad(level, road);
+        RoadNetwork.addRoad(level, road);
+    }
+
+    /**
+     * 从道路列表中移除测试道路（占用索引与路网只增不减，世界卸载时清空）
+     */
+    private static void removeRoad(ServerLevel level, Records.RoadData road) {
+        WorldDataProvider dataProvider = WorldDataProvider.getInstance();
+        List<Records.RoadData> roads = dataProvider.getRoadDataList(level);
+        if (roads != null && roads.contains(road)) {
+            List<Records.RoadData> updated = new ArrayList<>(roads);
+            updated.remove(road);
+            dataProvider.setRoadDataList(level, updated);
+        }
+    }
+
+    private static void setChunksForced(ServerLevel level, int minChunkX, int maxChunkX, int chunkZ, boolean forced) {
+        for (int x = minChunkX; x <= maxChunkX; x++) {
+            for (int z = chunkZ - 1; z <= chunkZ + 1; z++) {
+                level.setChunkForced(x, z, forced);
+            }
+        }
+    }
+}
@@ -7,6 +7,7 @@ import net.countered.settlementroads.features.config.FabricBiomeInjection;
 import net.countered.settlementroads.network.RoadWeaverNetworkManager;
 import net.countered.settlementroads.persistence.attachments.WorldDataAttachment;
 import net.fabricmc.api.ModInitializer;
+import net.fabricmc.fabric.api.event.lifecycle.v1.CommonLifecycleEvents;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -36,7 +37,9 @@ public class SettlementRoads implements ModInitializer {
 		// Fabric 端通过 BiomeModifications 注入放置特性
 		FabricBiomeInjection.inject();
 		
-		// 注册事件处理器
+		// 注册事件处理器（Common 实现，基于 Architectury 事件，与 Forge 共用）
 		ModEventHandler.register();
+		// 标签绑定完成后失效依赖标签的缓存（Architectury 没有对应事件）
+		CommonLifecycleEvents.TAGS_LOADED.register((registries, client) -> ModEventHandler.onTagsUpdated());
 	}
 }
\ No newline at end of file
@@ -41,6 +41,32 @@ public class ClothConfigScreen {
                 .setSaveConsumer(FabricModConfig::setStructureSearchRadius)
                 .build());
         
+        structures.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.batchNetworkPlanning"),
+                FabricModConfig.getBatchNetworkPlanning())
+                .setDefaultValue(true)
+                .setTooltip(Component.translatable("config.roadweaver.batchNetworkPlanning.tooltip"))
+                .setSaveConsumer(FabricModConfig::setBatchNetworkPlanning)
+                .build());
+        
+        structures.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.plannerAddLoops"),
+                FabricModConfig.getPlannerAddLoops())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.plannerAddLoops.tooltip"))
+                .setSaveConsumer(FabricModConfig::setPlannerAddLoops)
+                .build());
+        
+        structures.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.multiTargetCandidates"),
+                FabricModConfig.getMultiTargetCandidates())
+                .setDefaultValue(3)
+                .setMin(1)
+                .setMax(8)
+                .setTooltip(Component.translatable("config.roadweaver.multiTargetCandidates.tooltip"))
+                .setSaveConsumer(FabricModConfig::setMultiTargetCandidates)
+                .build());
+        
         // 预生成配置分类
         ConfigCategory preGeneration = builder.getOrCreateCategory(
                 Component.translatable("config.roadweaver.category.pregeneration"));
@@ -65,6 +91,54 @@ public class ClothConfigScreen {
                 .setSaveConsumer(FabricModConfig::setMaxConcurrentRoadGeneration)
                 .build());
         
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.minConcurrentRoadGeneration"),
+                FabricModConfig.getMinConcurrentRoadGeneration())
+                .setDefaultValue(1)
+                .setMin(1)
+                .setMax(256)
+                .setTooltip(Component.translatable("config.roadweaver.minConcurrentRoadGeneration.tooltip"))
+                .setSaveConsumer(FabricModConfig::setMinConcurrentRoadGeneration)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.roadWorkerThreads"),
+                FabricModConfig.getRoadWorkerThreads())
+                .setDefaultValue(0)
+                .setMin(0)
+                .setMax(64)
+                .setTooltip(Component.translatable("config.roadweaver.roadWorkerThreads.tooltip"))
+                .setSaveConsumer(FabricModConfig::setRoadWorkerThreads)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.sendThenPatch"),
+                FabricModConfig.getSendThenPatch())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.sendThenPatch.tooltip"))
+                .setSaveConsumer(FabricModConfig::setSendThenPatch)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.patchSectionsPerPlayerPerTick"),
+                FabricModConfig.getPatchSectionsPerPlayerPerTick())
+                .setDefaultValue(32)
+                .setMin(1)
+                .setMax(512)
+                .setTooltip(Component.translatable("config.roadweaver.patchSectionsPerPlayerPerTick.tooltip"))
+                .setSaveConsumer(FabricModConfig::setPatchSectionsPerPlayerPerTick)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.retroPavingBudgetMs"),
+                FabricModConfig.getRetroPavingBudgetMs())
+                .setDefaultValue(4)
+                .setMin(0)
+                .setMax(50)
+                .setTooltip(Component.translatable("config.roadweaver.retroPavingBudgetMs.tooltip"))
+                .setSaveConsumer(FabricModConfig::setRetroPavingBudgetMs)
+                .build());
+        
         preGeneration.addEntry(entryBuilder.startIntSlider(
                 Component.translatable("config.roadweaver.structureSearchTriggerDistance"),
                 FabricModConfig.getStructureSearchTriggerDistance(),
@@ -134,6 +208,42 @@ public class ClothConfigScreen {
                 .setSaveConsumer(FabricModConfig::setMaxTerrainStability)
                 .build());
         
+        roads.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.routeOntoNetwork"),
+                FabricModConfig.getRouteOntoNetwork())
+                .setDefaultValue(true)
+                .setTooltip(Component.translatable("config.roadweaver.routeOntoNetwork.tooltip"))
+                .setSaveConsumer(FabricModConfig::setRouteOntoNetwork)
+                .build());
+        
+        roads.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.thresholdRelaxationSteps"),
+                FabricModConfig.getThresholdRelaxationSteps())
+                .setDefaultValue(2)
+                .setMin(0)
+                .setMax(8)
+                .setTooltip(Component.translatable("config.roadweaver.thresholdRelaxationSteps.tooltip"))
+                .setSaveConsumer(FabricModConfig::setThresholdRelaxationSteps)
+                .build());
+        
+        roads.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.pathSearchEpsilon"),
+                FabricModConfig.getPathSearchEpsilon())
+                .setDefaultValue(120)
+                .setMin(1)
+                .setMax(200)
+                .setTooltip(Component.translatable("config.roadweaver.pathSearchEpsilon.tooltip"))
+                .setSaveConsumer(FabricModConfig::setPathSearchEpsilon)
+                .build());
+        
+        roads.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.anytimePathSearch"),
+                FabricModConfig.getAnytimePathSearch())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.anytimePathSearch.tooltip"))
+                .setSaveConsumer(FabricModConfig::setAnytimePathSearch)
+                .build());
+        
         // 装饰配置分类
         ConfigCategory decorations = builder.getOrCreateCategory(
                 Component.translatable("config.roadweaver.category.decorations"));
@@ -210,6 +320,16 @@ public class ClothConfigScreen {
                 .setSaveConsumer(FabricModConfig::setManualIgnoreWater)
                 .build());
         
+        manual.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.coarseRoutingDistance"),
+                FabricModConfig.getCoarseRoutingDistance())
+                .setDefaultValue(512)
+                .setMin(0)
+                .setMax(100000)
+                .setTooltip(Component.translatable("config.roadweaver.coarseRoutingDistance.tooltip"))
+                .setSaveConsumer(FabricModConfig::setCoarseRoutingDistance)
+                .build());
+        
         return builder.build();
     }
 }
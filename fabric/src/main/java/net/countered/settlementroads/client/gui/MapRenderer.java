@@ -1,5 +1,6 @@
 package net.countered.settlementroads.client.gui;
 
+import net.countered.settlementroads.helpers.CompactRoadSegments;
 import net.countered.settlementroads.helpers.Records;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.GuiGraphics;
@@ -73,14 +74,14 @@ public class MapRenderer {
         int roadColor = (statusColors.get("road") & 0x00FFFFFF) | 0x80000000;
 
         for (Records.RoadData roadData : roads) {
-            List<Records.RoadSegmentPlacement> segments = roadData.roadSegmentList();
-            if (segments == null || segments.size() < 2) continue;
+            CompactRoadSegments segments = roadData.segments();
+            if (segments.size() < 2) continue;
 
             drawRoadPathWithLOD(ctx, segments, roadColor, roadLOD, converter);
         }
     }
 
-    private void drawRoadPathWithLOD(GuiGraphics ctx, List<Records.RoadSegmentPlacement> segments,
+    private void drawRoadPathWithLOD(GuiGraphics ctx, CompactRoadSegments segments,
                                      int color, RoadLODLevel roadLOD, WorldToScreenConverter converter) {
         int step = switch (roadLOD) {
             case FINEST -> 1;
@@ -97,12 +98,19 @@ public class MapRenderer {
         if (step >= segments.size()) return;
 
         RoadDebugScreen.ScreenPos prevPos = null;
+        int prevX = 0;
+        int prevZ = 0;
 
         for (int i = 0; i < segments.size(); i += step) {
-            BlockPos pos = segments.get(i).middlePos();
-            RoadDebugScreen.ScreenPos currentPos = converter.worldToScreen(pos.getX(), pos.getZ());
-
-            if (prevPos != null && i > 0) {
+            int x = segments.centerX(i);
+            int z = segments.centerZ(i);
+            RoadDebugScreen.ScreenPos currentPos = converter.worldToScreen(x, z);
+
+            // 相邻中心线相距不超过一格；距离过大说明中间是已由其他道路绘制的共享路段，断开折线
+            boolean gap = Math.max(Math.abs(x - prevX), Math.abs(z - prevZ)) > step + 1;
+            prevX = x;
+            prevZ = z;
+            if (prevPos != null && i > 0 && !gap) {
                 if (bounds.isLineInBounds(prevPos.x(), prevPos.y(), currentPos.x(), currentPos.y())) {
                     RenderUtils.drawLine(ctx, prevPos.x(), prevPos.y(), currentPos.x(), currentPos.y(), color);
                 }
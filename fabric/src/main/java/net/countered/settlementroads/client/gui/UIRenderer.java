@@ -1,6 +1,7 @@
 package net.countered.settlementroads.client.gui;
 
 import net.countered.settlementroads.helpers.Records;
+import net.countered.settlementroads.network.PacketHandler;
 import net.minecraft.client.Minecraft;
 import net.minecraft.client.gui.Font;
 import net.minecraft.client.gui.GuiGraphics;
@@ -59,7 +60,16 @@ public class UIRenderer {
             }
         }
 
-        String[] labels = {
+        Records.SchedulerStatus scheduler = PacketHandler.getSchedulerStatus();
+        String limitText = scheduler != null
+                ? net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.road_limit",
+                        scheduler.limit() + "/" + scheduler.max(),
+                        net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.reason." + scheduler.reason().toLowerCase(java.util.Locale.ROOT))).getString()
+                : net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.road_limit", "-", "-").getString();
+        String throughputText = net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.throughput",
+                scheduler != null ? String.format("%.1f", scheduler.roadsPerMinute()) : "-").getString();
+
+        List<String> labels = new java.util.ArrayList<>(List.of(
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.structures", structureInfos.size()).getString(),
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.planned", planned).getString(),
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.generating", generating).getString(),
@@ -67,10 +77,12 @@ public class UIRenderer {
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.failed", failed).getString(),
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.roads", roads.size()).getString(),
                 net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.valid", validRoads).getString(),
-                net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.zoom", String.format("%.1f", zoom)).getString()
-        };
+                net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.zoom", String.format("%.1f", zoom)).getString(),
+                limitText,
+                throughputText
+        ));
 
-        int[] colors = {
+        List<Integer> colors = new java.util.ArrayList<>(List.of(
                 statusColors.get("structure"),
                 statusColors.get("planned"),
                 statusColors.get("generating"),
@@ -78,8 +90,19 @@ public class UIRenderer {
                 statusColors.get("failed"),
                 statusColors.get("road"),
                 0xFF00FF00,
-                0xFFFFFFFF
-        };
+                0xFFFFFFFF,
+                0xFFF2C94C,
+                0xFF3498DB
+        ));
+        // 流水线各阶段：队列深度与平均延迟
+        if (scheduler != null) {
+            for (Records.PipelineStageStatus stage : scheduler.stages()) {
+                String depthText = stage.capacity() > 0 ? stage.depth() + "/" + stage.capacity() : String.valueOf(stage.depth());
+                labels.add(net.minecraft.network.chat.Component.translatable("gui.roadweaver.debug_map.stage",
+                        stage.name(), depthText, String.format("%.0f", stage.avgLatencyMs())).getString());
+                colors.add(0xFFB0B0B0);
+            }
+        }
 
         int maxWidth = 0;
         for (String label : labels) {
@@ -89,13 +112,13 @@ public class UIRenderer {
         int panelX = width - maxWidth - PADDING - 20;
         int panelY = PADDING + 40;
         int panelW = maxWidth + 16;
-        int panelH = labels.length * 12 + 8;
+        int panelH = labels.size() * 12 + 8;
 
         RenderUtils.drawPanel(ctx, panelX, panelY, panelX + panelW, panelY + panelH, 0xE0000000, 0xFF2C3E50);
 
-        for (int i = 0; i < labels.length; i++) {
+        for (int i = 0; i < labels.size(); i++) {
             int textY = panelY + 8 + i * 12;
-            ctx.drawString(font, labels[i], panelX + 8, textY, colors[i], false);
+            ctx.drawString(font, labels.get(i), panelX + 8, textY, colors.get(i), false);
         }
     }
 
@@ -19,6 +19,21 @@ public class FabricModConfigAdapter implements IModConfig {
         return FabricModConfig.getStructureSearchRadius();
     }
 
+    @Override
+    public boolean batchNetworkPlanning() {
+        return FabricModConfig.getBatchNetworkPlanning();
+    }
+
+    @Override
+    public boolean plannerAddLoops() {
+        return FabricModConfig.getPlannerAddLoops();
+    }
+
+    @Override
+    public int multiTargetCandidates() {
+        return FabricModConfig.getMultiTargetCandidates();
+    }
+
     @Override
     public int initialLocatingCount() {
         return FabricModConfig.getInitialLocatingCount();
@@ -29,6 +44,31 @@ public class FabricModConfigAdapter implements IModConfig {
         return FabricModConfig.getMaxConcurrentRoadGeneration();
     }
 
+    @Override
+    public int minConcurrentRoadGeneration() {
+        return FabricModConfig.getMinConcurrentRoadGeneration();
+    }
+
+    @Override
+    public int roadWorkerThreads() {
+        return FabricModConfig.getRoadWorkerThreads();
+    }
+
+    @Override
+    public boolean sendThenPatch() {
+        return FabricModConfig.getSendThenPatch();
+    }
+
+    @Override
+    public int patchSectionsPerPlayerPerTick() {
+        return FabricModConfig.getPatchSectionsPerPlayerPerTick();
+    }
+
+    @Override
+    public int retroPavingBudgetMs() {
+        return FabricModConfig.getRetroPavingBudgetMs();
+    }
+
     @Override
     public int structureSearchTriggerDistance() {
         return FabricModConfig.getStructureSearchTriggerDistance();
@@ -89,6 +129,26 @@ public class FabricModConfigAdapter implements IModConfig {
         return FabricModConfig.getMaxTerrainStability();
     }
 
+    @Override
+    public boolean routeOntoNetwork() {
+        return FabricModConfig.getRouteOntoNetwork();
+    }
+
+    @Override
+    public int thresholdRelaxationSteps() {
+        return FabricModConfig.getThresholdRelaxationSteps();
+    }
+
+    @Override
+    public int pathSearchEpsilon() {
+        return FabricModConfig.getPathSearchEpsilon();
+    }
+
+    @Override
+    public boolean anytimePathSearch() {
+        return FabricModConfig.getAnytimePathSearch();
+    }
+
     @Override
     public int manualMaxHeightDifference() {
         return FabricModConfig.getManualMaxHeightDifference();
@@ -103,4 +163,9 @@ public class FabricModConfigAdapter implements IModConfig {
     public boolean manualIgnoreWater() {
         return FabricModConfig.getManualIgnoreWater();
     }
+
+    @Override
+    public int coarseRoutingDistance() {
+        return FabricModConfig.getCoarseRoutingDistance();
+    }
 }
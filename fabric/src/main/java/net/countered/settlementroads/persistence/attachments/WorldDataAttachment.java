@@ -30,6 +30,16 @@ public class WorldDataAttachment {
             Codec.list(Records.RoadData.CODEC)
     );
 
+    public static final AttachmentType<List<Records.PavingJob>> PAVING_JOBS = AttachmentRegistry.createPersistent(
+            new ResourceLocation(SettlementRoads.MOD_ID, "paving_jobs"),
+            Codec.list(Records.PavingJob.CODEC)
+    );
+
+    public static final AttachmentType<List<Records.DecorationFragment>> DECORATION_FRAGMENTS = AttachmentRegistry.createPersistent(
+            new ResourceLocation(SettlementRoads.MOD_ID, "decoration_fragments"),
+            Codec.list(Records.DecorationFragment.CODEC)
+    );
+
     public static void registerWorldDataAttachment() {
         LOGGER.info("Registering WorldData attachment");
     }
@@ -41,4 +41,24 @@ public class FabricWorldDataProvider extends WorldDataProvider {
     public void setRoadDataList(ServerLevel level, List<Records.RoadData> roadDataList) {
         ((AttachmentTarget) level).setAttached(WorldDataAttachment.ROAD_DATA_LIST, roadDataList);
     }
+
+    @Override
+    public List<Records.PavingJob> getPavingJobs(ServerLevel level) {
+        return ((AttachmentTarget) level).getAttachedOrCreate(WorldDataAttachment.PAVING_JOBS, ArrayList::new);
+    }
+
+    @Override
+    public void setPavingJobs(ServerLevel level, List<Records.PavingJob> jobs) {
+        ((AttachmentTarget) level).setAttached(WorldDataAttachment.PAVING_JOBS, jobs);
+    }
+
+    @Override
+    public List<Records.DecorationFragment> getDecorationFragments(ServerLevel level) {
+        return ((AttachmentTarget) level).getAttachedOrCreate(WorldDataAttachment.DECORATION_FRAGMENTS, ArrayList::new);
+    }
+
+    @Override
+    public void setDecorationFragments(ServerLevel level, List<Records.DecorationFragment> fragments) {
+        ((AttachmentTarget) level).setAttached(WorldDataAttachment.DECORATION_FRAGMENTS, fragments);
+    }
 }
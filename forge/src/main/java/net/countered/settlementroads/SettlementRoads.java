@@ -6,6 +6,8 @@ import net.countered.settlementroads.events.ModEventHandler;
 import net.countered.settlementroads.features.config.forge.ForgeRoadFeatureRegistry;
 import net.countered.settlementroads.datagen.SettlementRoadsDataGenerator;
 import net.countered.settlementroads.network.RoadWeaverNetworkManager;
+import net.minecraftforge.common.MinecraftForge;
+import net.minecraftforge.event.TagsUpdatedEvent;
 import net.minecraftforge.eventbus.api.IEventBus;
 import net.minecraftforge.fml.ModLoadingContext;
 import net.minecraftforge.fml.common.Mod;
@@ -47,6 +49,8 @@ public class SettlementRoads {
 		
 		// 注册事件处理器（使用 Architectury 事件的 common 实现）
 		ModEventHandler.register();
+		// 标签绑定完成后失效依赖标签的缓存（Architectury 没有对应事件）
+		MinecraftForge.EVENT_BUS.addListener((TagsUpdatedEvent event) -> ModEventHandler.onTagsUpdated());
 	}
 
 	private void commonSetup(final FMLCommonSetupEvent event) {
@@ -38,6 +38,32 @@ public class ClothConfigScreen {
                 .setSaveConsumer(ForgeJsonConfig::setStructureSearchRadius)
                 .build());
         
+        structures.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.batchNetworkPlanning"),
+                ForgeJsonConfig.getBatchNetworkPlanning())
+                .setDefaultValue(true)
+                .setTooltip(Component.translatable("config.roadweaver.batchNetworkPlanning.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setBatchNetworkPlanning)
+                .build());
+        
+        structures.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.plannerAddLoops"),
+                ForgeJsonConfig.getPlannerAddLoops())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.plannerAddLoops.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setPlannerAddLoops)
+                .build());
+        
+        structures.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.multiTargetCandidates"),
+                ForgeJsonConfig.getMultiTargetCandidates())
+                .setDefaultValue(3)
+                .setMin(1)
+                .setMax(8)
+                .setTooltip(Component.translatable("config.roadweaver.multiTargetCandidates.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setMultiTargetCandidates)
+                .build());
+        
         // 预生成配置分类
         ConfigCategory preGeneration = builder.getOrCreateCategory(
                 Component.translatable("config.roadweaver.category.pregeneration"));
@@ -62,6 +88,54 @@ public class ClothConfigScreen {
                 .setSaveConsumer(ForgeJsonConfig::setMaxConcurrentRoadGeneration)
                 .build());
         
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.minConcurrentRoadGeneration"),
+                ForgeJsonConfig.getMinConcurrentRoadGeneration())
+                .setDefaultValue(1)
+                .setMin(1)
+                .setMax(256)
+                .setTooltip(Component.translatable("config.roadweaver.minConcurrentRoadGeneration.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setMinConcurrentRoadGeneration)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.roadWorkerThreads"),
+                ForgeJsonConfig.getRoadWorkerThreads())
+                .setDefaultValue(0)
+                .setMin(0)
+                .setMax(64)
+                .setTooltip(Component.translatable("config.roadweaver.roadWorkerThreads.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setRoadWorkerThreads)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.sendThenPatch"),
+                ForgeJsonConfig.getSendThenPatch())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.sendThenPatch.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setSendThenPatch)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.patchSectionsPerPlayerPerTick"),
+                ForgeJsonConfig.getPatchSectionsPerPlayerPerTick())
+                .setDefaultValue(32)
+                .setMin(1)
+                .setMax(512)
+                .setTooltip(Component.translatable("config.roadweaver.patchSectionsPerPlayerPerTick.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setPatchSectionsPerPlayerPerTick)
+                .build());
+        
+        preGeneration.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.retroPavingBudgetMs"),
+                ForgeJsonConfig.getRetroPavingBudgetMs())
+                .setDefaultValue(4)
+                .setMin(0)
+                .setMax(50)
+                .setTooltip(Component.translatable("config.roadweaver.retroPavingBudgetMs.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setRetroPavingBudgetMs)
+                .build());
+        
         preGeneration.addEntry(entryBuilder.startIntSlider(
                 Component.translatable("config.roadweaver.structureSearchTriggerDistance"),
                 ForgeJsonConfig.getStructureSearchTriggerDistance(),
@@ -131,6 +205,42 @@ public class ClothConfigScreen {
                 .setSaveConsumer(ForgeJsonConfig::setMaxTerrainStability)
                 .build());
         
+        roads.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.routeOntoNetwork"),
+                ForgeJsonConfig.getRouteOntoNetwork())
+                .setDefaultValue(true)
+                .setTooltip(Component.translatable("config.roadweaver.routeOntoNetwork.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setRouteOntoNetwork)
+                .build());
+        
+        roads.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.thresholdRelaxationSteps"),
+                ForgeJsonConfig.getThresholdRelaxationSteps())
+                .setDefaultValue(2)
+                .setMin(0)
+                .setMax(8)
+                .setTooltip(Component.translatable("config.roadweaver.thresholdRelaxationSteps.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setThresholdRelaxationSteps)
+                .build());
+        
+        roads.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.pathSearchEpsilon"),
+                ForgeJsonConfig.getPathSearchEpsilon())
+                .setDefaultValue(120)
+                .setMin(1)
+                .setMax(200)
+                .setTooltip(Component.translatable("config.roadweaver.pathSearchEpsilon.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setPathSearchEpsilon)
+                .build());
+        
+        roads.addEntry(entryBuilder.startBooleanToggle(
+                Component.translatable("config.roadweaver.anytimePathSearch"),
+                ForgeJsonConfig.getAnytimePathSearch())
+                .setDefaultValue(false)
+                .setTooltip(Component.translatable("config.roadweaver.anytimePathSearch.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setAnytimePathSearch)
+                .build());
+        
         // 装饰配置分类
         ConfigCategory decorations = builder.getOrCreateCategory(
                 Component.translatable("config.roadweaver.category.decorations"));
@@ -207,6 +317,16 @@ public class ClothConfigScreen {
                 .setSaveConsumer(ForgeJsonConfig::setManualIgnoreWater)
                 .build());
         
+        manual.addEntry(entryBuilder.startIntField(
+                Component.translatable("config.roadweaver.coarseRoutingDistance"),
+                ForgeJsonConfig.getCoarseRoutingDistance())
+                .setDefaultValue(512)
+                .setMin(0)
+                .setMax(100000)
+                .setTooltip(Component.translatable("config.roadweaver.coarseRoutingDistance.tooltip"))
+                .setSaveConsumer(ForgeJsonConfig::setCoarseRoutingDistance)
+                .build());
+        
         return builder.build();
     }
 }
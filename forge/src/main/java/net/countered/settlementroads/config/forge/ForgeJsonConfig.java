@@ -27,6 +27,15 @@ public class ForgeJsonConfig {
     public static int getStructureSearchRadius() { return data.structureSearchRadius; }
     public static void setStructureSearchRadius(int value) { data.structureSearchRadius = value; }
 
+    public static boolean getBatchNetworkPlanning() { return data.batchNetworkPlanning; }
+    public static void setBatchNetworkPlanning(boolean value) { data.batchNetworkPlanning = value; }
+
+    public static boolean getPlannerAddLoops() { return data.plannerAddLoops; }
+    public static void setPlannerAddLoops(boolean value) { data.plannerAddLoops = value; }
+
+    public static int getMultiTargetCandidates() { return data.multiTargetCandidates; }
+    public static void setMultiTargetCandidates(int value) { data.multiTargetCandidates = value; }
+
     // 预生成配置
     public static int getInitialLocatingCount() { return data.initialLocatingCount; }
     public static void setInitialLocatingCount(int value) { data.initialLocatingCount = value; }
@@ -34,6 +43,21 @@ public class ForgeJsonConfig {
     public static int getMaxConcurrentRoadGeneration() { return data.maxConcurrentRoadGeneration; }
     public static void setMaxConcurrentRoadGeneration(int value) { data.maxConcurrentRoadGeneration = value; }
 
+    public static int getMinConcurrentRoadGeneration() { return data.minConcurrentRoadGeneration; }
+    public static void setMinConcurrentRoadGeneration(int value) { data.minConcurrentRoadGeneration = value; }
+
+    public static int getRoadWorkerThreads() { return data.roadWorkerThreads; }
+    public static void setRoadWorkerThreads(int value) { data.roadWorkerThreads = value; }
+
+    public static boolean getSendThenPatch() { return data.sendThenPatch; }
+    public static void setSendThenPatch(boolean value) { data.sendThenPatch = value; }
+
+    public static int getPatchSectionsPerPlayerPerTick() { return data.patchSectionsPerPlayerPerTick; }
+    public static void setPatchSectionsPerPlayerPerTick(int value) { data.patchSectionsPerPlayerPerTick = value; }
+
+    public static int getRetroPavingBudgetMs() { return data.retroPavingBudgetMs; }
+    public static void setRetroPavingBudgetMs(int value) { data.retroPavingBudgetMs = value; }
+
     public static int getStructureSearchTriggerDistance() { return data.structureSearchTriggerDistance; }
     public static void setStructureSearchTriggerDistance(int value) { 
         data.structureSearchTriggerDistance = Math.max(150, Math.min(1500, value)); 
@@ -58,6 +82,18 @@ public class ForgeJsonConfig {
     public static int getMaxTerrainStability() { return data.maxTerrainStability; }
     public static void setMaxTerrainStability(int value) { data.maxTerrainStability = value; }
 
+    public static boolean getRouteOntoNetwork() { return data.routeOntoNetwork; }
+    public static void setRouteOntoNetwork(boolean value) { data.routeOntoNetwork = value; }
+
+    public static int getThresholdRelaxationSteps() { return data.thresholdRelaxationSteps; }
+    public static void setThresholdRelaxationSteps(int value) { data.thresholdRelaxationSteps = value; }
+
+    public static int getPathSearchEpsilon() { return data.pathSearchEpsilon; }
+    public static void setPathSearchEpsilon(int value) { data.pathSearchEpsilon = value; }
+
+    public static boolean getAnytimePathSearch() { return data.anytimePathSearch; }
+    public static void setAnytimePathSearch(boolean value) { data.anytimePathSearch = value; }
+
     // 装饰配置
     public static boolean getPlaceWaypoints() { return data.placeWaypoints; }
     public static void setPlaceWaypoints(boolean value) { data.placeWaypoints = value; }
@@ -84,6 +120,9 @@ public class ForgeJsonConfig {
     public static boolean getManualIgnoreWater() { return data.manualIgnoreWater; }
     public static void setManualIgnoreWater(boolean value) { data.manualIgnoreWater = value; }
 
+    public static int getCoarseRoutingDistance() { return data.coarseRoutingDistance; }
+    public static void setCoarseRoutingDistance(int value) { data.coarseRoutingDistance = value; }
+
     public static void load() {
         if (Files.exists(CONFIG_PATH)) {
             try {
@@ -127,10 +166,18 @@ public class ForgeJsonConfig {
         // 新字段：每行一个结构/标签
         List<String> structuresToLocate = new ArrayList<>(List.of("#minecraft:village"));
         int structureSearchRadius = 100;
+        boolean batchNetworkPlanning = true;
+        boolean plannerAddLoops = false;
+        int multiTargetCandidates = 3;
 
         // 预生成配置
         int initialLocatingCount = 7;
         int maxConcurrentRoadGeneration = 3;
+        int minConcurrentRoadGeneration = 1;
+        int roadWorkerThreads = 0;
+        boolean sendThenPatch = false;
+        int patchSectionsPerPlayerPerTick = 32;
+        int retroPavingBudgetMs = 4;
         int structureSearchTriggerDistance = 600;
 
         // 道路配置
@@ -140,6 +187,10 @@ public class ForgeJsonConfig {
         int structureDistanceFromRoad = 4;
         int maxHeightDifference = 5;
         int maxTerrainStability = 4;
+        boolean routeOntoNetwork = true;
+        int thresholdRelaxationSteps = 2;
+        int pathSearchEpsilon = 120;
+        boolean anytimePathSearch = false;
 
         // 装饰配置
         boolean placeWaypoints = false;
@@ -152,6 +203,7 @@ public class ForgeJsonConfig {
         int manualMaxHeightDifference = 10;
         int manualMaxTerrainStability = 10;
         boolean manualIgnoreWater = false;
+        int coarseRoutingDistance = 512;
     }
 
     private static List<String> tokenizeToList(String raw) {
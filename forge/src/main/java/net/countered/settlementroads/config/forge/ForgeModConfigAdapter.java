@@ -16,6 +16,21 @@ public class ForgeModConfigAdapter implements IModConfig {
         return ForgeJsonConfig.getStructureSearchRadius();
     }
 
+    @Override
+    public boolean batchNetworkPlanning() {
+        return ForgeJsonConfig.getBatchNetworkPlanning();
+    }
+
+    @Override
+    public boolean plannerAddLoops() {
+        return ForgeJsonConfig.getPlannerAddLoops();
+    }
+
+    @Override
+    public int multiTargetCandidates() {
+        return ForgeJsonConfig.getMultiTargetCandidates();
+    }
+
     @Override
     public int initialLocatingCount() {
         return ForgeJsonConfig.getInitialLocatingCount();
@@ -26,6 +41,31 @@ public class ForgeModConfigAdapter implements IModConfig {
         return ForgeJsonConfig.getMaxConcurrentRoadGeneration();
     }
 
+    @Override
+    public int minConcurrentRoadGeneration() {
+        return ForgeJsonConfig.getMinConcurrentRoadGeneration();
+    }
+
+    @Override
+    public int roadWorkerThreads() {
+        return ForgeJsonConfig.getRoadWorkerThreads();
+    }
+
+    @Override
+    public boolean sendThenPatch() {
+        return ForgeJsonConfig.getSendThenPatch();
+    }
+
+    @Override
+    public int patchSectionsPerPlayerPerTick() {
+        return ForgeJsonConfig.getPatchSectionsPerPlayerPerTick();
+    }
+
+    @Override
+    public int retroPavingBudgetMs() {
+        return ForgeJsonConfig.getRetroPavingBudgetMs();
+    }
+
     @Override
     public int structureSearchTriggerDistance() {
         return ForgeJsonConfig.getStructureSearchTriggerDistance();
@@ -86,6 +126,26 @@ public class ForgeModConfigAdapter implements IModConfig {
         return ForgeJsonConfig.getMaxTerrainStability();
     }
 
+    @Override
+    public boolean routeOntoNetwork() {
+        return ForgeJsonConfig.getRouteOntoNetwork();
+    }
+
+    @Override
+    public int thresholdRelaxationSteps() {
+        return ForgeJsonConfig.getThresholdRelaxationSteps();
+    }
+
+    @Override
+    public int pathSearchEpsilon() {
+        return ForgeJsonConfig.getPathSearchEpsilon();
+    }
+
+    @Override
+    public boolean anytimePathSearch() {
+        return ForgeJsonConfig.getAnytimePathSearch();
+    }
+
     @Override
     public int manualMaxHeightDifference() {
         return ForgeJsonConfig.getManualMaxHeightDifference();
@@ -100,4 +160,9 @@ public class ForgeModConfigAdapter implements IModConfig {
     public boolean manualIgnoreWater() {
         return ForgeJsonConfig.getManualIgnoreWater();
     }
+
+    @Override
+    public int coarseRoutingDistance() {
+        return ForgeJsonConfig.getCoarseRoutingDistance();
+    }
 }
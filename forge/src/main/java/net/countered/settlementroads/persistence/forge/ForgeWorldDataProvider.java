@@ -32,11 +32,15 @@ public class ForgeWorldDataProvider extends WorldDataProvider {
         private Records.StructureLocationData structureLocations = new Records.StructureLocationData(new ArrayList<>());
         private List<Records.StructureConnection> connections = new ArrayList<>();
         private List<Records.RoadData> roadDataList = new ArrayList<>();
+        private List<Records.PavingJob> pavingJobs = new ArrayList<>();
+        private List<Records.DecorationFragment> decorationFragments = new ArrayList<>();
 
         // NBT 字段名
         private static final String KEY_LOCATIONS = "structure_locations";
         private static final String KEY_CONNECTIONS = "connections";
         private static final String KEY_ROAD_DATA = "road_data_list";
+        private static final String KEY_PAVING_JOBS = "paving_jobs";
+        private static final String KEY_DECORATION_FRAGMENTS = "decoration_fragments";
 
         public Data() {}
 
@@ -65,6 +69,20 @@ public class ForgeWorldDataProvider extends WorldDataProvider {
                 res.result().ifPresent(val -> data.roadDataList = val);
             }
 
+            // 补铺任务（从 ListTag 读取）
+            if (tag.contains(KEY_PAVING_JOBS)) {
+                Tag jobsTag = tag.get(KEY_PAVING_JOBS);
+                DataResult<List<Records.PavingJob>> res = Codec.list(Records.PavingJob.CODEC).parse(new Dynamic<>(ops, jobsTag));
+                res.result().ifPresent(val -> data.pavingJobs = val);
+            }
+
+            // 跨区块装饰片段（从 ListTag 读取）
+            if (tag.contains(KEY_DECORATION_FRAGMENTS)) {
+                Tag fragmentsTag = tag.get(KEY_DECORATION_FRAGMENTS);
+                DataResult<List<Records.DecorationFragment>> res = Codec.list(Records.DecorationFragment.CODEC).parse(new Dynamic<>(ops, fragmentsTag));
+                res.result().ifPresent(val -> data.decorationFragments = val);
+            }
+
             return data;
         }
 
@@ -87,6 +105,16 @@ public class ForgeWorldDataProvider extends WorldDataProvider {
                     .result()
                     .ifPresent(nbt -> tag.put(KEY_ROAD_DATA, nbt));
 
+            // 补铺任务（List 编码为 ListTag）
+            Codec.list(Records.PavingJob.CODEC).encodeStart(ops, pavingJobs)
+                    .result()
+                    .ifPresent(nbt -> tag.put(KEY_PAVING_JOBS, nbt));
+
+            // 跨区块装饰片段（List 编码为 ListTag）
+            Codec.list(Records.DecorationFragment.CODEC).encodeStart(ops, decorationFragments)
+                    .result()
+                    .ifPresent(nbt -> tag.put(KEY_DECORATION_FRAGMENTS, nbt));
+
             return tag;
         }
 
@@ -117,6 +145,24 @@ public class ForgeWorldDataProvider extends WorldDataProvider {
             this.roadDataList = Objects.requireNonNullElseGet(roadDataList, ArrayList::new);
             setDirty();
         }
+
+        public List<Records.PavingJob> getPavingJobs() {
+            return pavingJobs;
+        }
+
+        public void setPavingJobs(List<Records.PavingJob> pavingJobs) {
+            this.pavingJobs = Objects.requireNonNullElseGet(pavingJobs, ArrayList::new);
+            setDirty();
+        }
+
+        public List<Records.DecorationFragment> getDecorationFragments() {
+            return decorationFragments;
+        }
+
+        public void setDecorationFragments(List<Records.DecorationFragment> decorationFragments) {
+            this.decorationFragments = Objects.requireNonNullElseGet(decorationFragments, ArrayList::new);
+            setDirty();
+        }
     }
 
     private Data getOrCreate(ServerLevel level) {
@@ -152,4 +198,24 @@ public class ForgeWorldDataProvider extends WorldDataProvider {
     public void setRoadDataList(ServerLevel level, List<Records.RoadData> roadDataList) {
         getOrCreate(level).setRoadDataList(roadDataList);
     }
+
+    @Override
+    public List<Records.PavingJob> getPavingJobs(ServerLevel level) {
+        return getOrCreate(level).getPavingJobs();
+    }
+
+    @Override
+    public void setPavingJobs(ServerLevel level, List<Records.PavingJob> jobs) {
+        getOrCreate(level).setPavingJobs(jobs);
+    }
+
+    @Override
+    public List<Records.DecorationFragment> getDecorationFragments(ServerLevel level) {
+        return getOrCreate(level).getDecorationFragments();
+    }
+
+    @Override
+    public void setDecorationFragments(ServerLevel level, List<Records.DecorationFragment> fragments) {
+        getOrCreate(level).setDecorationFragments(fragments);
+    }
 }
\ No newline at end of file